@@ -0,0 +1,91 @@
+package com.quod.biometric.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result (-rf json) against the committed baseline.
+ * A benchmark regresses when its throughput drops, or its allocation per operation
+ * (gc.alloc.rate.norm) grows, by more than the tolerance and by more than the combined
+ * score errors; the exit status is 1 if any benchmark regressed.
+ *
+ * Usage: java -cp target/benchmarks.jar com.quod.biometric.benchmark.BaselineComparison
+ *        baseline.json target/results.json [tolerance, default 0.10]
+ */
+public class BaselineComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <results.json> [tolerance]");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(Path.of(args[0]));
+        Map<String, JsonNode> current = read(Path.of(args[1]));
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        boolean regressed = false;
+        System.out.printf(Locale.ROOT, "%-70s %14s %14s %8s %12s %12s %8s%n",
+                "Benchmark", "Baseline ops/s", "ops/s", "Change", "Base B/op", "B/op", "Change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            if (before == null) {
+                System.out.printf(Locale.ROOT, "%-70s %14s %14.0f%n", entry.getKey(), "new", score(after));
+                continue;
+            }
+            double throughputChange = change(score(before), score(after));
+            boolean slower = -throughputChange > tolerance
+                    && score(before) - score(after) > error(before) + error(after);
+            double allocationChange = change(allocation(before), allocation(after));
+            boolean allocatesMore = allocationChange > tolerance;
+            regressed |= slower || allocatesMore;
+            System.out.printf(Locale.ROOT, "%-70s %14.0f %14.0f %7.1f%%%s %12.0f %12.0f %7.1f%%%s%n", entry.getKey(),
+                    score(before), score(after), throughputChange * 100, slower ? "!" : " ",
+                    allocation(before), allocation(after), allocationChange * 100, allocatesMore ? "!" : " ");
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+
+    /**
+     * @return Results by benchmark name and parameters
+     */
+    private static Map<String, JsonNode> read(Path path) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(path.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.quod.biometric.service.", ""));
+            for (Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields(); params.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(key.indexOf(":") < 0 ? ":" : ",").append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static double error(JsonNode result) {
+        double error = result.path("primaryMetric").path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static double allocation(JsonNode result) {
+        return result.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 || Double.isNaN(before) || Double.isNaN(after) ? 0 : (after - before) / before;
+    }
+}
@@ -0,0 +1,83 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Camera-like upload payloads for the benchmarks, generated once per trial so runs do not depend on
+ * files on disk: a 1280x960 capture with smooth shading and sensor noise, which encodes to a JPEG of
+ * about 60KB, as phones upload after compressing, and to a PNG of about 1.1MB, as scans usually are.
+ */
+public final class BenchmarkImages {
+
+    static final long MAX_SIZE = 5L * 1024 * 1024;
+    static final int WIDTH = 1280;
+    static final int HEIGHT = 960;
+
+    public enum Format {
+        JPEG("jpg", "image/jpeg"),
+        PNG("png", "image/png");
+
+        private final String imageIoName;
+        private final String contentType;
+
+        Format(String imageIoName, String contentType) {
+            this.imageIoName = imageIoName;
+            this.contentType = contentType;
+        }
+    }
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Ingest service configured like the application: 5MB uploads, 16 pooled buffers
+     */
+    static ImageIngestService ingestService(MeterRegistry meterRegistry) {
+        return new ImageIngestService(new ImageBufferPool(MAX_SIZE, 16, meterRegistry), MAX_SIZE, 262144);
+    }
+
+    /**
+     * @param seed Varies the content, so differently seeded payloads have different hashes
+     */
+    static MockMultipartFile upload(Format format, long seed) {
+        return new MockMultipartFile("image", "capture." + format.imageIoName, format.contentType, encode(format, seed));
+    }
+
+    static byte[] encode(Format format, long seed) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        double centerX = WIDTH / 2.0 + random.nextInt(200) - 100;
+        double centerY = HEIGHT / 2.0 + random.nextInt(200) - 100;
+        double radius = Math.min(WIDTH, HEIGHT) * 0.35;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double distance = Math.hypot(x - centerX, y - centerY) / radius;
+                // A lit oval on a darker background, with a few levels of sensor noise
+                double light = distance < 1 ? 0.85 - 0.35 * distance * distance : 0.25 + 0.1 * y / HEIGHT;
+                int noise = random.nextInt(9) - 4;
+                int r = clamp((int) (light * 235) + noise);
+                int g = clamp((int) (light * 190) + noise);
+                int b = clamp((int) (light * 160) + noise);
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            ImageIO.write(image, format.imageIoName, output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,100 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The three fraud detection entry points with the application defaults: checks on an 8-thread pool,
+ * the near-duplicate lookup decoding the face image against an index of 100,000 accepted faces, and
+ * velocity windows recording attempts spread over 10,000 users, devices and locations, decided with the
+ * default risk rules.
+ * The simulated checks themselves do no work, so the scores are the orchestration overhead that real
+ * model calls would be added to.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FraudDetectionBenchmark {
+
+    private static final int INDEXED_FACES = 100_000;
+    private static final int USERS = 10_000;
+
+    private FraudCheckExecutor fraudCheckExecutor;
+    private FraudDetectionService fraudDetectionService;
+    private IngestedImage faceImage;
+    private IngestedImage documentImage;
+    private IngestedImage fingerprintImage;
+    private VerificationAttempt[] attempts;
+    private final AtomicInteger nextAttempt = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VerificationMetrics verificationMetrics = new VerificationMetrics(meterRegistry);
+        fraudCheckExecutor = new FraudCheckExecutor(new PipelineThreads(false), verificationMetrics,
+                8, 1000, false, List.of());
+        NearDuplicateIndex nearDuplicateIndex = new NearDuplicateIndex();
+        Random random = new Random(42);
+        for (int i = 0; i < INDEXED_FACES; i++) {
+            nearDuplicateIndex.add(random.nextLong(), "user-" + (i % USERS), "verification-" + i);
+        }
+        VelocityEngine velocityEngine = new VelocityEngine(meterRegistry, true,
+                Duration.ofMinutes(1), 10, 500_000,
+                Duration.ofMinutes(10), 5, 250_000,
+                Duration.ofMinutes(1), 100, 50_000);
+        fraudDetectionService = new FraudDetectionService(fraudCheckExecutor, new PerceptualHasher(),
+                new ImageDecoder(meterRegistry, 224, 32L * 1024 * 1024, Duration.ofMillis(200), 32),
+                nearDuplicateIndex, velocityEngine, verificationMetrics,
+                new RiskEngine(new DefaultResourceLoader(), meterRegistry, "classpath:risk-rules.yml"),
+                new StandardEnvironment(),
+                Duration.ofMillis(500), true, 6);
+
+        ImageIngestService ingestService = BenchmarkImages.ingestService(meterRegistry);
+        faceImage = ingestService.ingest(BenchmarkImages.upload(BenchmarkImages.Format.JPEG, 1));
+        documentImage = ingestService.ingest(BenchmarkImages.upload(BenchmarkImages.Format.JPEG, 2));
+        fingerprintImage = ingestService.ingest(BenchmarkImages.upload(BenchmarkImages.Format.PNG, 3));
+
+        attempts = new VerificationAttempt[USERS];
+        for (int i = 0; i < USERS; i++) {
+            attempts[i] = new VerificationAttempt("user-" + i, "device-" + i, "-23.55" + i + ",-46.63" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fraudCheckExecutor.shutdown();
+        faceImage.close();
+        documentImage.close();
+        fingerprintImage.close();
+    }
+
+    @Benchmark
+    public FraudAssessment detectFacialFraud() {
+        return fraudDetectionService.detectFacialFraud(faceImage, fraudDetectionService.recordAttempt(nextAttempt()), false);
+    }
+
+    @Benchmark
+    public FraudAssessment detectFingerprintFraud() {
+        return fraudDetectionService.detectFingerprintFraud(fingerprintImage, fraudDetectionService.recordAttempt(nextAttempt()), false);
+    }
+
+    @Benchmark
+    public FraudAssessment detectDocumentFraud() {
+        return fraudDetectionService.detectDocumentFraud(documentImage, faceImage, fraudDetectionService.recordAttempt(nextAttempt()), false);
+    }
+
+    private VerificationAttempt nextAttempt() {
+        return attempts[Math.floorMod(nextAttempt.getAndIncrement(), USERS)];
+    }
+}
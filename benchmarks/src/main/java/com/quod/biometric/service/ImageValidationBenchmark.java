@@ -0,0 +1,56 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image validation as run for every upload: validate is {@link ImageValidationService#validateImage}
+ * on an image that is already ingested, ingestAndValidate adds the single read, hash and header parse
+ * of {@link ImageIngestService} and the return of the pooled buffer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageValidationBenchmark {
+
+    @Param({"JPEG", "PNG"})
+    private BenchmarkImages.Format format;
+
+    private ImageIngestService ingestService;
+    private ImageValidationService validationService;
+    private MockMultipartFile upload;
+    private IngestedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ingestService = BenchmarkImages.ingestService(meterRegistry);
+        validationService = new ImageValidationService(new VerificationMetrics(meterRegistry),
+                BenchmarkImages.MAX_SIZE, "640x480");
+        upload = BenchmarkImages.upload(format, 1);
+        image = ingestService.ingest(upload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        image.close();
+    }
+
+    @Benchmark
+    public ImageValidation validate() {
+        return validationService.validateImage(image);
+    }
+
+    @Benchmark
+    public ImageValidation ingestAndValidate() {
+        try (IngestedImage ingested = ingestService.ingest(upload)) {
+            return validationService.validateImage(ingested);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.quod.biometric.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.ImageMetadata;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the response of a stored verification: {@link BiometricVerificationService#mapToResponse}
+ * and its Jackson serialization with an ObjectMapper configured as Spring Boot configures it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VerificationResponseBenchmark {
+
+    private BiometricVerificationService verificationService;
+    private ObjectWriter writer;
+    private VerificationResult result;
+    private VerificationResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // mapToResponse uses none of the collaborators
+        verificationService = new BiometricVerificationService(null, null, null, null, null, null, null, null);
+        writer = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writerFor(VerificationResponse.class);
+        result = VerificationResult.builder()
+                .id("6650f1c2a4b3d21e8c9f0a17")
+                .userId("user-123")
+                .verificationType(VerificationResult.VerificationType.FACIAL_BIOMETRY)
+                .createdAt(LocalDateTime.of(2024, 5, 24, 14, 3, 12))
+                .processedAt(LocalDateTime.of(2024, 5, 24, 14, 3, 12, 184_000_000))
+                .fraudDetected(true)
+                .fraudTypes(List.of("DEEPFAKE", "PHOTO_OF_PHOTO"))
+                .status(VerificationResult.ValidationStatus.REJECTED)
+                .metadata(VerificationMetadata.builder()
+                        .image(ImageMetadata.builder()
+                                .filename("capture.jpg")
+                                .contentType("image/jpeg")
+                                .size(184_233L)
+                                .width(1280)
+                                .height(960)
+                                .build())
+                        .deviceInfo("Pixel 8 / Android 14")
+                        .fraudCheckTimingsMicros(Map.of("DEEPFAKE", 412L, "MASK", 388L, "PHOTO_OF_PHOTO", 405L))
+                        .build())
+                .imageReference("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+                .build();
+        response = verificationService.mapToResponse(result);
+    }
+
+    @Benchmark
+    public VerificationResponse mapToResponse() {
+        return verificationService.mapToResponse(result);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(verificationService.mapToResponse(result));
+    }
+}
@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+# Runs the same upload load against the servlet (MVC) and the reactive (WebFlux) stack and prints
+# throughput and latency percentiles per concurrency level. Needs MongoDB on localhost:27017.
+#
+# Environment overrides: FLOW (facial|fingerprint|document), CONCURRENCY_LEVELS, DURATION, WARMUP, PORT
+set -euo pipefail
+cd "$(dirname "$0")"
+source ./run-stack.sh
+
+FLOW=${FLOW:-facial}
+CONCURRENCY_LEVELS=${CONCURRENCY_LEVELS:-"16 64 256 1024"}
+DURATION=${DURATION:-30s}
+WARMUP=${WARMUP:-10s}
+PORT=${PORT:-8080}
+RESULTS=target/stack-comparison.csv
+
+(cd .. && mvn -B -q package -DskipTests)
+mvn -B -q package
+APP_JAR=$(ls ../target/biometric-verification-*-exec.jar | head -1)
+rm -f "$RESULTS"
+
+run_stack servlet dev,benchmark
+run_stack reactive reactive,benchmark
+
+echo
+column -s, -t "$RESULTS"
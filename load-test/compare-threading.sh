@@ -0,0 +1,35 @@
+#!/usr/bin/env bash
+# Runs the same upload load against the servlet stack on the platform-thread pools and on virtual
+# threads and prints throughput and latency percentiles per concurrency level. Needs Java 21 and
+# MongoDB on localhost:27017. The load generator opens one connection per concurrent client, so raise
+# the open file limit first (ulimit -n 65536) and preferably run it on a separate machine.
+#
+# Environment overrides: FLOW (facial|fingerprint|document), CONCURRENCY_LEVELS, DURATION, WARMUP, PORT
+set -euo pipefail
+cd "$(dirname "$0")"
+source ./run-stack.sh
+
+FLOW=${FLOW:-facial}
+CONCURRENCY_LEVELS=${CONCURRENCY_LEVELS:-"1000 5000 10000"}
+DURATION=${DURATION:-60s}
+WARMUP=${WARMUP:-15s}
+PORT=${PORT:-8080}
+RESULTS=target/threading-comparison.csv
+
+java_version=$(java -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')
+if [ "${java_version%%.*}" -lt 21 ]; then
+  echo "Virtual threads need Java 21 or later, found $java_version" >&2
+  exit 1
+fi
+
+(cd .. && mvn -B -q package -DskipTests -Pjava21)
+mvn -B -q package
+APP_JAR=$(ls ../target/biometric-verification-*-exec.jar | head -1)
+rm -f "$RESULTS"
+
+run_stack platform-threads dev,benchmark --spring.threads.virtual.enabled=false
+run_stack virtual-threads dev,benchmark --spring.threads.virtual.enabled=true -Djdk.tracePinnedThreads=short
+
+echo
+column -s, -t "$RESULTS"
+grep -h "pinned" target/virtual-threads.log | head -20 || true
@@ -0,0 +1,82 @@
+#!/usr/bin/env bash
+# Sizing run before a release: replays a mix of facial, fingerprint and document uploads at fixed
+# arrival rates and prints throughput, error rate, requests shed with 429 and p50/p99/p99.9 latency per flow. Latency is
+# measured from each request's scheduled send time, so it is corrected for coordinated omission.
+# The application runs against an in-memory MongoDB stand-in and a local notification receiver, so
+# nothing outside this machine is needed; each rate gets a fresh application and database.
+#
+# Environment overrides: RATES (requests/s, one run each), MIX, DURATION, WARMUP, PORT, PROFILES,
+# MONGO_URI (a real MongoDB instead of the stand-in), MONGO_PORT, RECEIVER_PORT, RECEIVER_LATENCY,
+# APP_OPTIONS (extra application or -D/-X JVM options)
+set -euo pipefail
+cd "$(dirname "$0")"
+
+RATES=${RATES:-"50 100 200 400"}
+MIX=${MIX:-facial=60,fingerprint=25,document=15}
+DURATION=${DURATION:-60s}
+WARMUP=${WARMUP:-15s}
+PORT=${PORT:-8080}
+PROFILES=${PROFILES:-dev,benchmark}
+MONGO_PORT=${MONGO_PORT:-27018}
+RECEIVER_PORT=${RECEIVER_PORT:-8090}
+RECEIVER_LATENCY=${RECEIVER_LATENCY:-0ms}
+RESULTS=target/release-load-test.csv
+
+(cd .. && mvn -B -q package -DskipTests)
+mvn -B -q package
+APP_JAR=$(ls ../target/biometric-verification-*-exec.jar | head -1)
+rm -f "$RESULTS"
+
+if [ -n "${MONGO_URI:-}" ]; then
+  mongo_uri=$MONGO_URI
+  stand_in_port=0
+else
+  mongo_uri=mongodb://127.0.0.1:$MONGO_PORT/biometric_verification
+  stand_in_port=$MONGO_PORT
+fi
+
+jvm_options=() app_options=()
+for option in ${APP_OPTIONS:-}; do
+  case $option in
+    -D*|-X*) jvm_options+=("$option") ;;
+    *) app_options+=("$option") ;;
+  esac
+done
+
+for rate in $RATES; do
+  java -Xmx2g -cp target/load-test.jar com.quod.biometric.loadtest.OfflineEnvironment \
+      --mongo-port="$stand_in_port" --receiver-port="$RECEIVER_PORT" --receiver-latency="$RECEIVER_LATENCY" \
+      > "target/environment-$rate.log" 2>&1 &
+  environment=$!
+  java "${jvm_options[@]}" -jar "$APP_JAR" --spring.profiles.active="$PROFILES" --server.port="$PORT" \
+      --spring.data.mongodb.uri="$mongo_uri" \
+      --notification.service.url="http://127.0.0.1:$RECEIVER_PORT/fraud-notification" \
+      --notification.service.success-url="http://127.0.0.1:$RECEIVER_PORT/success-notification" \
+      --notification.dispatcher.simulate=false \
+      "${app_options[@]}" > "target/release-$rate.log" 2>&1 &
+  app=$!
+  trap "kill $app $environment 2>/dev/null || true" EXIT
+
+  for _ in $(seq 1 60); do
+    curl -sf "http://localhost:$PORT/actuator/health" > /dev/null && break
+    sleep 1
+  done
+  if ! curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; then
+    echo "The application did not become healthy, see load-test/target/release-$rate.log" >&2
+    exit 1
+  fi
+
+  java -cp target/load-test.jar com.quod.biometric.loadtest.OpenLoopLoadTest --url="http://localhost:$PORT" \
+      --rate="$rate" --mix="$MIX" --duration="$DURATION" --warmup="$WARMUP" --label=release \
+      --csv="$RESULTS" --images=../test_images
+  echo "  notifications received: $(curl -sf "http://127.0.0.1:$RECEIVER_PORT/stats")"
+
+  kill "$app"
+  wait "$app" 2> /dev/null || true
+  kill "$environment"
+  wait "$environment" 2> /dev/null || true
+  trap - EXIT
+done
+
+echo
+column -s, -t "$RESULTS"
@@ -0,0 +1,41 @@
+# Shared by the comparison scripts: starts the application, runs the load at every concurrency level
+# and stops it again. Expects APP_JAR, RESULTS, FLOW, CONCURRENCY_LEVELS, DURATION, WARMUP and PORT.
+
+# run_stack <label> <spring profiles> [application or JVM options...]
+# Options starting with -D or -X go to the JVM, everything else to the application.
+run_stack() {
+  local label=$1 profiles=$2
+  shift 2
+  local jvm_options=() app_options=()
+  for option in "$@"; do
+    case $option in
+      -D*|-X*) jvm_options+=("$option") ;;
+      *) app_options+=("$option") ;;
+    esac
+  done
+
+  # The comparisons hold concurrency fixed and measure how each stack copes with it, so admission
+  # control (429 beyond its limit) and the per-type lanes (which cap running evaluations) are off
+  java "${jvm_options[@]}" -jar "$APP_JAR" --spring.profiles.active="$profiles" --server.port="$PORT" \
+      --admission.enabled=false --verification.lanes.enabled=false "${app_options[@]}" > "target/$label.log" 2>&1 &
+  local app=$!
+  trap "kill $app 2>/dev/null || true" EXIT
+
+  for _ in $(seq 1 60); do
+    curl -sf "http://localhost:$PORT/actuator/health" > /dev/null && break
+    sleep 1
+  done
+  if ! curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; then
+    echo "The $label run did not become healthy, see load-test/target/$label.log" >&2
+    exit 1
+  fi
+
+  for concurrency in $CONCURRENCY_LEVELS; do
+    java -jar target/load-test.jar --url="http://localhost:$PORT" --flow="$FLOW" --concurrency="$concurrency" \
+        --duration="$DURATION" --warmup="$WARMUP" --label="$label" --csv="$RESULTS" --images=../test_images
+  done
+
+  kill "$app"
+  wait "$app" 2> /dev/null || true
+  trap - EXIT
+}
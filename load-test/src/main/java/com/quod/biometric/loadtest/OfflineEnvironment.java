@@ -0,0 +1,106 @@
+package com.quod.biometric.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-ins for the services the application depends on, so a load test runs offline on one machine:
+ * an in-memory MongoDB (mongo-java-server) and an HTTP receiver for the notification endpoints that
+ * accepts every POST, optionally after a fixed delay to mimic the external system, and counts it by path.
+ * GET /stats on the receiver returns the counts. Runs until it is stopped.
+ *
+ * Usage: java -cp load-test.jar com.quod.biometric.loadtest.OfflineEnvironment [--mongo-port=27018]
+ *        [--receiver-port=8090] [--receiver-latency=0ms]
+ * A mongo-port of 0 starts only the receiver, for runs against a real MongoDB.
+ */
+public class OfflineEnvironment {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = UploadLoadTest.parseOptions(args);
+        int mongoPort = Integer.parseInt(options.getOrDefault("mongo-port", "27018"));
+        int receiverPort = Integer.parseInt(options.getOrDefault("receiver-port", "8090"));
+        Duration receiverLatency = UploadLoadTest.parseDuration(options.getOrDefault("receiver-latency", "0ms"));
+
+        MongoServer mongoServer = null;
+        if (mongoPort > 0) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            mongoServer.bind("127.0.0.1", mongoPort);
+            System.out.printf("MongoDB stand-in on mongodb://127.0.0.1:%d%n", mongoPort);
+        }
+        NotificationReceiver receiver = new NotificationReceiver(receiverPort, receiverLatency);
+        System.out.printf("Notification receiver on http://127.0.0.1:%d (latency %d ms)%n", receiverPort, receiverLatency.toMillis());
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        MongoServer started = mongoServer;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Notifications received: " + receiver.stats());
+            receiver.close();
+            if (started != null) {
+                started.shutdownNow();
+            }
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+
+    /**
+     * Accepts the notification POSTs of the application
+     */
+    static final class NotificationReceiver implements AutoCloseable {
+
+        private final HttpServer server;
+        private final Map<String, LongAdder> received = new ConcurrentHashMap<>();
+
+        NotificationReceiver(int port, Duration latency) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+            server.setExecutor(Executors.newFixedThreadPool(32));
+            server.createContext("/stats", exchange -> {
+                byte[] body = stats().toString().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            server.createContext("/", exchange -> {
+                try (InputStream body = exchange.getRequestBody()) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                    if (!latency.isZero()) {
+                        Thread.sleep(latency.toMillis());
+                    }
+                    received.computeIfAbsent(exchange.getRequestURI().getPath(), path -> new LongAdder()).increment();
+                    exchange.sendResponseHeaders(204, -1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    exchange.sendResponseHeaders(503, -1);
+                } finally {
+                    exchange.close();
+                }
+            });
+            server.start();
+        }
+
+        Map<String, Long> stats() {
+            Map<String, Long> stats = new TreeMap<>();
+            received.forEach((path, count) -> stats.put(path, count.sum()));
+            return stats;
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+}
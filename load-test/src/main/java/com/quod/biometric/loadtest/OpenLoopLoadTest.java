@@ -0,0 +1,256 @@
+package com.quod.biometric.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop upload load generator for the verification API.
+ * Uploads are scheduled at a fixed arrival rate, picking the flow of each one from a weighted mix,
+ * and are sent whether or not earlier ones have completed. Latency is measured from the time a request
+ * was scheduled rather than the time it was actually sent, so a stalled service or a late sender shows
+ * up as queueing delay instead of being left out (coordinated omission); the time from the actual send
+ * is kept as service time for comparison. Requests scheduled during the warm-up are not recorded, and
+ * the run waits for every outstanding response before reporting.
+ *
+ * Usage: java -cp load-test.jar com.quod.biometric.loadtest.OpenLoopLoadTest --url=http://localhost:8080
+ *        --rate=100 --mix=facial=60,fingerprint=25,document=15 --duration=60s --warmup=15s
+ *        [--label=release] [--csv=results.csv] [--images=../test_images] [--seed=1]
+ */
+public class OpenLoopLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = UploadLoadTest.parseOptions(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        Map<UploadRequests.Flow, Integer> mix = parseMix(options.getOrDefault("mix", "facial=60,fingerprint=25,document=15"));
+        Duration duration = UploadLoadTest.parseDuration(options.getOrDefault("duration", "60s"));
+        Duration warmup = UploadLoadTest.parseDuration(options.getOrDefault("warmup", "15s"));
+        String label = options.getOrDefault("label", "default");
+        Path images = Path.of(options.getOrDefault("images", "../test_images"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+
+        OpenLoopLoadTest loadTest = new OpenLoopLoadTest(new UploadRequests(url, images), mix, rate, seed);
+        Result result = loadTest.run(warmup, duration);
+        result.print(label);
+        if (options.containsKey("csv")) {
+            result.appendCsv(Path.of(options.get("csv")), label);
+        }
+        System.exit(0);
+    }
+
+    private final UploadRequests requests;
+    private final UploadRequests.Flow[] flows;
+    private final int[] cumulativeWeights;
+    private final double rate;
+    private final Random random;
+    private final HttpClient httpClient;
+
+    OpenLoopLoadTest(UploadRequests requests, Map<UploadRequests.Flow, Integer> mix, double rate, long seed) {
+        this.requests = requests;
+        this.flows = mix.keySet().toArray(UploadRequests.Flow[]::new);
+        this.cumulativeWeights = new int[flows.length];
+        int total = 0;
+        for (int i = 0; i < flows.length; i++) {
+            total += mix.get(flows[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.rate = rate;
+        this.random = new Random(seed);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    Result run(Duration warmup, Duration duration) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + warmup.toNanos();
+        long endNanos = measureFromNanos + duration.toNanos();
+        Result result = new Result(duration, rate);
+        Phaser outstanding = new Phaser(1);
+
+        for (long sequence = 0; ; sequence++) {
+            long scheduledAt = startNanos + sequence * intervalNanos;
+            if (scheduledAt >= endNanos) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduledAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            UploadRequests.Flow flow = nextFlow();
+            boolean measured = scheduledAt >= measureFromNanos;
+            outstanding.register();
+            long sentAt = System.nanoTime();
+            httpClient.sendAsync(requests.next(flow), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long completedAt = System.nanoTime();
+                        if (measured) {
+                            result.record(flow, completedAt - scheduledAt, completedAt - sentAt,
+                                    error == null ? response.statusCode() : 0);
+                        }
+                        outstanding.arriveAndDeregister();
+                    });
+        }
+        outstanding.arriveAndAwaitAdvance();
+        return result;
+    }
+
+    private UploadRequests.Flow nextFlow() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < flows.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return flows[i];
+            }
+        }
+        return flows[flows.length - 1];
+    }
+
+    /**
+     * @param value Comma-separated flow=weight pairs, e.g. facial=60,fingerprint=25,document=15
+     */
+    static Map<UploadRequests.Flow, Integer> parseMix(String value) {
+        Map<UploadRequests.Flow, Integer> mix = new EnumMap<>(UploadRequests.Flow.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight > 0) {
+                mix.put(UploadRequests.Flow.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix must give at least one flow a positive weight: " + value);
+        }
+        return mix;
+    }
+
+    static final class Result {
+
+        private final Duration duration;
+        private final double rate;
+        private final Map<UploadRequests.Flow, FlowResult> flows = new EnumMap<>(UploadRequests.Flow.class);
+        private final FlowResult total = new FlowResult();
+
+        Result(Duration duration, double rate) {
+            this.duration = duration;
+            this.rate = rate;
+            for (UploadRequests.Flow flow : UploadRequests.Flow.values()) {
+                flows.put(flow, new FlowResult());
+            }
+        }
+
+        /**
+         * @param status HTTP status of the response, 0 if none was received
+         */
+        void record(UploadRequests.Flow flow, long latencyNanos, long serviceNanos, int status) {
+            flows.get(flow).record(latencyNanos, serviceNanos, status);
+            total.record(latencyNanos, serviceNanos, status);
+        }
+
+        /**
+         * @return Summary rows for the whole mix ("all") and each flow that was sent
+         */
+        Map<String, Map<String, String>> summaries() {
+            Map<String, Map<String, String>> summaries = new LinkedHashMap<>();
+            summaries.put("all", total.summary(duration));
+            flows.forEach((flow, result) -> {
+                if (result.latencies.getTotalCount() > 0) {
+                    summaries.put(flow.name().toLowerCase(Locale.ROOT), result.summary(duration));
+                }
+            });
+            return summaries;
+        }
+
+        void print(String label) {
+            System.out.printf(Locale.ROOT, "%s rate=%.1f req/s%n", label, rate);
+            summaries().forEach((flow, summary) -> {
+                System.out.printf("  %-11s requests=%s errors=%s (%s%%) shed=%s (%s%%) throughput=%s req/s%n", flow,
+                        summary.get("requests"), summary.get("errors"), summary.get("error_pct"),
+                        summary.get("shed"), summary.get("shed_pct"), summary.get("throughput"));
+                System.out.printf("  %-11s latency p50=%s p99=%s p99.9=%s max=%s ms (service time p99=%s ms)%n", "",
+                        summary.get("p50_ms"), summary.get("p99_ms"), summary.get("p999_ms"), summary.get("max_ms"),
+                        summary.get("service_p99_ms"));
+            });
+        }
+
+        void appendCsv(Path csv, String label) throws IOException {
+            StringBuilder lines = new StringBuilder();
+            Map<String, Map<String, String>> summaries = summaries();
+            if (!Files.exists(csv)) {
+                lines.append("label,rate,flow,").append(String.join(",", summaries.get("all").keySet())).append('\n');
+            }
+            summaries.forEach((flow, summary) -> lines.append(label).append(',').append(format(rate)).append(',')
+                    .append(flow).append(',').append(String.join(",", summary.values())).append('\n'));
+            Files.writeString(csv, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Latency from the scheduled send time, service time from the actual send, errors and requests shed
+     * by admission control (429) of one flow
+     */
+    static final class FlowResult {
+
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Histogram serviceTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong shed = new AtomicLong();
+
+        void record(long latencyNanos, long serviceNanos, int status) {
+            latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+            serviceTimes.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(serviceNanos), HIGHEST_TRACKABLE_MICROS));
+            if (status == 429) {
+                shed.incrementAndGet();
+            } else if (status == 0 || status >= 400) {
+                errors.incrementAndGet();
+            }
+        }
+
+        Map<String, String> summary(Duration duration) {
+            Map<String, String> summary = new LinkedHashMap<>();
+            long requests = latencies.getTotalCount();
+            long failed = errors.get();
+            long rejected = shed.get();
+            summary.put("requests", String.valueOf(requests));
+            summary.put("errors", String.valueOf(failed));
+            summary.put("error_pct", format(requests == 0 ? 0 : 100.0 * failed / requests));
+            summary.put("shed", String.valueOf(rejected));
+            summary.put("shed_pct", format(requests == 0 ? 0 : 100.0 * rejected / requests));
+            summary.put("throughput", format((requests - failed - rejected) / (duration.toMillis() / 1000.0)));
+            summary.put("p50_ms", millis(latencies.getValueAtPercentile(50)));
+            summary.put("p99_ms", millis(latencies.getValueAtPercentile(99)));
+            summary.put("p999_ms", millis(latencies.getValueAtPercentile(99.9)));
+            summary.put("max_ms", millis(latencies.getMaxValue()));
+            summary.put("service_p99_ms", millis(serviceTimes.getValueAtPercentile(99)));
+            return summary;
+        }
+    }
+
+    private static String millis(long micros) {
+        return format(micros / 1000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
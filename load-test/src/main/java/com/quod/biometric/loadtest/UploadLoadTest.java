@@ -0,0 +1,188 @@
+package com.quod.biometric.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop upload load generator for the verification API.
+ * A fixed number of concurrent clients each send one multipart upload, wait for the response and
+ * send the next, until the run ends. Latencies after the warm-up are recorded in an HdrHistogram.
+ * A closed loop waits for every response before sending more, so it under-reports latency once the
+ * service falls behind; {@link OpenLoopLoadTest} sends at a fixed rate instead.
+ *
+ * Usage: java -jar load-test.jar --url=http://localhost:8080 --flow=facial --concurrency=64
+ *        --duration=30s --warmup=10s [--label=servlet] [--csv=results.csv] [--images=../test_images]
+ */
+public class UploadLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        UploadRequests.Flow flow = UploadRequests.Flow.valueOf(options.getOrDefault("flow", "facial").toUpperCase(Locale.ROOT));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        Duration duration = parseDuration(options.getOrDefault("duration", "30s"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "10s"));
+        String label = options.getOrDefault("label", "default");
+        Path images = Path.of(options.getOrDefault("images", "../test_images"));
+
+        UploadLoadTest loadTest = new UploadLoadTest(new UploadRequests(url, images), flow, concurrency);
+        Result result = loadTest.run(warmup, duration);
+        result.print(label, flow, concurrency);
+        if (options.containsKey("csv")) {
+            result.appendCsv(Path.of(options.get("csv")), label, flow, concurrency);
+        }
+        System.exit(0);
+    }
+
+    private final UploadRequests requests;
+    private final UploadRequests.Flow flow;
+    private final int concurrency;
+    private final HttpClient httpClient;
+
+    UploadLoadTest(UploadRequests requests, UploadRequests.Flow flow, int concurrency) {
+        this.requests = requests;
+        this.flow = flow;
+        this.concurrency = concurrency;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    Result run(Duration warmup, Duration duration) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + warmup.toNanos();
+        long endNanos = measureFromNanos + duration.toNanos();
+        Result result = new Result(duration);
+        CountDownLatch finished = new CountDownLatch(concurrency);
+
+        for (int client = 0; client < concurrency; client++) {
+            sendNext(measureFromNanos, endNanos, result, finished);
+        }
+        finished.await();
+        return result;
+    }
+
+    /**
+     * Sends one upload and chains the next one from its completion until the run ends
+     */
+    private void sendNext(long measureFromNanos, long endNanos, Result result, CountDownLatch finished) {
+        long sentAt = System.nanoTime();
+        if (sentAt >= endNanos) {
+            finished.countDown();
+            return;
+        }
+        httpClient.sendAsync(requests.next(flow), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long completedAt = System.nanoTime();
+                    if (sentAt >= measureFromNanos && completedAt <= endNanos) {
+                        boolean ok = error == null && response.statusCode() < 400;
+                        result.record(TimeUnit.NANOSECONDS.toMicros(completedAt - sentAt), ok);
+                    }
+                    sendNext(measureFromNanos, endNanos, result, finished);
+                });
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must look like --name=value: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    static final class Result {
+
+        private final Duration duration;
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        Result(Duration duration) {
+            this.duration = duration;
+        }
+
+        void record(long latencyMicros, boolean ok) {
+            latencies.recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+
+        Map<String, String> summary() {
+            Map<String, String> summary = new LinkedHashMap<>();
+            long requests = latencies.getTotalCount();
+            summary.put("requests", String.valueOf(requests));
+            summary.put("errors", String.valueOf(errors.get()));
+            summary.put("throughput", format(requests / (duration.toMillis() / 1000.0)));
+            summary.put("p50_ms", millis(latencies.getValueAtPercentile(50)));
+            summary.put("p90_ms", millis(latencies.getValueAtPercentile(90)));
+            summary.put("p99_ms", millis(latencies.getValueAtPercentile(99)));
+            summary.put("p999_ms", millis(latencies.getValueAtPercentile(99.9)));
+            summary.put("max_ms", millis(latencies.getMaxValue()));
+            return summary;
+        }
+
+        void print(String label, UploadRequests.Flow flow, int concurrency) {
+            Map<String, String> summary = summary();
+            System.out.printf("%s %s concurrency=%d%n", label, flow.name().toLowerCase(Locale.ROOT), concurrency);
+            System.out.printf("  requests=%s errors=%s throughput=%s req/s%n",
+                    summary.get("requests"), summary.get("errors"), summary.get("throughput"));
+            System.out.printf("  latency p50=%s p90=%s p99=%s p99.9=%s max=%s ms%n",
+                    summary.get("p50_ms"), summary.get("p90_ms"), summary.get("p99_ms"),
+                    summary.get("p999_ms"), summary.get("max_ms"));
+        }
+
+        void appendCsv(Path csv, String label, UploadRequests.Flow flow, int concurrency) throws IOException {
+            Map<String, String> summary = summary();
+            StringBuilder lines = new StringBuilder();
+            if (!Files.exists(csv)) {
+                lines.append("label,flow,concurrency,").append(String.join(",", summary.keySet())).append('\n');
+            }
+            lines.append(label).append(',').append(flow.name().toLowerCase(Locale.ROOT)).append(',').append(concurrency)
+                    .append(',').append(String.join(",", summary.values())).append('\n');
+            Files.writeString(csv, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        private static String millis(long micros) {
+            return format(micros / 1000.0);
+        }
+
+        private static String format(double value) {
+            return String.format(Locale.ROOT, "%.1f", value);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.quod.biometric.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the multipart uploads of the verification endpoints from the sample images.
+ * Every upload gets a unique trailer after the JPEG end marker, so neither the verdict cache nor
+ * identical content hashes short-circuit the pipeline.
+ */
+final class UploadRequests {
+
+    private final String baseUrl;
+    private final byte[] faceImage;
+    private final byte[] fingerprintImage;
+    private final byte[] documentImage;
+    private final AtomicLong sequence = new AtomicLong();
+
+    UploadRequests(String baseUrl, Path images) throws IOException {
+        this.baseUrl = baseUrl;
+        this.faceImage = Files.readAllBytes(images.resolve("face.jpg"));
+        this.fingerprintImage = Files.readAllBytes(images.resolve("fingerprint.jpg"));
+        this.documentImage = Files.readAllBytes(images.resolve("document.jpg"));
+    }
+
+    HttpRequest next(Flow flow) {
+        String boundary = "load-test-" + UUID.randomUUID();
+        long id = sequence.incrementAndGet();
+        Multipart body = new Multipart(boundary);
+        body.field("userId", "load-test-user-" + (id % 10_000));
+        switch (flow) {
+            case FACIAL -> body.file("faceImage", "face.jpg", unique(faceImage, id));
+            case FINGERPRINT -> {
+                body.file("fingerprintImage", "fingerprint.jpg", unique(fingerprintImage, id));
+                body.field("fingerPosition", "RIGHT_INDEX");
+            }
+            case DOCUMENT -> {
+                body.file("documentImage", "document.jpg", unique(documentImage, id));
+                body.file("faceImage", "face.jpg", unique(faceImage, id));
+                body.field("documentType", "ID_CARD");
+            }
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + flow.path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.finish()))
+                .build();
+    }
+
+    /**
+     * Appends a counter after the end of the image, changing its content hash but not its pixels
+     */
+    private static byte[] unique(byte[] image, long id) {
+        byte[] copy = new byte[image.length + Long.BYTES];
+        System.arraycopy(image, 0, copy, 0, image.length);
+        ByteBuffer.wrap(copy, image.length, Long.BYTES).putLong(id);
+        return copy;
+    }
+
+    enum Flow {
+        FACIAL("/api/v1/verification/facial"),
+        FINGERPRINT("/api/v1/verification/fingerprint"),
+        DOCUMENT("/api/v1/verification/document");
+
+        private final String path;
+
+        Flow(String path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Minimal multipart/form-data body writer
+     */
+    private static final class Multipart {
+
+        private final String boundary;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private Multipart(String boundary) {
+            this.boundary = boundary;
+        }
+
+        private void field(String name, String value) {
+            write("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n");
+        }
+
+        private void file(String name, String filename, byte[] content) {
+            write("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename
+                    + "\"\r\nContent-Type: image/jpeg\r\n\r\n");
+            body.writeBytes(content);
+            write("\r\n");
+        }
+
+        private byte[] finish() {
+            write("--" + boundary + "--\r\n");
+            return body.toByteArray();
+        }
+
+        private void write(String text) {
+            body.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,14 +1,57 @@
 package com.quod.biometric.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
+    /**
+     * RestTemplate backed by the JDK HttpClient, which keeps pooled keep-alive connections per host
+     */
+    @Bean
+    @Profile("!reactive")
+    public RestTemplate restTemplate(
+            RestTemplateBuilder restTemplateBuilder,
+            @Value("${notification.dispatcher.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${notification.dispatcher.read-timeout:5s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .build();
+    }
+
+    /**
+     * WebClient on Reactor Netty for notifications sent by the reactive stack, with the same timeouts
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @Profile("reactive")
+    public WebClient notificationWebClient(
+            WebClient.Builder webClientBuilder,
+            @Value("${notification.dispatcher.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${notification.dispatcher.read-timeout:5s}") Duration readTimeout) {
+        reactor.netty.http.client.HttpClient httpClient = reactor.netty.http.client.HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(connectTimeout.toMillis()))
+                .responseTimeout(readTimeout);
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package com.quod.biometric.config;
+
+import com.quod.biometric.repository.VerificationMetadataCodec;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public VerificationMetadataCodec verificationMetadataCodec() {
+        return new VerificationMetadataCodec();
+    }
+
+    /**
+     * Verification metadata goes through its hand-written codec instead of reflective mapping;
+     * picked up by both the blocking and the reactive template
+     */
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(VerificationMetadataCodec verificationMetadataCodec) {
+        return new MongoCustomConversions(List.of(
+                new VerificationMetadataCodec.Writer(verificationMetadataCodec),
+                new VerificationMetadataCodec.Reader(verificationMetadataCodec)));
+    }
+}
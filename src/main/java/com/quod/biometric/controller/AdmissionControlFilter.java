@@ -0,0 +1,86 @@
+package com.quod.biometric.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quod.biometric.service.AdmissionControl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies {@link AdmissionControl} to the verification endpoints. It runs before the multipart body is
+ * parsed, so a rejected upload costs neither a disk spool nor a trip through the pipeline.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return AdmissionControl.endpointType(request.getMethod(), pathWithinApplication(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!admissionControl.tryAdmit(AdmissionControl.endpointType(request.getMethod(), pathWithinApplication(request)))) {
+            reject(response);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            // Server errors and timeouts (503) are drops; client errors say nothing about the load
+            if (failed || response.getStatus() >= 500) {
+                admissionControl.drop();
+            } else if (response.getStatus() >= 400) {
+                admissionControl.ignore();
+            } else {
+                admissionControl.complete(start);
+            }
+        }
+    }
+
+    /**
+     * The request path without server.servlet.context-path
+     */
+    private static String pathWithinApplication(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        return pathInfo != null ? request.getServletPath() + pathInfo : request.getServletPath();
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        Map<String, Object> errors = new HashMap<>();
+        errors.put("timestamp", LocalDateTime.now());
+        errors.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        errors.put("error", "Too Many Requests");
+        errors.put("message", "The server is at its concurrency limit, please retry later");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.retryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errors);
+    }
+}
@@ -1,27 +1,65 @@
 package com.quod.biometric.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quod.biometric.dto.BatchVerificationItem;
+import com.quod.biometric.dto.BatchVerificationItemResult;
 import com.quod.biometric.dto.DocumentAnalysisRequest;
 import com.quod.biometric.dto.FacialBiometryRequest;
 import com.quod.biometric.dto.FingerprintBiometryRequest;
+import com.quod.biometric.dto.VerificationPage;
 import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.exception.InvalidRequestException;
+import com.quod.biometric.exception.ResourceNotFoundException;
+import com.quod.biometric.service.AsyncVerificationService;
+import com.quod.biometric.service.BatchVerificationService;
 import com.quod.biometric.service.BiometricVerificationService;
+import com.quod.biometric.service.FraudExportService;
+import com.quod.biometric.service.ImageStore;
+import com.quod.biometric.service.VerificationHistoryService;
+import com.quod.biometric.service.VerificationStatusPublisher;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/verification")
 @RequiredArgsConstructor
 @Slf4j
+@Profile("!reactive")
 @Tag(name = "QUOD Document Verification API", description = "API endpoints for document and identity verification")
 public class DocumentVerificationController {
 
     private final BiometricVerificationService biometricVerificationService;
+    private final BatchVerificationService batchVerificationService;
+    private final AsyncVerificationService asyncVerificationService;
+    private final VerificationHistoryService verificationHistoryService;
+    private final FraudExportService fraudExportService;
+    private final ImageStore imageStore;
+    private final VerificationStatusPublisher verificationStatusPublisher;
+    private final ObjectMapper objectMapper;
 
     @PostMapping(value = "/facial", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Process facial biometry verification", 
@@ -29,7 +67,10 @@ public class DocumentVerificationController {
     public ResponseEntity<VerificationResponse> processFacialBiometry(
             @ModelAttribute @Valid FacialBiometryRequest request) {
         
-        log.info("Received facial biometry verification request for user ID: {}", request.getUserId());
+        log.debug("Received facial biometry verification request for user ID: {}", request.getUserId());
+        if (asyncVerificationService.isEnabled()) {
+            return accepted(asyncVerificationService.submitFacialBiometry(request));
+        }
         VerificationResponse response = biometricVerificationService.processFacialBiometry(request);
         return ResponseEntity.ok(response);
     }
@@ -40,7 +81,10 @@ public class DocumentVerificationController {
     public ResponseEntity<VerificationResponse> processFingerprintBiometry(
             @ModelAttribute @Valid FingerprintBiometryRequest request) {
         
-        log.info("Received fingerprint biometry verification request for user ID: {}", request.getUserId());
+        log.debug("Received fingerprint biometry verification request for user ID: {}", request.getUserId());
+        if (asyncVerificationService.isEnabled()) {
+            return accepted(asyncVerificationService.submitFingerprintBiometry(request));
+        }
         VerificationResponse response = biometricVerificationService.processFingerprintBiometry(request);
         return ResponseEntity.ok(response);
     }
@@ -51,8 +95,126 @@ public class DocumentVerificationController {
     public ResponseEntity<VerificationResponse> processDocumentAnalysis(
             @ModelAttribute @Valid DocumentAnalysisRequest request) {
         
-        log.info("Received document analysis verification request for user ID: {}", request.getUserId());
+        log.debug("Received document analysis verification request for user ID: {}", request.getUserId());
+        if (asyncVerificationService.isEnabled()) {
+            return accepted(asyncVerificationService.submitDocumentAnalysis(request));
+        }
         VerificationResponse response = biometricVerificationService.processDocumentAnalysis(request);
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Process a batch of verifications",
+               description = "Takes a JSON 'items' part describing verifications of any type plus the image parts they " +
+                       "reference by name, and streams one result line per item as soon as it is final")
+    public ResponseEntity<StreamingResponseBody> processBatch(
+            @RequestPart("items") List<BatchVerificationItem> items,
+            MultipartHttpServletRequest multipartRequest) {
+        
+        batchVerificationService.checkBatchSize(items);
+        log.info("Received batch verification request with {} items", items.size());
+        Map<String, MultipartFile> files = multipartRequest.getFileMap();
+        StreamingResponseBody body = outputStream ->
+                batchVerificationService.process(items, files, result -> writeLine(outputStream, result));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    @GetMapping("/users/{userId}")
+    @Operation(summary = "List a user's verifications",
+               description = "Returns the user's verifications newest first, without metadata. Pass the returned " +
+                       "nextCursor as cursor to get the next page")
+    public ResponseEntity<VerificationPage> getUserHistory(
+            @PathVariable String userId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(verificationHistoryService.getUserHistory(userId, type, limit, cursor));
+    }
+    
+    @GetMapping("/fraud")
+    @Operation(summary = "List verifications with fraud detected",
+               description = "Returns the fraud queue newest first, without metadata. Pass the returned nextCursor " +
+                       "as cursor to get the next page")
+    public ResponseEntity<VerificationPage> getFraudQueue(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(verificationHistoryService.getFraudQueue(limit, cursor));
+    }
+    
+    @GetMapping("/fraud/export")
+    @Operation(summary = "Export fraud cases",
+               description = "Streams every verification with fraud detected as NDJSON, oldest first, optionally " +
+                       "filtered by processing time (from inclusive, to exclusive) and type. With gzip=true the " +
+                       "body is a gzip-compressed .ndjson.gz file")
+    public void exportFraudCases(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        
+        fraudExportService.checkFilter(from, to, type);
+        // Written on the request thread rather than as an async StreamingResponseBody, so a long export is
+        // not cut off by spring.mvc.async.request-timeout
+        if (gzip) {
+            response.setContentType("application/gzip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"fraud-cases.ndjson.gz\"");
+        } else {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"fraud-cases.ndjson\"");
+        }
+        fraudExportService.export(from, to, type, gzip, response.getOutputStream());
+    }
+    
+    @GetMapping("/images/{reference}")
+    @Operation(summary = "Get a submitted image",
+               description = "Streams a stored image by its reference: the imageReference of a verification, or the " +
+                       "contentHash of an image in its metadata. References are content hashes, so responses never change")
+    public void getImage(@PathVariable String reference, WebRequest webRequest, HttpServletResponse response) throws IOException {
+        if (!ImageStore.isReference(reference)) {
+            throw new InvalidRequestException("Invalid image reference: " + reference);
+        }
+        if (webRequest.checkNotModified(reference)) {
+            return;
+        }
+        ImageStore.StoredImage image = imageStore.open(reference)
+                .orElseThrow(() -> new ResourceNotFoundException("Image not found: " + reference));
+        try (InputStream stream = image.stream()) {
+            response.setContentType(image.contentType() != null ? image.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(image.size());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+            stream.transferTo(response.getOutputStream());
+        }
+    }
+    
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a verification",
+               description = "Returns the current state of a verification, including submissions still being processed")
+    public ResponseEntity<VerificationResponse> getVerification(@PathVariable String id) {
+        return ResponseEntity.ok(biometricVerificationService.getVerification(id));
+    }
+    
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream verification state changes",
+               description = "Server-Sent Events stream that sends the current state of a verification and every " +
+                       "change until it is APPROVED, MANUAL_REVIEW or REJECTED")
+    public SseEmitter streamVerificationEvents(@PathVariable String id) {
+        return verificationStatusPublisher.subscribe(id, () -> biometricVerificationService.getVerification(id));
+    }
+    
+    private ResponseEntity<VerificationResponse> accepted(VerificationResponse response) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/verification/" + response.getId()))
+                .body(response);
+    }
+    
+    private void writeLine(OutputStream outputStream, BatchVerificationItemResult result) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(result));
+            outputStream.write('\n');
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.quod.biometric.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quod.biometric.service.AdmissionControl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WebFlux variant of {@link AdmissionControlFilter}, active with the "reactive" profile
+ */
+@Component
+@Profile("reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+public class ReactiveAdmissionControlFilter implements WebFilter {
+
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String type = AdmissionControl.endpointType(exchange.getRequest().getMethod().name(),
+                exchange.getRequest().getPath().pathWithinApplication().value());
+        if (type == null) {
+            return chain.filter(exchange);
+        }
+        if (!admissionControl.tryAdmit(type)) {
+            return reject(exchange.getResponse());
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            if (signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError())) {
+                admissionControl.drop();
+            } else if (signal == SignalType.CANCEL || (status != null && status.is4xxClientError())) {
+                admissionControl.ignore();
+            } else {
+                admissionControl.complete(start);
+            }
+        });
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response) {
+        Map<String, Object> errors = new HashMap<>();
+        errors.put("timestamp", LocalDateTime.now());
+        errors.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        errors.put("error", "Too Many Requests");
+        errors.put("message", "The server is at its concurrency limit, please retry later");
+
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.retryAfterSeconds()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(errors))));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+}
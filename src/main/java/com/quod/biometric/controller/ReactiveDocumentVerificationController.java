@@ -0,0 +1,71 @@
+package com.quod.biometric.controller;
+
+import com.quod.biometric.dto.ReactiveDocumentAnalysisRequest;
+import com.quod.biometric.dto.ReactiveFacialBiometryRequest;
+import com.quod.biometric.dto.ReactiveFingerprintBiometryRequest;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.service.ReactiveBiometricVerificationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of {@link DocumentVerificationController}, active with the "reactive" profile
+ */
+@RestController
+@RequestMapping("/api/v1/verification")
+@RequiredArgsConstructor
+@Slf4j
+@Profile("reactive")
+@Tag(name = "QUOD Document Verification API", description = "API endpoints for document and identity verification")
+public class ReactiveDocumentVerificationController {
+
+    private final ReactiveBiometricVerificationService verificationService;
+
+    @PostMapping(value = "/facial", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Process facial biometry verification", 
+               description = "Validates a facial image and checks for fraud patterns")
+    public Mono<ResponseEntity<VerificationResponse>> processFacialBiometry(
+            @ModelAttribute @Valid ReactiveFacialBiometryRequest request) {
+        
+        log.debug("Received facial biometry verification request for user ID: {}", request.getUserId());
+        return verificationService.processFacialBiometry(request.toRequest(), request.getFaceImage())
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/fingerprint", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Process fingerprint biometry verification", 
+               description = "Validates a fingerprint image and checks for fraud patterns")
+    public Mono<ResponseEntity<VerificationResponse>> processFingerprintBiometry(
+            @ModelAttribute @Valid ReactiveFingerprintBiometryRequest request) {
+        
+        log.debug("Received fingerprint biometry verification request for user ID: {}", request.getUserId());
+        return verificationService.processFingerprintBiometry(request.toRequest(), request.getFingerprintImage())
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/document", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Process document analysis verification", 
+               description = "Validates document and face images, comparing them and checking for fraud patterns")
+    public Mono<ResponseEntity<VerificationResponse>> processDocumentAnalysis(
+            @ModelAttribute @Valid ReactiveDocumentAnalysisRequest request) {
+        
+        log.debug("Received document analysis verification request for user ID: {}", request.getUserId());
+        return verificationService.processDocumentAnalysis(request.toRequest(), request.getDocumentImage(), request.getFaceImage())
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a verification",
+               description = "Returns the current state of a verification")
+    public Mono<ResponseEntity<VerificationResponse>> getVerification(@PathVariable String id) {
+        return verificationService.getVerification(id).map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,31 @@
+package com.quod.biometric.dto;
+
+import com.quod.biometric.model.VerificationResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One item of a batch verification request. Image fields hold the names of the multipart file
+ * parts that carry the images, so several items can share the same request body.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchVerificationItem {
+
+    private String itemId; // optional client reference echoed back in the result
+    private VerificationResult.VerificationType verificationType;
+    private String userId;
+    
+    private String faceImage;
+    private String fingerprintImage;
+    private String documentImage;
+    
+    private String fingerPosition;
+    private String documentType;
+    private String deviceInfo;
+    private String geoLocation;
+}
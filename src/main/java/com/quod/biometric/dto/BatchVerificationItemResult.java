@@ -0,0 +1,22 @@
+package com.quod.biometric.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result line streamed back for one batch item; exactly one of response and error is set
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchVerificationItemResult {
+    private int index;
+    private String itemId;
+    private VerificationResponse response;
+    private String error;
+}
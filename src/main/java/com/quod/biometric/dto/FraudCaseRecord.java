@@ -0,0 +1,30 @@
+package com.quod.biometric.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One line of the fraud case export
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FraudCaseRecord {
+    private String id;
+    private String userId;
+    private VerificationResult.VerificationType verificationType;
+    private LocalDateTime processedAt;
+    private List<String> fraudTypes;
+    private VerificationResult.ValidationStatus status;
+    private VerificationMetadata metadata;
+}
@@ -0,0 +1,25 @@
+package com.quod.biometric.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.quod.biometric.model.VerificationResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NotificationPayload {
+    private String notificationId;
+    private String verificationId;
+    private String userId;
+    private VerificationResult.VerificationType verificationType;
+    private List<String> fraudTypes;
+    private LocalDateTime timestamp;
+}
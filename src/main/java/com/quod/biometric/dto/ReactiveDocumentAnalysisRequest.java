@@ -0,0 +1,37 @@
+package com.quod.biometric.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.http.codec.multipart.FilePart;
+
+/**
+ * Multipart form of {@link DocumentAnalysisRequest} bound by the reactive stack
+ */
+@Data
+public class ReactiveDocumentAnalysisRequest {
+
+    @NotBlank(message = "User ID is required")
+    private String userId;
+    
+    @NotNull(message = "Document image is required")
+    private FilePart documentImage;
+    
+    @NotNull(message = "Face image is required")
+    private FilePart faceImage;
+    
+    @NotBlank(message = "Document type is required")
+    private String documentType;
+    
+    private String deviceInfo;
+    private String geoLocation;
+    
+    public DocumentAnalysisRequest toRequest() {
+        return DocumentAnalysisRequest.builder()
+                .userId(userId)
+                .documentType(documentType)
+                .deviceInfo(deviceInfo)
+                .geoLocation(geoLocation)
+                .build();
+    }
+}
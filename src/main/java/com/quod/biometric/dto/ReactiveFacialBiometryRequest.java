@@ -0,0 +1,30 @@
+package com.quod.biometric.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.http.codec.multipart.FilePart;
+
+/**
+ * Multipart form of {@link FacialBiometryRequest} bound by the reactive stack
+ */
+@Data
+public class ReactiveFacialBiometryRequest {
+
+    @NotBlank(message = "User ID is required")
+    private String userId;
+    
+    @NotNull(message = "Face image is required")
+    private FilePart faceImage;
+    
+    private String deviceInfo;
+    private String geoLocation;
+    
+    public FacialBiometryRequest toRequest() {
+        return FacialBiometryRequest.builder()
+                .userId(userId)
+                .deviceInfo(deviceInfo)
+                .geoLocation(geoLocation)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.quod.biometric.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.http.codec.multipart.FilePart;
+
+/**
+ * Multipart form of {@link FingerprintBiometryRequest} bound by the reactive stack
+ */
+@Data
+public class ReactiveFingerprintBiometryRequest {
+
+    @NotBlank(message = "User ID is required")
+    private String userId;
+    
+    @NotNull(message = "Fingerprint image is required")
+    private FilePart fingerprintImage;
+    
+    @NotBlank(message = "Finger position is required")
+    private String fingerPosition;
+    
+    private String deviceInfo;
+    private String geoLocation;
+    
+    public FingerprintBiometryRequest toRequest() {
+        return FingerprintBiometryRequest.builder()
+                .userId(userId)
+                .fingerPosition(fingerPosition)
+                .deviceInfo(deviceInfo)
+                .geoLocation(geoLocation)
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.quod.biometric.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a verification history, newest first
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerificationPage {
+    private List<VerificationSummary> items;
+    private String nextCursor; // pass as cursor to get the next page; null on the last page
+}
@@ -21,5 +21,6 @@ public class VerificationResponse {
     private boolean fraudDetected;
     private List<String> fraudTypes;
     private VerificationResult.ValidationStatus status;
+    private Double riskScore; // weighted sum of the signal scores, on verdicts that went through fraud detection
     private String message;
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.quod.biometric.dto;
+
+import com.quod.biometric.model.VerificationResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Verification as listed in history pages, without metadata
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerificationSummary {
+    private String id;
+    private String userId;
+    private VerificationResult.VerificationType verificationType;
+    private LocalDateTime processedAt;
+    private boolean fraudDetected;
+    private List<String> fraudTypes;
+    private VerificationResult.ValidationStatus status;
+}
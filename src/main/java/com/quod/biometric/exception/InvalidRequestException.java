@@ -0,0 +1,11 @@
+package com.quod.biometric.exception;
+
+/**
+ * Thrown when a request is well-formed but cannot be accepted, mapped to 400 Bad Request
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
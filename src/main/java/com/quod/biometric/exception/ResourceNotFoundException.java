@@ -0,0 +1,11 @@
+package com.quod.biometric.exception;
+
+/**
+ * Thrown when a requested resource does not exist, mapped to 404 Not Found
+ */
+public class ResourceNotFoundException extends RuntimeException {
+
+    public ResourceNotFoundException(String message) {
+        super(message);
+    }
+}
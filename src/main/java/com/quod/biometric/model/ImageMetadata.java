@@ -0,0 +1,32 @@
+package com.quod.biometric.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fields of one submitted image, taken from its parsed header and EXIF data
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImageMetadata {
+    private String filename;
+    private String contentType;
+    private String declaredContentType; // only when it differs from the detected content type
+    private Long size;
+    private String contentHash; // SHA-256, hex
+    private Integer width;
+    private Integer height;
+    private LocalDateTime captureDate;
+    private String deviceManufacturer;
+    private String deviceModel;
+    private Double gpsLatitude;
+    private Double gpsLongitude;
+}
@@ -0,0 +1,53 @@
+package com.quod.biometric.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Pending notification embedded in a {@link VerificationResult}.
+ * It is written in the same insert as the result and removed by the outbox relay once delivered,
+ * so only undelivered notifications are present in the partial notification_outbox index.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutbox {
+
+    private NotificationType type;
+    private String notificationId; // sent on every attempt, so the receiver can drop redeliveries
+
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime leaseUntil;
+    private String claimToken; // identifies the current claim; outcomes of older claims are ignored
+    private LocalDateTime nextAttemptAt; // set after a failed delivery; unset means due now
+    private String lastError;
+
+    public static NotificationOutbox pending(NotificationType type) {
+        return NotificationOutbox.builder()
+                .type(type)
+                .notificationId(UUID.randomUUID().toString())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    public enum NotificationType {
+        FRAUD,
+        SUCCESS
+    }
+
+    public enum OutboxStatus {
+        PENDING,
+        DISPATCHING,
+        FAILED
+    }
+}
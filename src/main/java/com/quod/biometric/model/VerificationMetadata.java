@@ -0,0 +1,40 @@
+package com.quod.biometric.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metadata stored with a verification result.
+ * Persisted by {@link com.quod.biometric.repository.VerificationMetadataCodec} with short field
+ * names and coded values; documents written before the typed model are still readable.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class VerificationMetadata {
+    private ImageMetadata image; // facial and fingerprint verifications
+    private ImageMetadata documentImage;
+    private ImageMetadata faceImage;
+    private String fingerPosition;
+    private String documentType;
+    private String deviceInfo;
+    private String geoLocation;
+    private Map<String, Long> fraudCheckTimingsMicros;
+    private List<String> timedOutFraudChecks;
+    private String nearDuplicateOf;
+    private Map<String, Long> velocity;
+    private Map<String, Double> riskScores; // score of each risk signal that ran
+    private String riskRulesVersion;
+    private Map<String, Long> stageTimingsMicros; // time taken by each stage of the verification flow
+    private String statusMessage; // set on verdicts that did not go through fraud detection
+    private String replayOf;
+    private Map<String, Object> legacy; // fields of old documents that have no typed counterpart
+}
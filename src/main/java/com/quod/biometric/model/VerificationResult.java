@@ -5,17 +5,27 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "verification_results")
+@CompoundIndexes({
+        // A user's history, newest first; _id breaks ties between equal timestamps for keyset pagination
+        @CompoundIndex(name = "user_history", def = "{'userId': 1, 'verificationType': 1, 'processedAt': -1, '_id': -1}"),
+        // The fraud queue; only the small fraction of results with fraud detected is indexed
+        @CompoundIndex(name = "fraud_queue", def = "{'processedAt': -1, '_id': -1}", partialFilter = "{'fraudDetected': true}"),
+        // The outbox relay's claim: entries by status and due time, oldest first; only undelivered ones are indexed
+        @CompoundIndex(name = "notification_outbox", def = "{'outbox.status': 1, 'outbox.nextAttemptAt': 1, 'outbox.createdAt': 1}",
+                partialFilter = "{'outbox.status': {'$exists': true}}")
+})
 public class VerificationResult {
 
     @Id
@@ -24,12 +34,16 @@ public class VerificationResult {
     private String userId;
     private VerificationType verificationType;
     private LocalDateTime createdAt;
-    private boolean fraudDetected;
+    private boolean fraudDetected; // rejected or sent to manual review
     private List<String> fraudTypes;
+    private Double riskScore;
     private ValidationStatus status;
-    private Map<String, Object> metadata;
+    private VerificationMetadata metadata;
     private String notificationId;
-    private String imageReference;
+    private NotificationOutbox outbox;
+    private String imageReference; // content hash of the submitted image in the ImageStore
+    private Long facePerceptualHash;
+    private LocalDateTime leaseUntil; // unfinished tickets only: renewed by the instance processing them
     
     @Builder.Default
     private LocalDateTime processedAt = LocalDateTime.now();
@@ -44,6 +58,7 @@ public class VerificationResult {
         PENDING,
         PROCESSING,
         APPROVED,
-        REJECTED
+        REJECTED,
+        MANUAL_REVIEW
     }
 } 
\ No newline at end of file
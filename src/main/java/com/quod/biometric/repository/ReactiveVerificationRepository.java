@@ -0,0 +1,12 @@
+package com.quod.biometric.repository;
+
+import com.quod.biometric.model.VerificationResult;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Non-blocking access to verification_results for the reactive stack
+ */
+@Repository
+public interface ReactiveVerificationRepository extends ReactiveMongoRepository<VerificationResult, String> {
+}
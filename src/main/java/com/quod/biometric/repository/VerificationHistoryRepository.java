@@ -0,0 +1,43 @@
+package com.quod.biometric.repository;
+
+import com.quod.biometric.model.VerificationResult;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keyset-paginated history queries, newest first.
+ * Results only carry the summary fields (no metadata, outbox or image fields). A page continues
+ * after the (processedAt, id) of the last result of the previous page, so every page is an index
+ * range scan regardless of how deep into the history it is.
+ */
+public interface VerificationHistoryRepository {
+
+    /**
+     * @param userId The user
+     * @param verificationTypes Types to include
+     * @param after Key of the last result of the previous page, or null for the first page
+     * @param limit Maximum number of results
+     * @return The user's verifications of the given types, newest first
+     */
+    List<VerificationResult> findHistoryPage(String userId, Collection<VerificationResult.VerificationType> verificationTypes,
+                                             PageKey after, int limit);
+
+    /**
+     * @param after Key of the last result of the previous page, or null for the first page
+     * @param limit Maximum number of results
+     * @return Verifications with fraud detected, newest first
+     */
+    List<VerificationResult> findFraudPage(PageKey after, int limit);
+
+    /**
+     * Position of a result in the newest-first order
+     */
+    record PageKey(LocalDateTime processedAt, String id) {
+
+        public static PageKey of(VerificationResult result) {
+            return new PageKey(result.getProcessedAt(), result.getId());
+        }
+    }
+}
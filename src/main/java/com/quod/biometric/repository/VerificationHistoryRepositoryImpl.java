@@ -0,0 +1,49 @@
+package com.quod.biometric.repository;
+
+import com.quod.biometric.model.VerificationResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+class VerificationHistoryRepositoryImpl implements VerificationHistoryRepository {
+
+    private static final String[] SUMMARY_FIELDS = {
+            "userId", "verificationType", "processedAt", "fraudDetected", "fraudTypes", "status"};
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<VerificationResult> findHistoryPage(String userId, Collection<VerificationResult.VerificationType> verificationTypes,
+                                                    PageKey after, int limit) {
+        // An $in on the type, even over every type, lets the server merge the per-type ranges of the
+        // user_history index in processedAt order instead of sorting the user's results in memory
+        return findPage(where("userId").is(userId).and("verificationType").in(verificationTypes), after, limit);
+    }
+
+    @Override
+    public List<VerificationResult> findFraudPage(PageKey after, int limit) {
+        // Must match the partial filter of the fraud_queue index for the server to use it
+        return findPage(where("fraudDetected").is(true), after, limit);
+    }
+
+    private List<VerificationResult> findPage(Criteria criteria, PageKey after, int limit) {
+        if (after != null) {
+            // processedAt <= key bounds the index scan; the $or only drops the already returned ties
+            criteria = criteria.and("processedAt").lte(after.processedAt())
+                    .orOperator(where("processedAt").lt(after.processedAt()), where("id").lt(after.id()));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "processedAt", "id"))
+                .limit(limit);
+        query.fields().include(SUMMARY_FIELDS);
+        return mongoTemplate.find(query, VerificationResult.class);
+    }
+}
@@ -0,0 +1,417 @@
+package com.quod.biometric.repository;
+
+import com.quod.biometric.model.ImageMetadata;
+import com.quod.biometric.model.VerificationMetadata;
+import org.bson.BsonBinary;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Binary;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hand-written BSON codec for {@link VerificationMetadata}.
+ * Fields are written with short names; content types, finger positions, document types, fraud check
+ * and risk signal names, velocity rule names and flow stage names as small integers (map keys as their
+ * decimal string); and the SHA-256 content hash as 32 bytes of binary instead of 64 hex characters.
+ * Values outside the code tables are written as strings, so the request fields can stay free-form.
+ *
+ * Reading accepts both this layout and the one written before the typed model (a free-form map with
+ * long names, image fields either at the top level or under documentMetadata/faceMetadata, GPS
+ * coordinates as strings like "40.7128° N"); top-level fields without a typed counterpart, or whose value
+ * cannot be read as one, are kept in {@link VerificationMetadata#getLegacy()}. The two layouts
+ * share no field names, so a legacy document later touched by a partial update still reads correctly.
+ */
+public class VerificationMetadataCodec implements Codec<VerificationMetadata> {
+
+    /** Layout version; documents without it were written before the typed model */
+    public static final String VERSION = "v";
+    public static final String STATUS_MESSAGE = "sm";
+
+    private static final int CURRENT_VERSION = 1;
+    private static final Pattern LEGACY_COORDINATE = Pattern.compile("\\s*([-+]?\\d+(?:\\.\\d+)?)\\s*°?\\s*([NSEW])?\\s*");
+
+    // Code tables: append only, the position of a value is what gets stored
+    private static final List<String> CONTENT_TYPES = List.of("image/jpeg", "image/png");
+    private static final List<String> FINGER_POSITIONS = List.of(
+            "RIGHT_THUMB", "RIGHT_INDEX", "RIGHT_MIDDLE", "RIGHT_RING", "RIGHT_LITTLE",
+            "LEFT_THUMB", "LEFT_INDEX", "LEFT_MIDDLE", "LEFT_RING", "LEFT_LITTLE");
+    private static final List<String> DOCUMENT_TYPES = List.of("ID_CARD", "PASSPORT", "DRIVER_LICENSE");
+    private static final List<String> FRAUD_CHECKS = List.of(
+            "DEEPFAKE", "MASK", "PHOTO_OF_PHOTO", "NEAR_DUPLICATE_FACE", "SYNTHETIC_FINGERPRINT",
+            "FINGERPRINT_REPLICA", "DOCTORED_DOCUMENT", "FAKE_DOCUMENT", "FACE_DOCUMENT_MISMATCH",
+            "VELOCITY_USER_ATTEMPTS", "VELOCITY_DEVICE_USERS", "VELOCITY_GEO_ATTEMPTS", "CROSS_ACCOUNT_IMAGE_REUSE");
+    private static final List<String> VELOCITY_RULES = List.of("userAttempts", "deviceUsers", "geoAttempts");
+    private static final List<String> FLOW_STAGES = List.of(
+            "replay", "validate_face", "validate_fingerprint", "validate_document", "detect", "enrich");
+
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ZoneId ZONE = ZoneId.systemDefault(); // same zone Spring Data uses for LocalDateTime
+
+    @Override
+    public void encode(BsonWriter writer, VerificationMetadata metadata, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeInt32(VERSION, CURRENT_VERSION);
+        writeImage(writer, "img", metadata.getImage());
+        writeImage(writer, "doc", metadata.getDocumentImage());
+        writeImage(writer, "face", metadata.getFaceImage());
+        writeCoded(writer, "fp", metadata.getFingerPosition(), FINGER_POSITIONS);
+        writeCoded(writer, "dt", metadata.getDocumentType(), DOCUMENT_TYPES);
+        writeString(writer, "dev", metadata.getDeviceInfo());
+        writeString(writer, "geo", metadata.getGeoLocation());
+        writeLongs(writer, "t", metadata.getFraudCheckTimingsMicros(), FRAUD_CHECKS);
+        if (metadata.getTimedOutFraudChecks() != null && !metadata.getTimedOutFraudChecks().isEmpty()) {
+            writer.writeStartArray("to");
+            for (String check : metadata.getTimedOutFraudChecks()) {
+                int code = FRAUD_CHECKS.indexOf(check);
+                if (code >= 0) {
+                    writer.writeInt32(code);
+                } else {
+                    writer.writeString(check);
+                }
+            }
+            writer.writeEndArray();
+        }
+        writeString(writer, "nd", metadata.getNearDuplicateOf());
+        writeLongs(writer, "vel", metadata.getVelocity(), VELOCITY_RULES);
+        writeDoubles(writer, "rs", metadata.getRiskScores(), FRAUD_CHECKS);
+        writeString(writer, "rv", metadata.getRiskRulesVersion());
+        writeLongs(writer, "st", metadata.getStageTimingsMicros(), FLOW_STAGES);
+        writeString(writer, STATUS_MESSAGE, metadata.getStatusMessage());
+        writeString(writer, "rp", metadata.getReplayOf());
+        if (metadata.getLegacy() != null && !metadata.getLegacy().isEmpty()) {
+            writer.writeName("x");
+            encoderContext.encodeWithChildContext(DOCUMENT_CODEC, writer, new Document(metadata.getLegacy()));
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public VerificationMetadata decode(BsonReader reader, DecoderContext decoderContext) {
+        return fromDocument(DOCUMENT_CODEC.decode(reader, decoderContext));
+    }
+
+    @Override
+    public Class<VerificationMetadata> getEncoderClass() {
+        return VerificationMetadata.class;
+    }
+
+    /**
+     * Encodes the metadata into BSON bytes that the driver copies as they are
+     */
+    public RawBsonDocument toBson(VerificationMetadata metadata) {
+        return new RawBsonDocument(metadata, this);
+    }
+
+    /**
+     * Reads metadata in either layout
+     */
+    public VerificationMetadata fromDocument(Document document) {
+        VerificationMetadata metadata = new VerificationMetadata();
+        ImageMetadata flatImage = new ImageMetadata(); // legacy facial and fingerprint layout
+        boolean hasFlatImage = false;
+        Map<String, Object> legacy = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : document.entrySet()) {
+            Object value = field.getValue();
+            if (value == null) {
+                continue;
+            }
+            switch (field.getKey()) {
+                case VERSION -> { }
+                case "img" -> metadata.setImage(readImage((Document) value));
+                case "doc", "documentMetadata" -> metadata.setDocumentImage(readImage((Document) value));
+                case "face", "faceMetadata" -> metadata.setFaceImage(readImage((Document) value));
+                case "fp" -> metadata.setFingerPosition(decodeCoded(value, FINGER_POSITIONS));
+                case "fingerPosition" -> metadata.setFingerPosition(value.toString());
+                case "dt" -> metadata.setDocumentType(decodeCoded(value, DOCUMENT_TYPES));
+                case "documentType" -> metadata.setDocumentType(value.toString());
+                case "dev", "deviceInfo" -> metadata.setDeviceInfo(value.toString());
+                case "geo", "geoLocation" -> metadata.setGeoLocation(value.toString());
+                case "t", "fraudCheckTimingsMicros" -> metadata.setFraudCheckTimingsMicros(readLongs((Document) value, FRAUD_CHECKS));
+                case "to", "timedOutFraudChecks" -> metadata.setTimedOutFraudChecks(readCodedList((List<?>) value, FRAUD_CHECKS));
+                case "nd", "nearDuplicateOf" -> metadata.setNearDuplicateOf(value.toString());
+                case "vel", "velocity" -> metadata.setVelocity(readLongs((Document) value, VELOCITY_RULES));
+                case "rs", "riskScores" -> metadata.setRiskScores(readDoubles((Document) value, FRAUD_CHECKS));
+                case "rv", "riskRulesVersion" -> metadata.setRiskRulesVersion(value.toString());
+                case "st", "stageTimingsMicros" -> metadata.setStageTimingsMicros(readLongs((Document) value, FLOW_STAGES));
+                case STATUS_MESSAGE, "statusMessage" -> metadata.setStatusMessage(value.toString());
+                case "rp", "replayOf" -> metadata.setReplayOf(value.toString());
+                case "x" -> legacy.putAll((Document) value);
+                default -> {
+                    if (readImageField(flatImage, field.getKey(), value)) {
+                        hasFlatImage = true;
+                    } else {
+                        legacy.put(field.getKey(), value);
+                    }
+                }
+            }
+        }
+        if (hasFlatImage) {
+            metadata.setImage(flatImage);
+        }
+        if (!legacy.isEmpty()) {
+            metadata.setLegacy(legacy);
+        }
+        return metadata;
+    }
+
+    private static void writeImage(BsonWriter writer, String name, ImageMetadata image) {
+        if (image == null) {
+            return;
+        }
+        writer.writeStartDocument(name);
+        writeString(writer, "fn", image.getFilename());
+        writeCoded(writer, "ct", image.getContentType(), CONTENT_TYPES);
+        writeString(writer, "dct", image.getDeclaredContentType());
+        if (image.getSize() != null) {
+            writer.writeInt64("sz", image.getSize());
+        }
+        if (image.getContentHash() != null) {
+            byte[] hash = parseHex(image.getContentHash());
+            if (hash != null) {
+                writer.writeBinaryData("h", new BsonBinary(hash));
+            } else {
+                writer.writeString("h", image.getContentHash());
+            }
+        }
+        if (image.getWidth() != null) {
+            writer.writeInt32("w", image.getWidth());
+        }
+        if (image.getHeight() != null) {
+            writer.writeInt32("ht", image.getHeight());
+        }
+        if (image.getCaptureDate() != null) {
+            writer.writeDateTime("cd", image.getCaptureDate().atZone(ZONE).toInstant().toEpochMilli());
+        }
+        writeString(writer, "mk", image.getDeviceManufacturer());
+        writeString(writer, "md", image.getDeviceModel());
+        if (image.getGpsLatitude() != null) {
+            writer.writeDouble("lat", image.getGpsLatitude());
+        }
+        if (image.getGpsLongitude() != null) {
+            writer.writeDouble("lon", image.getGpsLongitude());
+        }
+        writer.writeEndDocument();
+    }
+
+    private static ImageMetadata readImage(Document document) {
+        ImageMetadata image = new ImageMetadata();
+        document.forEach((name, value) -> {
+            if (value != null) {
+                readImageField(image, name, value);
+            }
+        });
+        return image;
+    }
+
+    /**
+     * Sets one image field from either layout
+     * @return false if the name is not an image field
+     */
+    private static boolean readImageField(ImageMetadata image, String name, Object value) {
+        switch (name) {
+            case "fn", "filename" -> image.setFilename(value.toString());
+            case "ct" -> image.setContentType(decodeCoded(value, CONTENT_TYPES));
+            case "contentType" -> image.setContentType(value.toString());
+            case "dct", "declaredContentType" -> image.setDeclaredContentType(value.toString());
+            case "sz", "size" -> image.setSize(((Number) value).longValue());
+            case "h", "contentHash" -> image.setContentHash(value instanceof Binary binary
+                    ? HEX.formatHex(binary.getData()) : value.toString());
+            case "w", "width" -> image.setWidth(((Number) value).intValue());
+            case "ht", "height" -> image.setHeight(((Number) value).intValue());
+            case "cd", "captureDate" -> image.setCaptureDate(value instanceof Date date
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZONE) : null);
+            case "mk", "deviceManufacturer" -> image.setDeviceManufacturer(value.toString());
+            case "md", "deviceModel" -> image.setDeviceModel(value.toString());
+            case "lat", "gpsLatitude" -> {
+                Double latitude = readCoordinate(value);
+                if (latitude == null) {
+                    return false;
+                }
+                image.setGpsLatitude(latitude);
+            }
+            case "lon", "gpsLongitude" -> {
+                Double longitude = readCoordinate(value);
+                if (longitude == null) {
+                    return false;
+                }
+                image.setGpsLongitude(longitude);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a coordinate stored as a number, or as the legacy string form ("40.7128° N", "74.0060° W")
+     * @return null if the value is neither
+     */
+    private static Double readCoordinate(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        Matcher matcher = LEGACY_COORDINATE.matcher(value.toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        double coordinate = Double.parseDouble(matcher.group(1));
+        return "S".equals(matcher.group(2)) || "W".equals(matcher.group(2)) ? -coordinate : coordinate;
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    private static void writeCoded(BsonWriter writer, String name, String value, List<String> codes) {
+        if (value == null) {
+            return;
+        }
+        int code = codes.indexOf(value);
+        if (code >= 0) {
+            writer.writeInt32(name, code);
+        } else {
+            writer.writeString(name, value);
+        }
+    }
+
+    private static String decodeCoded(Object value, List<String> codes) {
+        if (value instanceof Integer code && code >= 0 && code < codes.size()) {
+            return codes.get(code);
+        }
+        return value.toString();
+    }
+
+    private static void writeLongs(BsonWriter writer, String name, Map<String, Long> values, List<String> keyCodes) {
+        if (values == null) {
+            return;
+        }
+        writer.writeStartDocument(name);
+        values.forEach((key, value) -> {
+            if (value != null) {
+                int code = keyCodes.indexOf(key);
+                writer.writeInt64(code >= 0 ? Integer.toString(code) : key, value);
+            }
+        });
+        writer.writeEndDocument();
+    }
+
+    private static Map<String, Long> readLongs(Document document, List<String> keyCodes) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        document.forEach((key, value) -> {
+            if (value instanceof Number number) {
+                values.put(decodeKey(key, keyCodes), number.longValue());
+            }
+        });
+        return values;
+    }
+
+    private static void writeDoubles(BsonWriter writer, String name, Map<String, Double> values, List<String> keyCodes) {
+        if (values == null) {
+            return;
+        }
+        writer.writeStartDocument(name);
+        values.forEach((key, value) -> {
+            if (value != null) {
+                int code = keyCodes.indexOf(key);
+                writer.writeDouble(code >= 0 ? Integer.toString(code) : key, value);
+            }
+        });
+        writer.writeEndDocument();
+    }
+
+    private static Map<String, Double> readDoubles(Document document, List<String> keyCodes) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        document.forEach((key, value) -> {
+            if (value instanceof Number number) {
+                values.put(decodeKey(key, keyCodes), number.doubleValue());
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Coded map keys are decimal strings; names in the tables never start with a digit
+     */
+    private static String decodeKey(String key, List<String> keyCodes) {
+        if (!key.isEmpty() && key.length() <= 3 && Character.isDigit(key.charAt(0))) {
+            int code = Integer.parseInt(key);
+            if (code < keyCodes.size()) {
+                return keyCodes.get(code);
+            }
+        }
+        return key;
+    }
+
+    private static List<String> readCodedList(List<?> values, List<String> codes) {
+        List<String> strings = new ArrayList<>(values.size());
+        values.forEach(value -> strings.add(decodeCoded(value, codes)));
+        return strings;
+    }
+
+    private static byte[] parseHex(String value) {
+        if (value.length() != 64) {
+            return null;
+        }
+        try {
+            byte[] bytes = HEX.parseHex(value);
+            // Only lowercase hex reads back to the same string
+            return HEX.formatHex(bytes).equals(value) ? bytes : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @WritingConverter
+    public static class Writer implements Converter<VerificationMetadata, RawBsonDocument> {
+
+        private final VerificationMetadataCodec codec;
+
+        public Writer(VerificationMetadataCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public RawBsonDocument convert(VerificationMetadata metadata) {
+            return codec.toBson(metadata);
+        }
+    }
+
+    @ReadingConverter
+    public static class Reader implements Converter<Document, VerificationMetadata> {
+
+        private final VerificationMetadataCodec codec;
+
+        public Reader(VerificationMetadataCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public VerificationMetadata convert(Document document) {
+            return codec.fromDocument(document);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.quod.biometric.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that follows the latency of the work it admits, in the style of the gradient
+ * (Vegas-like) limiters: a short-term latency average is compared with a long-term one, and while
+ * latency stays within {@code tolerance} of the long-term level the limit grows by its square root per
+ * sample; once queueing makes latency rise the limit shrinks in proportion (by at most half per sample).
+ * The limit only grows while at least half of it is in use, so an idle service does not drift upwards.
+ * When latency settles at a new level (e.g. after a deployment), the long-term average is pulled towards
+ * it instead of keeping the limit at its minimum forever. Work that fails or times out under load is a
+ * drop, which cuts the limit right away by {@value #DROP_BACKOFF}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int SHORT_WINDOW = 10;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int longWindow;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile int limit;
+    // Guarded by lock
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long samples;
+
+    /**
+     * @param initialLimit Limit until latency samples arrive
+     * @param minLimit Lowest limit
+     * @param maxLimit Highest limit
+     * @param tolerance Ratio of short-term to long-term latency accepted before the limit is reduced
+     * @param smoothing Weight of each new limit estimate (0-1)
+     * @param longWindow Number of samples in the long-term latency average
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double tolerance, double smoothing, int longWindow) {
+        if (minLimit < 1 || maxLimit < minLimit || tolerance < 1 || smoothing <= 0 || smoothing > 1 || longWindow < 1) {
+            throw new IllegalArgumentException("Invalid concurrency limiter settings");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longWindow = longWindow;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Admits one unit of work if fewer than the limit are in flight
+     * @return Whether it was admitted; if so, it must end with {@link #release(long)}, {@link #drop()} or {@link #ignore()}
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Ends admitted work that completed normally and feeds its latency to the limit
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        update(rttNanos, inFlightBefore);
+    }
+
+    /**
+     * Ends admitted work that failed or timed out, a sign of overload, and lowers the limit
+     */
+    public void drop() {
+        inFlight.decrementAndGet();
+        lock.lock();
+        try {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * DROP_BACKOFF);
+            limit = (int) estimatedLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends admitted work whose latency says nothing about the load (e.g. rejected as invalid or cancelled)
+     */
+    public void ignore() {
+        inFlight.decrementAndGet();
+    }
+
+    private void update(long rttNanos, int inFlightBefore) {
+        lock.lock();
+        try {
+            samples++;
+            if (samples == 1) {
+                shortRttNanos = rttNanos;
+                longRttNanos = rttNanos;
+            } else {
+                shortRttNanos += (rttNanos - shortRttNanos) * 2 / (SHORT_WINDOW + 1);
+                // A plain mean until the window is full, so the first samples do not dominate
+                longRttNanos += (rttNanos - longRttNanos) / Math.min(samples, longWindow);
+            }
+            if (longRttNanos / shortRttNanos > 2) {
+                // Latency dropped and stayed down: let the long-term average catch up
+                longRttNanos *= 0.95;
+            }
+            if (inFlightBefore < estimatedLimit / 2) {
+                return;
+            }
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+            double queueSize = Math.sqrt(estimatedLimit);
+            double newLimit = estimatedLimit * gradient + queueSize;
+            newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            limit = (int) estimatedLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getShortRttNanos() {
+        lock.lock();
+        try {
+            return shortRttNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLongRttNanos() {
+        lock.lock();
+        try {
+            return longRttNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admission control in front of the verification endpoints. Requests beyond an adaptive concurrency
+ * limit (see {@link AdaptiveConcurrencyLimiter}) are turned away immediately with 429 instead of
+ * waiting for a request thread, Mongo or the detectors, so latency stays bounded under overload.
+ * The limit follows the latency of successful requests, measured from the time they were admitted,
+ * and is cut when requests fail on the server side (5xx, including timeouts).
+ *
+ * Meters: verification.admission.limit and verification.admission.in_flight,
+ * verification.admission.rtt{window=short|long} (seconds) and verification.admission.rejected{type}.
+ */
+@Component
+public class AdmissionControl {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration minRetryAfter;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+
+    public AdmissionControl(
+            MeterRegistry meterRegistry,
+            @Value("${admission.enabled:true}") boolean enabled,
+            @Value("${admission.initial-limit:50}") int initialLimit,
+            @Value("${admission.min-limit:8}") int minLimit,
+            @Value("${admission.max-limit:500}") int maxLimit,
+            @Value("${admission.tolerance:1.5}") double tolerance,
+            @Value("${admission.smoothing:0.2}") double smoothing,
+            @Value("${admission.long-window:600}") int longWindow,
+            @Value("${admission.retry-after:1s}") Duration minRetryAfter) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.minRetryAfter = minRetryAfter;
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance, smoothing, longWindow);
+        if (enabled) {
+            Gauge.builder("verification.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .register(meterRegistry);
+            Gauge.builder("verification.admission.in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .register(meterRegistry);
+            Gauge.builder("verification.admission.rtt", limiter, l -> l.getShortRttNanos() / 1e9)
+                    .tag("window", "short")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            Gauge.builder("verification.admission.rtt", limiter, l -> l.getLongRttNanos() / 1e9)
+                    .tag("window", "long")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Admits a verification request
+     * @param type Verification endpoint, used to tag rejections (facial, fingerprint or document)
+     * @return Whether the request may proceed; if so it must end with {@link #complete}, {@link #drop} or {@link #ignore}
+     */
+    public boolean tryAdmit(String type) {
+        if (!enabled) {
+            return true;
+        }
+        if (limiter.tryAcquire()) {
+            return true;
+        }
+        rejected.computeIfAbsent(type, name -> Counter.builder("verification.admission.rejected")
+                .tag("type", name)
+                .register(meterRegistry))
+                .increment();
+        return false;
+    }
+
+    /**
+     * Ends an admitted request that succeeded
+     * @param startNanos System.nanoTime() when it was admitted
+     */
+    public void complete(long startNanos) {
+        if (enabled) {
+            limiter.release(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Ends an admitted request that failed on the server side or timed out
+     */
+    public void drop() {
+        if (enabled) {
+            limiter.drop();
+        }
+    }
+
+    /**
+     * Ends an admitted request whose latency is not representative (client error, cancellation)
+     */
+    public void ignore() {
+        if (enabled) {
+            limiter.ignore();
+        }
+    }
+
+    /**
+     * @return Seconds a rejected client should wait: the current short-term latency, at least admission.retry-after
+     */
+    public long retryAfterSeconds() {
+        double latencySeconds = limiter.getShortRttNanos() / 1e9;
+        return Math.max(Math.max(1, minRetryAfter.toSeconds()), (long) Math.ceil(latencySeconds));
+    }
+
+    /**
+     * @return The verification endpoint (facial, fingerprint or document) of a POST path, or null for any other path
+     */
+    public static String endpointType(String method, String path) {
+        if (!"POST".equals(method) || !path.startsWith("/api/v1/verification/")) {
+            return null;
+        }
+        String type = path.substring("/api/v1/verification/".length());
+        return switch (type) {
+            case "facial", "fingerprint", "document" -> type;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,310 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.DocumentAnalysisRequest;
+import com.quod.biometric.dto.FacialBiometryRequest;
+import com.quod.biometric.dto.FingerprintBiometryRequest;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.NotificationOutbox;
+import com.quod.biometric.model.VerificationResult;
+import com.quod.biometric.repository.VerificationMetadataCodec;
+import com.quod.biometric.repository.VerificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Ticketed verification mode. A submission is ingested and stored as PENDING on the request thread;
+ * a worker pool then moves it through PROCESSING to APPROVED, MANUAL_REVIEW or REJECTED and publishes each change.
+ * The number of accepted but unfinished submissions is bounded, since each holds its image buffers.
+ *
+ * An unfinished ticket carries a lease that the instance holding it renews on a heartbeat; tickets
+ * whose lease ran out, because their instance stopped, are rejected by any instance. The verdict is
+ * only written while the ticket is still PROCESSING, so it never overwrites such a rejection.
+ */
+@Service
+@Slf4j
+public class AsyncVerificationService {
+
+    private final BiometricVerificationService biometricVerificationService;
+    private final ImageIngestService imageIngestService;
+    private final VerificationRepository verificationRepository;
+    private final MongoTemplate mongoTemplate;
+    private final VerificationStatusPublisher statusPublisher;
+    private final VerificationMetrics verificationMetrics;
+    private final boolean enabled;
+    private final Duration staleAfter;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final Set<String> held = ConcurrentHashMap.newKeySet(); // IDs of the unfinished tickets of this instance
+
+    public AsyncVerificationService(
+            BiometricVerificationService biometricVerificationService,
+            ImageIngestService imageIngestService,
+            VerificationRepository verificationRepository,
+            MongoTemplate mongoTemplate,
+            VerificationStatusPublisher statusPublisher,
+            VerificationMetrics verificationMetrics,
+            PipelineThreads pipelineThreads,
+            @Value("${verification.async.enabled:false}") boolean enabled,
+            @Value("${verification.async.workers:16}") int workers,
+            @Value("${verification.async.queue-capacity:500}") int queueCapacity,
+            @Value("${verification.async.stale-after:10m}") Duration staleAfter) { // lease of an unfinished ticket
+        this.biometricVerificationService = biometricVerificationService;
+        this.imageIngestService = imageIngestService;
+        this.verificationRepository = verificationRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.statusPublisher = statusPublisher;
+        this.verificationMetrics = verificationMetrics;
+        this.enabled = enabled;
+        this.staleAfter = staleAfter;
+        this.permits = new Semaphore(workers + queueCapacity);
+        this.executor = pipelineThreads.newExecutor("verification-worker-", workers, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return Whether the verification endpoints accept submissions instead of answering synchronously
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accepts a facial biometry request for background processing
+     * @param request The facial biometry request
+     * @return The PENDING verification
+     */
+    public VerificationResponse submitFacialBiometry(FacialBiometryRequest request) {
+        log.debug("Accepting facial biometry for user ID: {}", request.getUserId());
+        return submit(request.getUserId(), VerificationResult.VerificationType.FACIAL_BIOMETRY,
+                images -> biometricVerificationService.evaluateFacialBiometry(request, images.get(0)),
+                request.getFaceImage());
+    }
+
+    /**
+     * Accepts a fingerprint biometry request for background processing
+     * @param request The fingerprint biometry request
+     * @return The PENDING verification
+     */
+    public VerificationResponse submitFingerprintBiometry(FingerprintBiometryRequest request) {
+        log.debug("Accepting fingerprint biometry for user ID: {}", request.getUserId());
+        return submit(request.getUserId(), VerificationResult.VerificationType.FINGERPRINT_BIOMETRY,
+                images -> biometricVerificationService.evaluateFingerprintBiometry(request, images.get(0)),
+                request.getFingerprintImage());
+    }
+
+    /**
+     * Accepts a document analysis request for background processing
+     * @param request The document analysis request
+     * @return The PENDING verification
+     */
+    public VerificationResponse submitDocumentAnalysis(DocumentAnalysisRequest request) {
+        log.debug("Accepting document analysis for user ID: {}", request.getUserId());
+        return submit(request.getUserId(), VerificationResult.VerificationType.DOCUMENT_ANALYSIS,
+                images -> biometricVerificationService.evaluateDocumentAnalysis(request, images.get(0), images.get(1)),
+                request.getDocumentImage(), request.getFaceImage());
+    }
+
+    private VerificationResponse submit(String userId,
+                                        VerificationResult.VerificationType verificationType,
+                                        Function<List<IngestedImage>, BiometricVerificationService.Evaluation> evaluation,
+                                        MultipartFile... files) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Verification queue is full");
+        }
+        List<IngestedImage> images = new ArrayList<>(files.length);
+        try {
+            // The upload is only valid for the duration of the request, so read it before handing off
+            for (MultipartFile file : files) {
+                images.add(imageIngestService.ingest(file));
+            }
+            VerificationResult pending = save(VerificationResult.builder()
+                    .userId(userId)
+                    .verificationType(verificationType)
+                    .createdAt(LocalDateTime.now())
+                    .fraudTypes(new ArrayList<>())
+                    .status(VerificationResult.ValidationStatus.PENDING)
+                    .metadata(new VerificationMetadata())
+                    .leaseUntil(LocalDateTime.now().plus(staleAfter))
+                    .build());
+            VerificationResponse accepted = biometricVerificationService.mapToResponse(pending);
+            held.add(pending.getId());
+            try {
+                executor.execute(() -> process(pending, images, evaluation));
+            } catch (RuntimeException e) {
+                held.remove(pending.getId());
+                throw e;
+            }
+            return accepted;
+        } catch (RuntimeException e) {
+            images.forEach(IngestedImage::close);
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void process(VerificationResult pending,
+                         List<IngestedImage> images,
+                         Function<List<IngestedImage>, BiometricVerificationService.Evaluation> evaluation) {
+        try {
+            if (mongoTemplate.updateFirst(new Query(where("_id").is(pending.getId())
+                                    .and("status").is(VerificationResult.ValidationStatus.PENDING)),
+                    new Update().set("status", VerificationResult.ValidationStatus.PROCESSING),
+                    VerificationResult.class).getMatchedCount() == 0) {
+                statusPublisher.publish(stored(pending));
+                return;
+            }
+            pending.setStatus(VerificationResult.ValidationStatus.PROCESSING);
+            statusPublisher.publish(biometricVerificationService.mapToResponse(pending));
+
+            BiometricVerificationService.Evaluation outcome = evaluation.apply(images);
+            VerificationResponse response;
+            if (outcome.getResult() != null) {
+                // Replace the ticket with the full result, keeping its ID and submission time
+                VerificationResult result = outcome.getResult();
+                result.setId(pending.getId());
+                result.setCreatedAt(pending.getCreatedAt());
+                VerificationResult saved = replaceIfProcessing(result);
+                response = saved != null ? biometricVerificationService.complete(outcome, saved) : stored(pending);
+            } else {
+                response = finish(pending, outcome.getResponse());
+            }
+            statusPublisher.publish(response);
+        } catch (RuntimeException e) {
+            log.error("Error processing verification {}", pending.getId(), e);
+            statusPublisher.publish(finish(pending, VerificationResponse.builder()
+                    .status(VerificationResult.ValidationStatus.REJECTED)
+                    .fraudTypes(new ArrayList<>())
+                    .message("Verification could not be processed, please resubmit")
+                    .build()));
+        } finally {
+            held.remove(pending.getId());
+            images.forEach(IngestedImage::close);
+            permits.release();
+        }
+    }
+
+    /**
+     * Stores a verdict that did not go through fraud detection (failed validation or a replayed image)
+     */
+    private VerificationResponse finish(VerificationResult pending, VerificationResponse verdict) {
+        pending.setStatus(verdict.getStatus());
+        pending.setFraudDetected(verdict.isFraudDetected());
+        pending.setFraudTypes(verdict.getFraudTypes() != null ? verdict.getFraudTypes() : new ArrayList<>());
+        pending.setProcessedAt(LocalDateTime.now());
+        pending.getMetadata().setStatusMessage(verdict.getMessage());
+        pending.getMetadata().setReplayOf(verdict.getId());
+        pending.setLeaseUntil(null);
+        try {
+            if (replaceIfProcessing(pending) == null) {
+                return stored(pending);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error storing verdict for verification {}", pending.getId(), e);
+        }
+        return biometricVerificationService.mapToResponse(pending);
+    }
+
+    /**
+     * Replaces the ticket with its verdict unless it is no longer PROCESSING (rejected as stale meanwhile)
+     * @return The stored verdict, or null if the ticket was left as it is
+     */
+    private VerificationResult replaceIfProcessing(VerificationResult verdict) {
+        VerificationResult saved = verificationMetrics.stage(VerificationMetrics.SAVE).record(() -> mongoTemplate.findAndReplace(
+                new Query(where("_id").is(verdict.getId()).and("status").is(VerificationResult.ValidationStatus.PROCESSING)),
+                verdict, FindAndReplaceOptions.options().returnNew()));
+        if (saved == null) {
+            log.warn("Verification {} was rejected as stale before it finished, dropping its verdict", verdict.getId());
+        }
+        return saved;
+    }
+
+    /**
+     * The ticket as currently stored, for a verdict that was not written
+     */
+    private VerificationResponse stored(VerificationResult pending) {
+        return verificationRepository.findById(pending.getId())
+                .map(biometricVerificationService::mapToResponse)
+                .orElseGet(() -> biometricVerificationService.mapToResponse(pending));
+    }
+
+    /**
+     * Renews the lease of the tickets this instance is still holding
+     */
+    @Scheduled(fixedDelayString = "${verification.async.heartbeat-interval:60000}")
+    public void renewTicketLeases() {
+        if (!enabled || held.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.updateMulti(
+                    new Query(where("_id").in(List.copyOf(held)).and("status").in(VerificationResult.ValidationStatus.PENDING,
+                            VerificationResult.ValidationStatus.PROCESSING)),
+                    new Update().set("leaseUntil", LocalDateTime.now().plus(staleAfter)),
+                    VerificationResult.class);
+        } catch (Exception e) {
+            log.error("Error renewing verification ticket leases", e);
+        }
+    }
+
+    /**
+     * Rejects tickets left unfinished by an instance that stopped, since their images were only held in memory.
+     * A ticket is stale once its lease ran out; tickets stored before leases existed go by their age.
+     * The rejection is notified like any other verdict, through an outbox entry written in the same update
+     */
+    @Scheduled(fixedDelayString = "${verification.async.stale-check-interval:60000}")
+    public void rejectStaleVerifications() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        NotificationOutbox outbox = NotificationOutbox.pending(NotificationOutbox.NotificationType.SUCCESS);
+        outbox.setNotificationId(null); // one update for every ticket; each gets an ID from its verification ID
+        try {
+            long rejected = mongoTemplate.updateMulti(
+                    new Query(where("status").in(VerificationResult.ValidationStatus.PENDING,
+                                    VerificationResult.ValidationStatus.PROCESSING)
+                            .orOperator(where("leaseUntil").lt(now),
+                                    where("leaseUntil").exists(false).and("createdAt").lt(now.minus(staleAfter)))),
+                    new Update()
+                            .set("status", VerificationResult.ValidationStatus.REJECTED)
+                            .set("processedAt", now)
+                            .unset("leaseUntil")
+                            .set("metadata." + VerificationMetadataCodec.STATUS_MESSAGE, "Verification was interrupted, please resubmit")
+                            .set("outbox", outbox),
+                    VerificationResult.class).getModifiedCount();
+            if (rejected > 0) {
+                log.warn("Rejected {} verifications whose instance stopped renewing them for {}", rejected, staleAfter);
+            }
+        } catch (Exception e) {
+            log.error("Error rejecting stale verifications", e);
+        }
+    }
+
+    private VerificationResult save(VerificationResult result) {
+        return verificationMetrics.stage(VerificationMetrics.SAVE).record(() -> verificationRepository.save(result));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
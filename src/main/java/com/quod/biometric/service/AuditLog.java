@@ -0,0 +1,377 @@
+package com.quod.biometric.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Audit trail of verification decisions, written as NDJSON to append-only, memory-mapped files.
+ * Request threads only claim a slot of an {@link AuditRingBuffer} and store references to the
+ * already built result or response; a single writer thread formats the events and copies them into
+ * the mapped segment, so a decision costs no formatting, locking or I/O on the request path. When the
+ * ring is full the event is dropped and counted rather than slowing verifications down.
+ *
+ * Every decision records who, what and the verdict. Check timings, velocity counts and the device of
+ * rejected verifications are always included; for approved ones only a sampled share
+ * (audit.detail-sample-rate) carries them. Segments rotate at audit.segment-size and only the newest
+ * audit.max-segments are kept; {@link AuditLogReader} queries them.
+ */
+@Component
+@Slf4j
+public class AuditLog {
+
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long FORCE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final double detailSampleRate;
+    private final AuditRingBuffer<Event> ring;
+    private final Counter writtenEvents;
+    private final Counter droppedEvents;
+    private final Counter failedEvents;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final LineBuffer line = new LineBuffer();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private Segment segment;
+    private int segmentCount;
+    private long lastForceNanos = System.nanoTime();
+
+    public AuditLog(
+            MeterRegistry meterRegistry,
+            @Value("${audit.enabled:true}") boolean enabled,
+            @Value("${audit.directory:audit}") String directory,
+            @Value("${audit.buffer-size:65536}") int bufferSize,
+            @Value("${audit.segment-size:67108864}") int segmentSize,
+            @Value("${audit.max-segments:20}") int maxSegments,
+            @Value("${audit.detail-sample-rate:0.05}") double detailSampleRate) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.detailSampleRate = detailSampleRate;
+        this.ring = new AuditRingBuffer<>(enabled ? bufferSize : 2, Event::new);
+        this.writtenEvents = meterRegistry.counter("audit.events", "outcome", "written");
+        this.droppedEvents = meterRegistry.counter("audit.events", "outcome", "dropped");
+        this.failedEvents = meterRegistry.counter("audit.events", "outcome", "failed");
+        Gauge.builder("audit.buffer.size", ring, AuditRingBuffer::size).register(meterRegistry);
+        this.writer = new Thread(this::drain, "audit-writer");
+        if (enabled) {
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Records the decision of a stored verification
+     * @param saved The verification result as stored, with its id; it must not be modified afterwards
+     */
+    public void decision(VerificationResult saved) {
+        boolean detail = saved.isFraudDetected()
+                || (detailSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < detailSampleRate);
+        record(Source.EVALUATED, saved, null, detail);
+    }
+
+    /**
+     * Records a verdict answered without storing a new result: a replay from the verdict cache
+     * (the response carries the original id) or a rejection of invalid input
+     */
+    public void decision(VerificationResponse response) {
+        record(response.getId() != null ? Source.REPLAY : Source.INVALID, null, response, false);
+    }
+
+    private void record(Source source, VerificationResult result, VerificationResponse response, boolean detail) {
+        if (!enabled) {
+            return;
+        }
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            droppedEvents.increment();
+            return;
+        }
+        Event event = ring.entry(sequence);
+        event.timeMillis = System.currentTimeMillis();
+        event.source = source;
+        event.result = result;
+        event.response = response;
+        event.detail = detail;
+        ring.publish(sequence);
+    }
+
+    /**
+     * Writer loop: formats published events in order until stopped and drained
+     */
+    private void drain() {
+        while (true) {
+            Event event = ring.peek();
+            if (event == null) {
+                if (!running) {
+                    break;
+                }
+                forceIfDue();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                write(event);
+                writtenEvents.increment();
+            } catch (IOException | RuntimeException e) {
+                failedEvents.increment();
+                log.error("Error writing audit event", e);
+            } finally {
+                event.clear();
+                ring.release();
+            }
+        }
+        closeSegment();
+    }
+
+    private void write(Event event) throws IOException {
+        line.reset();
+        try (JsonGenerator json = jsonFactory.createGenerator(line)) {
+            json.writeStartObject();
+            json.writeStringField("ts", Instant.ofEpochMilli(event.timeMillis).toString());
+            json.writeStringField("event", "decision");
+            json.writeStringField("source", event.source.value);
+            if (event.result != null) {
+                writeResult(json, event.result, event.detail);
+            } else {
+                writeResponse(json, event.response);
+            }
+            json.writeEndObject();
+        }
+        line.write('\n');
+        if (segment == null || line.size() > segment.buffer.remaining()) {
+            rotate(line.size());
+        }
+        line.copyTo(segment.buffer);
+    }
+
+    private static void writeResult(JsonGenerator json, VerificationResult result, boolean detail) throws IOException {
+        writeString(json, "id", result.getId());
+        writeString(json, "user", result.getUserId());
+        writeString(json, "type", result.getVerificationType() != null ? result.getVerificationType().name() : null);
+        writeString(json, "status", result.getStatus() != null ? result.getStatus().name() : null);
+        writeList(json, "fraudTypes", result.getFraudTypes());
+        if (result.getRiskScore() != null) {
+            json.writeNumberField("riskScore", result.getRiskScore());
+        }
+        writeString(json, "image", result.getImageReference());
+        VerificationMetadata metadata = result.getMetadata();
+        if (!detail || metadata == null) {
+            return;
+        }
+        json.writeBooleanField("detail", true);
+        if (metadata.getFraudCheckTimingsMicros() != null) {
+            json.writeObjectFieldStart("checkMicros");
+            for (Map.Entry<String, Long> timing : metadata.getFraudCheckTimingsMicros().entrySet()) {
+                json.writeNumberField(timing.getKey(), timing.getValue());
+            }
+            json.writeEndObject();
+        }
+        writeList(json, "timedOutChecks", metadata.getTimedOutFraudChecks());
+        if (metadata.getStageTimingsMicros() != null) {
+            json.writeObjectFieldStart("stageMicros");
+            for (Map.Entry<String, Long> timing : metadata.getStageTimingsMicros().entrySet()) {
+                json.writeNumberField(timing.getKey(), timing.getValue());
+            }
+            json.writeEndObject();
+        }
+        if (metadata.getRiskScores() != null) {
+            json.writeObjectFieldStart("riskScores");
+            for (Map.Entry<String, Double> score : metadata.getRiskScores().entrySet()) {
+                json.writeNumberField(score.getKey(), score.getValue());
+            }
+            json.writeEndObject();
+        }
+        writeString(json, "riskRules", metadata.getRiskRulesVersion());
+        if (metadata.getVelocity() != null) {
+            json.writeObjectFieldStart("velocity");
+            for (Map.Entry<String, Long> count : metadata.getVelocity().entrySet()) {
+                json.writeNumberField(count.getKey(), count.getValue());
+            }
+            json.writeEndObject();
+        }
+        writeString(json, "nearDuplicateOf", metadata.getNearDuplicateOf());
+        writeString(json, "device", metadata.getDeviceInfo());
+        writeString(json, "geo", metadata.getGeoLocation());
+    }
+
+    private static void writeResponse(JsonGenerator json, VerificationResponse response) throws IOException {
+        writeString(json, "id", response.getId());
+        writeString(json, "user", response.getUserId());
+        writeString(json, "type", response.getVerificationType() != null ? response.getVerificationType().name() : null);
+        writeString(json, "status", response.getStatus() != null ? response.getStatus().name() : null);
+        writeList(json, "fraudTypes", response.getFraudTypes());
+        if (response.getRiskScore() != null) {
+            json.writeNumberField("riskScore", response.getRiskScore());
+        }
+        writeString(json, "message", response.getMessage());
+    }
+
+    private static void writeString(JsonGenerator json, String name, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(name, value);
+        }
+    }
+
+    private static void writeList(JsonGenerator json, String name, List<String> values) throws IOException {
+        if (values != null && !values.isEmpty()) {
+            json.writeArrayFieldStart(name);
+            for (String value : values) {
+                json.writeString(value);
+            }
+            json.writeEndArray();
+        }
+    }
+
+    /**
+     * Closes the current segment and maps a new one with room for at least the given number of bytes
+     */
+    private void rotate(int minimumSize) throws IOException {
+        closeSegment();
+        Files.createDirectories(directory);
+        // Fixed-width names, so the name order is the write order
+        Path path;
+        do {
+            path = directory.resolve(String.format("%s%s-%06d%s", SEGMENT_PREFIX, SEGMENT_TIME.format(Instant.now()),
+                    segmentCount++ % 1_000_000, SEGMENT_SUFFIX));
+        } while (Files.exists(path));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, minimumSize)));
+        deleteOldSegments();
+    }
+
+    /**
+     * Flushes the segment and trims the unused, zero-filled end of the file
+     */
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try (FileChannel channel = segment.channel) {
+            segment.buffer.force();
+            channel.truncate(segment.buffer.position());
+        } catch (IOException e) {
+            // Some platforms cannot truncate a mapped file; readers stop at the zero-filled end
+            log.debug("Unable to trim audit segment {}: {}", segment.path, e.getMessage());
+        }
+        segment = null;
+    }
+
+    private void forceIfDue() {
+        long now = System.nanoTime();
+        if (segment != null && now - lastForceNanos >= FORCE_INTERVAL_NANOS) {
+            segment.buffer.force();
+            lastForceNanos = now;
+        }
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    /**
+     * @return The segment files of a directory, oldest first
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Events recorded before shutdown are still written
+        running = false;
+        if (enabled) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private enum Source {
+        EVALUATED("evaluated"),
+        REPLAY("replay"),
+        INVALID("invalid");
+
+        private final String value;
+
+        Source(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * A ring entry, reused for every event that lands in its slot
+     */
+    private static final class Event {
+
+        private long timeMillis;
+        private Source source;
+        private VerificationResult result;
+        private VerificationResponse response;
+        private boolean detail;
+
+        private void clear() {
+            result = null;
+            response = null;
+        }
+    }
+
+    private record Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+    }
+
+    /**
+     * Reusable line buffer that copies its bytes without a defensive array copy
+     */
+    private static final class LineBuffer extends ByteArrayOutputStream {
+
+        private void copyTo(ByteBuffer target) {
+            target.put(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.quod.biometric.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Command-line query over the audit segments written by {@link AuditLog}.
+ * Scans the segments oldest first and prints the matching events as NDJSON (or only their number),
+ * so the output can be piped into jq. Segments still being written end in zero bytes, which are skipped.
+ *
+ * Usage: java -cp target/biometric-verification-*-exec.jar -Dloader.main=com.quod.biometric.service.AuditLogReader
+ *        org.springframework.boot.loader.launch.PropertiesLauncher [--dir=audit] [--user=...] [--id=...]
+ *        [--status=REJECTED] [--type=FACIAL_BIOMETRY] [--source=evaluated|replay|invalid] [--fraud-type=DEEPFAKE]
+ *        [--from=2024-05-01T00:00:00Z] [--to=...] [--limit=100] [--count=true]
+ */
+public class AuditLogReader {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                System.err.println("Options must look like --name=value: " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        Path directory = Path.of(options.getOrDefault("dir", "audit"));
+        long limit = Long.parseLong(options.getOrDefault("limit", String.valueOf(Long.MAX_VALUE)));
+        boolean countOnly = Boolean.parseBoolean(options.getOrDefault("count", "false"));
+        long matched = query(directory, filter(options), limit, System.out, countOnly);
+        if (countOnly) {
+            System.out.println(matched);
+        }
+    }
+
+    /**
+     * Writes the matching events to the output
+     * @return Number of matching events, at most the limit
+     */
+    static long query(Path directory, Predicate<JsonNode> filter, long limit, PrintStream output, boolean countOnly)
+            throws IOException {
+        long matched = 0;
+        for (Path segment : AuditLog.segments(directory)) {
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(segment))) {
+                String line;
+                while (matched < limit && (line = readLine(input)) != null) {
+                    if (!line.isBlank() && filter.test(OBJECT_MAPPER.readTree(line))) {
+                        matched++;
+                        if (!countOnly) {
+                            output.println(line);
+                        }
+                    }
+                }
+            }
+            if (matched >= limit) {
+                break;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return All events of the directory, oldest first
+     */
+    static List<JsonNode> readAll(Path directory) throws IOException {
+        List<JsonNode> events = new ArrayList<>();
+        for (Path segment : AuditLog.segments(directory)) {
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(segment))) {
+                String line;
+                while ((line = readLine(input)) != null) {
+                    if (!line.isBlank()) {
+                        events.add(OBJECT_MAPPER.readTree(line));
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Builds the event filter from the command-line options; all given options must match
+     */
+    static Predicate<JsonNode> filter(Map<String, String> options) {
+        Predicate<JsonNode> filter = event -> true;
+        filter = filter.and(field("user", options.get("user")));
+        filter = filter.and(field("id", options.get("id")));
+        filter = filter.and(field("status", options.get("status")));
+        filter = filter.and(field("type", options.get("type")));
+        filter = filter.and(field("source", options.get("source")));
+        String fraudType = options.get("fraud-type");
+        if (fraudType != null) {
+            filter = filter.and(event -> {
+                for (JsonNode type : event.path("fraudTypes")) {
+                    if (fraudType.equals(type.asText())) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+        Instant from = options.containsKey("from") ? Instant.parse(options.get("from")) : null;
+        Instant to = options.containsKey("to") ? Instant.parse(options.get("to")) : null;
+        if (from != null || to != null) {
+            filter = filter.and(event -> {
+                Instant time = Instant.parse(event.path("ts").asText());
+                return (from == null || !time.isBefore(from)) && (to == null || time.isBefore(to));
+            });
+        }
+        return filter;
+    }
+
+    private static Predicate<JsonNode> field(String name, String expected) {
+        return expected == null ? event -> true : event -> expected.equals(event.path(name).asText(null));
+    }
+
+    /**
+     * @return The next line without its terminator, or null at the end of the file or of the written part
+     */
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int value;
+        while ((value = input.read()) >= 0) {
+            if (value == '\n') {
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            if (value == 0) {
+                return null;
+            }
+            line.write(value);
+        }
+        return line.size() > 0 ? line.toString(StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,106 @@
+package com.quod.biometric.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated, reused entries.
+ * A producer claims a sequence with one CAS, fills the entry of that sequence in place and publishes
+ * it; the consumer reads published entries in sequence order. Nothing blocks and nothing is allocated
+ * per event: when the ring is full, {@link #claim()} fails and the caller drops the event.
+ *
+ * @param <E> The mutable entry type
+ */
+public class AuditRingBuffer<E> {
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle CONSUMED;
+
+    static {
+        try {
+            CONSUMED = MethodHandles.lookup().findVarHandle(AuditRingBuffer.class, "consumed", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] entries;
+    private final long[] published; // sequence last published in each entry, -1 before the first
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    @SuppressWarnings("unused") // accessed through CONSUMED
+    private volatile long consumed;
+
+    /**
+     * @param capacity Number of entries, rounded up to a power of two
+     * @param factory Creates the entries once
+     */
+    public AuditRingBuffer(int capacity, Supplier<E> factory) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.entries = new Object[size];
+        this.published = new long[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            entries[i] = factory.get();
+            published[i] = -1;
+        }
+    }
+
+    /**
+     * Reserves the next entry for the calling producer
+     * @return The sequence to fill through {@link #entry(long)} and then {@link #publish(long)}, or -1 if the ring is full
+     */
+    public long claim() {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - (long) CONSUMED.getAcquire(this) >= entries.length) {
+                return -1;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E entry(long sequence) {
+        return (E) entries[(int) (sequence & mask)];
+    }
+
+    /**
+     * Makes a filled entry visible to the consumer
+     */
+    public void publish(long sequence) {
+        PUBLISHED.setRelease(published, (int) (sequence & mask), sequence);
+    }
+
+    /**
+     * Consumer side: the entry after the last one released, once it is published
+     * @return The entry, or null if the producer of the next sequence has not published it yet
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long next = (long) CONSUMED.getOpaque(this);
+        int index = (int) (next & mask);
+        return (long) PUBLISHED.getAcquire(published, index) == next ? (E) entries[index] : null;
+    }
+
+    /**
+     * Consumer side: hands the entry returned by {@link #peek()} back to the producers
+     */
+    public void release() {
+        CONSUMED.setRelease(this, (long) CONSUMED.getOpaque(this) + 1);
+    }
+
+    /**
+     * @return Entries claimed and not yet released
+     */
+    public long size() {
+        return claimed.get() - (long) CONSUMED.getAcquire(this);
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+}
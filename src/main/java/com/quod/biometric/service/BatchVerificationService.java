@@ -0,0 +1,265 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.BatchVerificationItem;
+import com.quod.biometric.dto.BatchVerificationItemResult;
+import com.quod.biometric.dto.DocumentAnalysisRequest;
+import com.quod.biometric.dto.FacialBiometryRequest;
+import com.quod.biometric.dto.FingerprintBiometryRequest;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.exception.InvalidRequestException;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Processes batches of verifications of mixed types.
+ * Items are validated and checked for fraud on a bounded pool with a fixed number of items in flight
+ * per batch. Results that need saving are grouped and written with one unordered bulk insert whenever
+ * a chunk fills up or no further item is ready, and each item's result is passed on as soon as it is
+ * final, in completion order.
+ */
+@Service
+@Slf4j
+public class BatchVerificationService {
+
+    private final BiometricVerificationService biometricVerificationService;
+    private final MongoTemplate mongoTemplate;
+    private final Validator validator;
+    private final VerificationMetrics verificationMetrics;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final int maxItems;
+    private final int writeChunkSize;
+
+    public BatchVerificationService(
+            BiometricVerificationService biometricVerificationService,
+            MongoTemplate mongoTemplate,
+            Validator validator,
+            VerificationMetrics verificationMetrics,
+            PipelineThreads pipelineThreads,
+            @Value("${batch-verification.parallelism:16}") int parallelism,
+            @Value("${batch-verification.queue-capacity:1000}") int queueCapacity,
+            @Value("${batch-verification.max-items:1000}") int maxItems,
+            @Value("${batch-verification.write-chunk-size:500}") int writeChunkSize) {
+        this.biometricVerificationService = biometricVerificationService;
+        this.mongoTemplate = mongoTemplate;
+        this.validator = validator;
+        this.verificationMetrics = verificationMetrics;
+        // When every batch worker is busy and the queue is full, the submitting request thread runs the item itself
+        this.executor = pipelineThreads.newExecutor("batch-verification-", parallelism, queueCapacity,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.maxInFlight = parallelism * 2;
+        this.maxItems = maxItems;
+        this.writeChunkSize = writeChunkSize;
+    }
+
+    /**
+     * Rejects batches that are empty or larger than the configured maximum
+     * @param items The batch items
+     */
+    public void checkBatchSize(List<BatchVerificationItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidRequestException("Batch must contain at least one item");
+        }
+        if (items.size() > maxItems) {
+            throw new InvalidRequestException("Batch must not contain more than " + maxItems + " items");
+        }
+    }
+
+    /**
+     * Processes a batch and hands each item's result to the sink as soon as it is final
+     * @param items The batch items
+     * @param files The uploaded files by part name
+     * @param sink Receives one result per item, in completion order, on the calling thread
+     */
+    public void process(List<BatchVerificationItem> items, Map<String, MultipartFile> files,
+                        Consumer<BatchVerificationItemResult> sink) {
+        long start = System.currentTimeMillis();
+        CompletionService<ItemOutcome> completionService = new ExecutorCompletionService<>(executor);
+        Set<Future<ItemOutcome>> inFlight = new HashSet<>();
+        List<ItemOutcome> unsaved = new ArrayList<>(writeChunkSize);
+        int next = 0;
+
+        try {
+            while (next < items.size() || !inFlight.isEmpty()) {
+                while (inFlight.size() < maxInFlight && next < items.size()) {
+                    int index = next++;
+                    inFlight.add(completionService.submit(() -> evaluate(index, items.get(index), files)));
+                }
+
+                Future<ItemOutcome> completed = completionService.poll();
+                if (completed == null) {
+                    // Nothing else is ready: write what is pending instead of waiting for a full chunk
+                    write(unsaved, sink);
+                    completed = completionService.take();
+                }
+                inFlight.remove(completed);
+
+                ItemOutcome outcome = completed.get();
+                if (outcome.evaluation != null && outcome.evaluation.getResult() != null) {
+                    unsaved.add(outcome);
+                    if (unsaved.size() >= writeChunkSize) {
+                        write(unsaved, sink);
+                    }
+                } else {
+                    sink.accept(outcome.toResult(outcome.evaluation != null ? outcome.evaluation.getResponse() : null));
+                }
+            }
+            write(unsaved, sink);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch processing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch item failed unexpectedly", e.getCause());
+        } finally {
+            // Stop the remaining items if the batch is abandoned, e.g. because the client disconnected
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        log.info("Processed batch of {} items in {} ms", items.size(), System.currentTimeMillis() - start);
+    }
+
+    private ItemOutcome evaluate(int index, BatchVerificationItem item, Map<String, MultipartFile> files) {
+        try {
+            if (item.getVerificationType() == null) {
+                return new ItemOutcome(index, item.getItemId(), null, "Verification type is required");
+            }
+            BiometricVerificationService.Evaluation evaluation = switch (item.getVerificationType()) {
+                case FACIAL_BIOMETRY -> biometricVerificationService.evaluate(validated(FacialBiometryRequest.builder()
+                        .userId(item.getUserId())
+                        .faceImage(file(files, item.getFaceImage()))
+                        .deviceInfo(item.getDeviceInfo())
+                        .geoLocation(item.getGeoLocation())
+                        .build()));
+                case FINGERPRINT_BIOMETRY -> biometricVerificationService.evaluate(validated(FingerprintBiometryRequest.builder()
+                        .userId(item.getUserId())
+                        .fingerprintImage(file(files, item.getFingerprintImage()))
+                        .fingerPosition(item.getFingerPosition())
+                        .deviceInfo(item.getDeviceInfo())
+                        .geoLocation(item.getGeoLocation())
+                        .build()));
+                case DOCUMENT_ANALYSIS -> biometricVerificationService.evaluate(validated(DocumentAnalysisRequest.builder()
+                        .userId(item.getUserId())
+                        .documentImage(file(files, item.getDocumentImage()))
+                        .faceImage(file(files, item.getFaceImage()))
+                        .documentType(item.getDocumentType())
+                        .deviceInfo(item.getDeviceInfo())
+                        .geoLocation(item.getGeoLocation())
+                        .build()));
+            };
+            return new ItemOutcome(index, item.getItemId(), evaluation, null);
+        } catch (InvalidRequestException e) {
+            return new ItemOutcome(index, item.getItemId(), null, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return new ItemOutcome(index, item.getItemId(), null, "The server is busy, please retry later");
+        } catch (RuntimeException e) {
+            log.error("Error processing batch item {}", index, e);
+            return new ItemOutcome(index, item.getItemId(), null, "An unexpected error occurred");
+        }
+    }
+
+    /**
+     * Applies the same bean validation constraints as the single-item endpoints
+     */
+    private <T> T validated(T request) {
+        Set<ConstraintViolation<T>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new InvalidRequestException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        return request;
+    }
+
+    private static MultipartFile file(Map<String, MultipartFile> files, String partName) {
+        return partName != null ? files.get(partName) : null;
+    }
+
+    /**
+     * Saves the pending results with one unordered bulk insert and emits their responses
+     */
+    private void write(List<ItemOutcome> unsaved, Consumer<BatchVerificationItemResult> sink) {
+        if (unsaved.isEmpty()) {
+            return;
+        }
+        // Bulk inserts do not write generated ids back to the entities, so assign them up front
+        List<VerificationResult> results = new ArrayList<>(unsaved.size());
+        for (ItemOutcome outcome : unsaved) {
+            VerificationResult result = outcome.evaluation.getResult();
+            result.setId(new ObjectId().toHexString());
+            results.add(result);
+        }
+
+        Map<Integer, String> failures = new HashMap<>();
+        Timer.Sample sample = Timer.start();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VerificationResult.class)
+                    .insert(results)
+                    .execute();
+        } catch (BulkOperationException e) {
+            log.error("Bulk insert stored {} of {} verification results", results.size() - e.getErrors().size(), results.size());
+            e.getErrors().forEach(error -> failures.put(error.getIndex(), "Unable to store verification result"));
+        } catch (DataAccessException e) {
+            log.error("Bulk insert of {} verification results failed", results.size(), e);
+            for (int i = 0; i < results.size(); i++) {
+                failures.put(i, "Unable to store verification result");
+            }
+        } finally {
+            sample.stop(verificationMetrics.stage(VerificationMetrics.BULK_SAVE));
+        }
+
+        for (int i = 0; i < unsaved.size(); i++) {
+            ItemOutcome outcome = unsaved.get(i);
+            if (failures.containsKey(i)) {
+                sink.accept(BatchVerificationItemResult.builder()
+                        .index(outcome.index)
+                        .itemId(outcome.itemId)
+                        .error(failures.get(i))
+                        .build());
+            } else {
+                sink.accept(outcome.toResult(biometricVerificationService.complete(outcome.evaluation, results.get(i))));
+            }
+        }
+        unsaved.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @RequiredArgsConstructor
+    private static class ItemOutcome {
+        private final int index;
+        private final String itemId;
+        private final BiometricVerificationService.Evaluation evaluation;
+        private final String error;
+
+        BatchVerificationItemResult toResult(VerificationResponse response) {
+            return BatchVerificationItemResult.builder()
+                    .index(index)
+                    .itemId(itemId)
+                    .response(error == null ? response : null)
+                    .error(error)
+                    .build();
+        }
+    }
+}
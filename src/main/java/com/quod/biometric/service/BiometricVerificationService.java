@@ -4,27 +4,29 @@ import com.quod.biometric.dto.DocumentAnalysisRequest;
 import com.quod.biometric.dto.FacialBiometryRequest;
 import com.quod.biometric.dto.FingerprintBiometryRequest;
 import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.exception.ResourceNotFoundException;
+import com.quod.biometric.model.VerificationMetadata;
 import com.quod.biometric.model.VerificationResult;
 import com.quod.biometric.repository.VerificationRepository;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
-
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class BiometricVerificationService {
 
-    private final ImageValidationService imageValidationService;
+    private final ImageIngestService imageIngestService;
+    private final VerificationFlows verificationFlows;
     private final FraudDetectionService fraudDetectionService;
-    private final NotificationService notificationService;
     private final VerificationRepository verificationRepository;
+    private final VerdictCache verdictCache;
+    private final VerificationMetrics verificationMetrics;
+    private final AuditLog auditLog;
+    private final VerificationLanes verificationLanes;
 
     /**
      * Process a facial biometry verification request
@@ -32,53 +34,29 @@ public class BiometricVerificationService {
      * @return Verification response
      */
     public VerificationResponse processFacialBiometry(FacialBiometryRequest request) {
-        log.info("Processing facial biometry for user ID: {}", request.getUserId());
-        
-        // Step 1: Basic image validation
-        Map<String, Object> imageValidation = imageValidationService.validateImage(request.getFaceImage());
-        if (!(boolean) imageValidation.get("valid")) {
-            return createRejectedResponse(request.getUserId(), 
-                    VerificationResult.VerificationType.FACIAL_BIOMETRY,
-                    "Image validation failed: " + imageValidation.get("errors"));
-        }
+        log.debug("Processing facial biometry for user ID: {}", request.getUserId());
         
-        // Step 2: Fraud detection
-        Map<String, Object> fraudDetection = fraudDetectionService.detectFacialFraud(request.getFaceImage());
-        boolean fraudDetected = (boolean) fraudDetection.get("fraudDetected");
-        
-        // Step 3: Create verification result
-        VerificationResult result = createVerificationResult(
-                request.getUserId(),
-                VerificationResult.VerificationType.FACIAL_BIOMETRY,
-                fraudDetected,
-                (ArrayList<String>) fraudDetection.get("fraudTypes"),
-                fraudDetected ? VerificationResult.ValidationStatus.REJECTED : VerificationResult.ValidationStatus.APPROVED,
-                (Map<String, Object>) imageValidation.get("metadata")
-        );
-        
-        // Add device info and geolocation if provided
-        if (request.getDeviceInfo() != null) {
-            result.getMetadata().put("deviceInfo", request.getDeviceInfo());
-        }
-        if (request.getGeoLocation() != null) {
-            result.getMetadata().put("geoLocation", request.getGeoLocation());
+        try (IngestedImage faceImage = imageIngestService.ingest(request.getFaceImage())) {
+            return persist(evaluateFacialBiometry(request, faceImage));
         }
-        
-        // Step 4: Save result
-        result = verificationRepository.save(result);
-        
-        // Step 5: Notify if fraud detected or send success notification
-        if (fraudDetected) {
-            String notificationId = notificationService.sendFraudNotification(result);
-            result.setNotificationId(notificationId);
-            verificationRepository.save(result);
-        } else {
-            String notificationId = notificationService.sendSuccessNotification(result);
-            result.setNotificationId(notificationId);
-            verificationRepository.save(result);
+    }
+    
+    /**
+     * Runs a facial biometry request up to persistence, for callers that write results in bulk
+     * @param request The facial biometry request
+     * @return The evaluation, either a final response or a result still to be saved
+     */
+    Evaluation evaluate(FacialBiometryRequest request) {
+        try (IngestedImage faceImage = imageIngestService.ingest(request.getFaceImage())) {
+            return evaluateFacialBiometry(request, faceImage);
         }
-        
-        return mapToResponse(result);
+    }
+    
+    Evaluation evaluateFacialBiometry(FacialBiometryRequest request, IngestedImage faceImage) {
+        return measured(new VerificationContext(VerificationResult.VerificationType.FACIAL_BIOMETRY,
+                new VerificationAttempt(request.getUserId(), request.getDeviceInfo(), request.getGeoLocation()),
+                new VerificationMetadata())
+                .image(VerificationContext.ImageRole.FACE, faceImage));
     }
     
     /**
@@ -87,56 +65,31 @@ public class BiometricVerificationService {
      * @return Verification response
      */
     public VerificationResponse processFingerprintBiometry(FingerprintBiometryRequest request) {
-        log.info("Processing fingerprint biometry for user ID: {}", request.getUserId());
-        
-        // Step 1: Basic image validation
-        Map<String, Object> imageValidation = imageValidationService.validateImage(request.getFingerprintImage());
-        if (!(boolean) imageValidation.get("valid")) {
-            return createRejectedResponse(request.getUserId(), 
-                    VerificationResult.VerificationType.FINGERPRINT_BIOMETRY,
-                    "Image validation failed: " + imageValidation.get("errors"));
-        }
-        
-        // Step 2: Fraud detection
-        Map<String, Object> fraudDetection = fraudDetectionService.detectFingerprintFraud(request.getFingerprintImage());
-        boolean fraudDetected = (boolean) fraudDetection.get("fraudDetected");
-        
-        // Step 3: Create verification result
-        Map<String, Object> metadata = new HashMap<>((Map<String, Object>) imageValidation.get("metadata"));
-        metadata.put("fingerPosition", request.getFingerPosition());
+        log.debug("Processing fingerprint biometry for user ID: {}", request.getUserId());
         
-        VerificationResult result = createVerificationResult(
-                request.getUserId(),
-                VerificationResult.VerificationType.FINGERPRINT_BIOMETRY,
-                fraudDetected,
-                (ArrayList<String>) fraudDetection.get("fraudTypes"),
-                fraudDetected ? VerificationResult.ValidationStatus.REJECTED : VerificationResult.ValidationStatus.APPROVED,
-                metadata
-        );
-        
-        // Add device info and geolocation if provided
-        if (request.getDeviceInfo() != null) {
-            result.getMetadata().put("deviceInfo", request.getDeviceInfo());
-        }
-        if (request.getGeoLocation() != null) {
-            result.getMetadata().put("geoLocation", request.getGeoLocation());
+        try (IngestedImage fingerprintImage = imageIngestService.ingest(request.getFingerprintImage())) {
+            return persist(evaluateFingerprintBiometry(request, fingerprintImage));
         }
-        
-        // Step 4: Save result
-        result = verificationRepository.save(result);
-        
-        // Step 5: Notify if fraud detected
-        if (fraudDetected) {
-            String notificationId = notificationService.sendFraudNotification(result);
-            result.setNotificationId(notificationId);
-            verificationRepository.save(result);
-        } else {
-            String notificationId = notificationService.sendSuccessNotification(result);
-            result.setNotificationId(notificationId);
-            verificationRepository.save(result);
+    }
+    
+    /**
+     * Runs a fingerprint biometry request up to persistence, for callers that write results in bulk
+     * @param request The fingerprint biometry request
+     * @return The evaluation, either a final response or a result still to be saved
+     */
+    Evaluation evaluate(FingerprintBiometryRequest request) {
+        try (IngestedImage fingerprintImage = imageIngestService.ingest(request.getFingerprintImage())) {
+            return evaluateFingerprintBiometry(request, fingerprintImage);
         }
-        
-        return mapToResponse(result);
+    }
+    
+    Evaluation evaluateFingerprintBiometry(FingerprintBiometryRequest request, IngestedImage fingerprintImage) {
+        return measured(new VerificationContext(VerificationResult.VerificationType.FINGERPRINT_BIOMETRY,
+                new VerificationAttempt(request.getUserId(), request.getDeviceInfo(), request.getGeoLocation()),
+                VerificationMetadata.builder()
+                        .fingerPosition(request.getFingerPosition())
+                        .build())
+                .image(VerificationContext.ImageRole.FINGERPRINT, fingerprintImage));
     }
     
     /**
@@ -145,114 +98,98 @@ public class BiometricVerificationService {
      * @return Verification response
      */
     public VerificationResponse processDocumentAnalysis(DocumentAnalysisRequest request) {
-        log.info("Processing document analysis for user ID: {}", request.getUserId());
-        
-        // Step 1: Basic image validation for document
-        Map<String, Object> documentImageValidation = imageValidationService.validateImage(request.getDocumentImage());
-        if (!(boolean) documentImageValidation.get("valid")) {
-            return createRejectedResponse(request.getUserId(), 
-                    VerificationResult.VerificationType.DOCUMENT_ANALYSIS,
-                    "Document image validation failed: " + documentImageValidation.get("errors"));
-        }
-        
-        // Step 2: Basic image validation for face
-        Map<String, Object> faceImageValidation = imageValidationService.validateImage(request.getFaceImage());
-        if (!(boolean) faceImageValidation.get("valid")) {
-            return createRejectedResponse(request.getUserId(), 
-                    VerificationResult.VerificationType.DOCUMENT_ANALYSIS,
-                    "Face image validation failed: " + faceImageValidation.get("errors"));
-        }
-        
-        // Step 3: Fraud detection
-        Map<String, Object> fraudDetection = fraudDetectionService.detectDocumentFraud(
-                request.getDocumentImage(), request.getFaceImage());
-        boolean fraudDetected = (boolean) fraudDetection.get("fraudDetected");
-        
-        // Step 4: Create verification result
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("documentMetadata", documentImageValidation.get("metadata"));
-        metadata.put("faceMetadata", faceImageValidation.get("metadata"));
-        metadata.put("documentType", request.getDocumentType());
+        log.debug("Processing document analysis for user ID: {}", request.getUserId());
         
-        VerificationResult result = createVerificationResult(
-                request.getUserId(),
-                VerificationResult.VerificationType.DOCUMENT_ANALYSIS,
-                fraudDetected,
-                (ArrayList<String>) fraudDetection.get("fraudTypes"),
-                fraudDetected ? VerificationResult.ValidationStatus.REJECTED : VerificationResult.ValidationStatus.APPROVED,
-                metadata
-        );
-        
-        // Add device info and geolocation if provided
-        if (request.getDeviceInfo() != null) {
-            result.getMetadata().put("deviceInfo", request.getDeviceInfo());
+        try (IngestedImage documentImage = imageIngestService.ingest(request.getDocumentImage());
+             IngestedImage faceImage = imageIngestService.ingest(request.getFaceImage())) {
+            return persist(evaluateDocumentAnalysis(request, documentImage, faceImage));
         }
-        if (request.getGeoLocation() != null) {
-            result.getMetadata().put("geoLocation", request.getGeoLocation());
+    }
+    
+    /**
+     * Runs a document analysis request up to persistence, for callers that write results in bulk
+     * @param request The document analysis request
+     * @return The evaluation, either a final response or a result still to be saved
+     */
+    Evaluation evaluate(DocumentAnalysisRequest request) {
+        try (IngestedImage documentImage = imageIngestService.ingest(request.getDocumentImage());
+             IngestedImage faceImage = imageIngestService.ingest(request.getFaceImage())) {
+            return evaluateDocumentAnalysis(request, documentImage, faceImage);
         }
-        
-        // Step 5: Save result
-        result = verificationRepository.save(result);
-        
-        // Step 6: Notify if fraud detected
-        if (fraudDetected) {
-            String notificationId = notificationService.sendFraudNotification(result);
-            result.setNotificationId(notificationId);
-            verificationRepository.save(result);
-        } else {
-            String notificationId = notificationService.sendSuccessNotification(result);
-            result.setNotificationId(notificationId);
-            verificationRepository.save(result);
+    }
+    
+    Evaluation evaluateDocumentAnalysis(DocumentAnalysisRequest request,
+                                        IngestedImage documentImage,
+                                        IngestedImage faceImage) {
+        // The result references the document image, so it goes first
+        return measured(new VerificationContext(VerificationResult.VerificationType.DOCUMENT_ANALYSIS,
+                new VerificationAttempt(request.getUserId(), request.getDeviceInfo(), request.getGeoLocation()),
+                VerificationMetadata.builder()
+                        .documentType(request.getDocumentType())
+                        .build())
+                .image(VerificationContext.ImageRole.DOCUMENT, documentImage)
+                .image(VerificationContext.ImageRole.FACE, faceImage));
+    }
+    
+    /**
+     * Gets the current state of a verification
+     * @param id The verification ID
+     * @return Verification response
+     */
+    public VerificationResponse getVerification(String id) {
+        return verificationRepository.findById(id)
+                .map(this::mapToResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Verification not found: " + id));
+    }
+    
+    /**
+     * Saves a pending evaluation, or returns its response if there is nothing to save
+     */
+    private VerificationResponse persist(Evaluation evaluation) {
+        if (evaluation.getResult() == null) {
+            return evaluation.getResponse();
         }
-        
-        return mapToResponse(result);
+        return complete(evaluation, verificationMetrics.stage(VerificationMetrics.SAVE)
+                .record(() -> verificationRepository.save(evaluation.getResult())));
     }
     
     /**
-     * Helper method to create a verification result
+     * Finishes an evaluation once its result is stored: indexes an accepted face and caches the verdict
+     * @param evaluation The pending evaluation
+     * @param saved The stored verification result
+     * @return Verification response
      */
-    private VerificationResult createVerificationResult(
-            String userId,
-            VerificationResult.VerificationType verificationType,
-            boolean fraudDetected,
-            ArrayList<String> fraudTypes,
-            VerificationResult.ValidationStatus status,
-            Map<String, Object> metadata) {
+    VerificationResponse complete(Evaluation evaluation, VerificationResult saved) {
+        if (!saved.isFraudDetected()) {
+            fraudDetectionService.registerAcceptedFace(saved.getFacePerceptualHash(), saved.getUserId(), saved.getId());
+        }
         
-        return VerificationResult.builder()
-                .userId(userId)
-                .verificationType(verificationType)
-                .createdAt(LocalDateTime.now())
-                .processedAt(LocalDateTime.now())
-                .fraudDetected(fraudDetected)
-                .fraudTypes(fraudTypes)
-                .status(status)
-                .metadata(metadata)
-                .build();
+        auditLog.decision(saved);
+        VerificationResponse response = mapToResponse(saved);
+        verdictCache.putIfAbsent(evaluation.getCacheKey(), saved.getUserId(), response);
+        return response;
     }
     
     /**
-     * Helper method to create a rejected response without saving to DB
+     * Runs the flow in the lane of its type while it counts as in flight, then counts its verdict
      */
-    private VerificationResponse createRejectedResponse(
-            String userId,
-            VerificationResult.VerificationType verificationType,
-            String message) {
-        
-        return VerificationResponse.builder()
-                .userId(userId)
-                .verificationType(verificationType)
-                .processedAt(LocalDateTime.now())
-                .fraudDetected(false)
-                .status(VerificationResult.ValidationStatus.REJECTED)
-                .message(message)
-                .build();
+    private Evaluation measured(VerificationContext context) {
+        VerificationResult.VerificationType type = context.getVerificationType();
+        Evaluation evaluation = verificationLanes.run(type,
+                () -> verificationMetrics.trackInFlight(type, () -> verificationFlows.run(context)));
+        if (evaluation.getResult() != null) {
+            verificationMetrics.recordOutcome(type, evaluation.getResult().getStatus(), evaluation.getResult().getFraudTypes());
+        } else {
+            verificationMetrics.recordOutcome(type, evaluation.getResponse().getStatus(), evaluation.getResponse().getFraudTypes());
+            auditLog.decision(evaluation.getResponse());
+        }
+        return evaluation;
     }
     
     /**
      * Maps a verification result entity to a response DTO
      */
-    private VerificationResponse mapToResponse(VerificationResult result) {
+    VerificationResponse mapToResponse(VerificationResult result) {
         return VerificationResponse.builder()
                 .id(result.getId())
                 .userId(result.getUserId())
@@ -261,9 +198,51 @@ public class BiometricVerificationService {
                 .fraudDetected(result.isFraudDetected())
                 .fraudTypes(result.getFraudTypes())
                 .status(result.getStatus())
-                .message(result.isFraudDetected() ? 
-                        "Fraud detected: " + String.join(", ", result.getFraudTypes()) : 
-                        "Verification successful")
+                .riskScore(result.getRiskScore())
+                .message(messageFor(result))
                 .build();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Builds the response message; records finished without a fraud check carry their own message
+     */
+    private String messageFor(VerificationResult result) {
+        if (result.getMetadata() != null && result.getMetadata().getStatusMessage() != null) {
+            return result.getMetadata().getStatusMessage();
+        }
+        if (result.getStatus() == VerificationResult.ValidationStatus.PENDING) {
+            return "Verification accepted";
+        }
+        if (result.getStatus() == VerificationResult.ValidationStatus.PROCESSING) {
+            return "Verification in progress";
+        }
+        if (result.getStatus() == VerificationResult.ValidationStatus.MANUAL_REVIEW) {
+            return result.getFraudTypes() == null || result.getFraudTypes().isEmpty()
+                    ? "Manual review required"
+                    : "Manual review required: " + String.join(", ", result.getFraudTypes());
+        }
+        return result.isFraudDetected() ? 
+                "Fraud detected: " + String.join(", ", result.getFraudTypes()) : 
+                "Verification successful";
+    }
+    
+    /**
+     * Outcome of a flow before persistence: either a final response (validation failure or cached
+     * verdict) or a result that still has to be saved and then passed to {@link #complete}
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    static class Evaluation {
+        private final VerificationResponse response;
+        private final VerificationResult result;
+        private final String cacheKey;
+        
+        static Evaluation done(VerificationResponse response) {
+            return new Evaluation(response, null, null);
+        }
+        
+        static Evaluation pending(VerificationResult result, String cacheKey) {
+            return new Evaluation(null, result, cacheKey);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.quod.biometric.service;
+
+import lombok.Getter;
+
+/**
+ * Pixels of an image scaled down to the detector resolution, held in a raster borrowed from the
+ * {@link ImageDecoder} pool. Only read it between {@link SharedDecode#acquire()} and
+ * {@link SharedDecode#release()}; the raster is reused once the last reader released it.
+ */
+@Getter
+public class DecodedImage {
+
+    private final int width;
+    private final int height;
+    @Getter(lombok.AccessLevel.NONE)
+    private final int[] raster; // 0xRRGGBB, row by row; pooled, so it may be longer than width * height
+    @Getter(lombok.AccessLevel.NONE)
+    private final ImageDecoder.Buffers buffers;
+
+    DecodedImage(int width, int height, ImageDecoder.Buffers buffers) {
+        this.width = width;
+        this.height = height;
+        this.raster = buffers.raster;
+        this.buffers = buffers;
+    }
+
+    /**
+     * @return The pixel as 0xRRGGBB
+     */
+    public int rgb(int x, int y) {
+        return raster[y * width + x];
+    }
+
+    ImageDecoder.Buffers buffers() {
+        return buffers;
+    }
+}
@@ -0,0 +1,73 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of fraud detection for one verification: the decided {@link RiskScorecard} and what the checks
+ * left behind for the stored result (timings, checks that did not finish, velocity counts, face hash).
+ */
+@Getter
+public class FraudAssessment {
+
+    private final RiskScorecard scorecard;
+    private final Map<String, Long> checkTimingsMicros;
+    private final List<String> timedOutChecks;
+    private final List<String> cancelledChecks;
+    private final List<String> failedChecks;
+    private final Map<String, Long> velocity;
+    private final Long facePerceptualHash;
+    private final String nearDuplicateOf;
+
+    FraudAssessment(RiskScorecard scorecard, FraudCheckExecutor.Report report, Map<String, Long> velocity,
+                    Long facePerceptualHash, String nearDuplicateOf) {
+        this.scorecard = scorecard;
+        this.checkTimingsMicros = report.getTimingsMicros();
+        this.timedOutChecks = report.getTimedOutChecks();
+        this.cancelledChecks = report.getCancelledChecks();
+        this.failedChecks = report.getFailedChecks();
+        this.velocity = velocity;
+        this.facePerceptualHash = facePerceptualHash;
+        this.nearDuplicateOf = nearDuplicateOf;
+    }
+
+    public VerificationResult.ValidationStatus getStatus() {
+        return scorecard.getStatus();
+    }
+
+    /**
+     * @return Whether the verification was rejected or sent to manual review
+     */
+    public boolean isFraudDetected() {
+        return scorecard.getStatus() != VerificationResult.ValidationStatus.APPROVED;
+    }
+
+    /**
+     * @return The flagged signals
+     */
+    public ArrayList<String> getFraudTypes() {
+        return scorecard.flaggedTypes();
+    }
+
+    public double getRiskScore() {
+        return scorecard.getRiskScore();
+    }
+
+    /**
+     * @return Score of every signal that ran, by fraud type
+     */
+    public Map<String, Double> getSignalScores() {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (RiskSignal signal : RiskSignal.values()) {
+            if (scorecard.isScored(signal)) {
+                scores.put(signal.name(), scorecard.getScore(signal));
+            }
+        }
+        return scores;
+    }
+}
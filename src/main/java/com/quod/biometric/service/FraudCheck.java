@@ -0,0 +1,27 @@
+package com.quod.biometric.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * A single fraud check run by the {@link FraudCheckExecutor}
+ */
+@Getter
+@RequiredArgsConstructor
+public class FraudCheck {
+
+    /** Fraud type reported when the check's score reaches the flag threshold */
+    private final String fraudType;
+
+    /** Maximum time the check may run before it is cancelled */
+    private final Duration deadline;
+
+    /** Score at which the check counts as detected (see {@link RiskRules.Compiled#flagThreshold}) */
+    private final double flagThreshold;
+
+    /** Returns the risk score, from 0 (no sign of fraud) to 1 */
+    private final Callable<Double> detector;
+}
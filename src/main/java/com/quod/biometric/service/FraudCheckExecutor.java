@@ -0,0 +1,176 @@
+package com.quod.biometric.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs independent fraud checks in parallel on a bounded pool (or on virtual threads, see {@link PipelineThreads}).
+ * Each check is cancelled once its deadline passes; in short-circuit mode the remaining checks are
+ * cancelled as soon as one of the decisive fraud types is detected.
+ */
+@Component
+@Slf4j
+public class FraudCheckExecutor {
+
+    private final ExecutorService executor;
+    private final boolean shortCircuit;
+    private final Set<String> decisiveFraudTypes;
+    private final VerificationMetrics verificationMetrics;
+
+    public FraudCheckExecutor(
+            PipelineThreads pipelineThreads,
+            VerificationMetrics verificationMetrics,
+            @Value("${fraud-detection.executor.threads:8}") int threads,
+            @Value("${fraud-detection.executor.queue-capacity:1000}") int queueCapacity,
+            @Value("${fraud-detection.short-circuit:false}") boolean shortCircuit,
+            @Value("${fraud-detection.decisive-types:}") List<String> decisiveFraudTypes) {
+        this.executor = pipelineThreads.newExecutor("fraud-check-", threads, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.shortCircuit = shortCircuit;
+        this.decisiveFraudTypes = Set.copyOf(decisiveFraudTypes);
+        this.verificationMetrics = verificationMetrics;
+    }
+
+    /**
+     * Runs the given checks concurrently and waits until each one completed, timed out or was cancelled
+     * @param checks The checks to run
+     * @return Report with the scores, the detected fraud types (in check order) and per-check timing
+     */
+    public Report run(List<FraudCheck> checks) {
+        Report report = new Report();
+        CompletionService<CheckOutcome> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<CheckOutcome>, FraudCheck> pending = new LinkedHashMap<>();
+        long start = System.nanoTime();
+
+        for (FraudCheck check : checks) {
+            try {
+                pending.put(completionService.submit(() -> runCheck(check)), check);
+            } catch (RejectedExecutionException e) {
+                log.warn("Fraud check executor saturated, skipping check: {}", check.getFraudType());
+                report.failedChecks.add(check.getFraudType());
+            }
+        }
+
+        boolean decided = false;
+        while (!pending.isEmpty() && !decided) {
+            long waitNanos = nearestDeadline(pending.values(), start) - System.nanoTime();
+            Future<CheckOutcome> completed;
+            try {
+                completed = waitNanos > 0 ? completionService.poll(waitNanos, TimeUnit.NANOSECONDS) : completionService.poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (completed == null) {
+                cancelExpired(pending, start, report);
+                continue;
+            }
+            FraudCheck check = pending.remove(completed);
+            if (check == null) {
+                continue; // already cancelled after its deadline
+            }
+            try {
+                CheckOutcome outcome = completed.get();
+                report.timingsMicros.put(check.getFraudType(), outcome.elapsedMicros);
+                report.scores.put(check.getFraudType(), outcome.score);
+                if (outcome.score >= check.getFlagThreshold()) {
+                    report.detected.add(check.getFraudType());
+                    decided = shortCircuit && decisiveFraudTypes.contains(check.getFraudType());
+                }
+            } catch (ExecutionException e) {
+                log.error("Fraud check {} failed", check.getFraudType(), e.getCause());
+                report.failedChecks.add(check.getFraudType());
+            } catch (InterruptedException | CancellationException e) {
+                report.cancelledChecks.add(check.getFraudType());
+            }
+        }
+
+        pending.forEach((future, check) -> {
+            future.cancel(true);
+            report.cancelledChecks.add(check.getFraudType());
+        });
+        report.detected.sort(Comparator.comparingInt(fraudType -> indexOf(checks, fraudType)));
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CheckOutcome runCheck(FraudCheck check) throws Exception {
+        long checkStart = System.nanoTime();
+        String outcome = null; // stays null for checks cancelled at their deadline, recorded as timeouts by the caller
+        try {
+            double score = check.getDetector().call();
+            outcome = score >= check.getFlagThreshold() ? "detected" : "clear";
+            return new CheckOutcome(score, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - checkStart));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            outcome = "failed";
+            throw e;
+        } finally {
+            if (outcome != null && !Thread.currentThread().isInterrupted()) {
+                verificationMetrics.fraudCheck(check.getFraudType(), outcome)
+                        .record(System.nanoTime() - checkStart, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static long nearestDeadline(Collection<FraudCheck> checks, long start) {
+        long nearest = Long.MAX_VALUE;
+        for (FraudCheck check : checks) {
+            nearest = Math.min(nearest, start + check.getDeadline().toNanos());
+        }
+        return nearest;
+    }
+
+    private void cancelExpired(Map<Future<CheckOutcome>, FraudCheck> pending, long start, Report report) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Future<CheckOutcome>, FraudCheck>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Future<CheckOutcome>, FraudCheck> entry = iterator.next();
+            FraudCheck check = entry.getValue();
+            if (now - start >= check.getDeadline().toNanos()) {
+                entry.getKey().cancel(true);
+                log.warn("Fraud check {} exceeded its deadline of {} ms", check.getFraudType(), check.getDeadline().toMillis());
+                report.timedOutChecks.add(check.getFraudType());
+                verificationMetrics.fraudCheck(check.getFraudType(), "timeout").record(now - start, TimeUnit.NANOSECONDS);
+                iterator.remove();
+            }
+        }
+    }
+
+    private static int indexOf(List<FraudCheck> checks, String fraudType) {
+        for (int i = 0; i < checks.size(); i++) {
+            if (checks.get(i).getFraudType().equals(fraudType)) {
+                return i;
+            }
+        }
+        return checks.size();
+    }
+
+    private record CheckOutcome(double score, long elapsedMicros) {
+    }
+
+    /**
+     * Outcome of one {@link #run(List)} call
+     */
+    @Getter
+    public static class Report {
+        private final List<String> detected = new ArrayList<>();
+        private final Map<String, Double> scores = new LinkedHashMap<>();
+        private final Map<String, Long> timingsMicros = new LinkedHashMap<>();
+        private final List<String> timedOutChecks = new ArrayList<>();
+        private final List<String> cancelledChecks = new ArrayList<>();
+        private final List<String> failedChecks = new ArrayList<>();
+    }
+}
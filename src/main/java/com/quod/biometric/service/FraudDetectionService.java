@@ -1,109 +1,229 @@
 package com.quod.biometric.service;
 
-import lombok.RequiredArgsConstructor;
+import com.quod.biometric.model.VerificationResult;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.util.*;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class FraudDetectionService {
 
+    private final FraudCheckExecutor fraudCheckExecutor;
+    private final PerceptualHasher perceptualHasher;
+    private final ImageDecoder imageDecoder;
+    private final NearDuplicateIndex nearDuplicateIndex;
+    private final VelocityEngine velocityEngine;
+    private final VerificationMetrics verificationMetrics;
+    private final RiskEngine riskEngine;
+    private final Environment environment;
+    private final Duration defaultCheckDeadline;
+    private final boolean nearDuplicateEnabled;
+    private final int nearDuplicateMaxDistance;
+
+    public FraudDetectionService(
+            FraudCheckExecutor fraudCheckExecutor,
+            PerceptualHasher perceptualHasher,
+            ImageDecoder imageDecoder,
+            NearDuplicateIndex nearDuplicateIndex,
+            VelocityEngine velocityEngine,
+            VerificationMetrics verificationMetrics,
+            RiskEngine riskEngine,
+            Environment environment,
+            @Value("${fraud-detection.check-deadline:500ms}") Duration defaultCheckDeadline,
+            @Value("${near-duplicate.enabled:true}") boolean nearDuplicateEnabled,
+            @Value("${near-duplicate.max-distance:6}") int nearDuplicateMaxDistance) {
+        this.fraudCheckExecutor = fraudCheckExecutor;
+        this.perceptualHasher = perceptualHasher;
+        this.imageDecoder = imageDecoder;
+        this.nearDuplicateIndex = nearDuplicateIndex;
+        this.velocityEngine = velocityEngine;
+        this.verificationMetrics = verificationMetrics;
+        this.riskEngine = riskEngine;
+        this.environment = environment;
+        this.defaultCheckDeadline = defaultCheckDeadline;
+        this.nearDuplicateEnabled = nearDuplicateEnabled;
+        this.nearDuplicateMaxDistance = nearDuplicateMaxDistance;
+    }
+
+    /**
+     * Counts an attempt towards the velocity limits; done once per verification, before the verdict cache is consulted
+     * @param attempt Who submitted the images and from where
+     * @return The velocity report passed on to detection, or null when velocity checks are disabled
+     */
+    public VelocityEngine.Report recordAttempt(VerificationAttempt attempt) {
+        return velocityEngine.record(attempt);
+    }
+
     /**
      * Detects potential fraud in facial biometry images
      * @param image The face image to validate
-     * @return Map with fraud detection results
+     * @param velocity The report of {@link #recordAttempt}, may be null
+     * @param reusedByAnotherUser Whether the same image was already submitted under another user ID
+     * @return The decided assessment
      */
-    public Map<String, Object> detectFacialFraud(MultipartFile image) {
-        Map<String, Object> result = new HashMap<>();
-        List<String> detectedFrauds = new ArrayList<>();
-        
-        // Simulate checking for deepfake (in real application, would use ML/AI)
-        if (simulateFraudDetection("DEEPFAKE", 0.5)) {
-            detectedFrauds.add("DEEPFAKE");
-        }
-        
-        // Simulate checking for mask
-        if (simulateFraudDetection("MASK", 0.5)) {
-            detectedFrauds.add("MASK");
+    public FraudAssessment detectFacialFraud(IngestedImage image, VelocityEngine.Report velocity, boolean reusedByAnotherUser) {
+        RiskRules.Compiled rules = riskEngine.current();
+        // The checks that read pixels share one decode of the face, decoded when the first of them needs it
+        try (SharedDecode face = imageDecoder.share(image)) {
+            NearDuplicateCheck nearDuplicateCheck = new NearDuplicateCheck(face, rules);
+            List<FraudCheck> checks = new ArrayList<>(List.of(
+                    // Simulate checking for deepfake (in real application, would use ML/AI)
+                    simulatedCheck(rules, "DEEPFAKE"),
+                    // Simulate checking for mask
+                    simulatedCheck(rules, "MASK"),
+                    // Simulate checking for photo-of-photo
+                    simulatedCheck(rules, "PHOTO_OF_PHOTO")
+            ));
+            if (nearDuplicateEnabled) {
+                checks.add(nearDuplicateCheck.toFraudCheck());
+            }
+            return assess(VerificationResult.VerificationType.FACIAL_BIOMETRY, rules, checks, velocity,
+                    reusedByAnotherUser, nearDuplicateCheck);
         }
-        
-        // Simulate checking for photo-of-photo
-        if (simulateFraudDetection("PHOTO_OF_PHOTO", 0.5)) {
-            detectedFrauds.add("PHOTO_OF_PHOTO");
-        }
-        
-        result.put("fraudDetected", !detectedFrauds.isEmpty());
-        result.put("fraudTypes", detectedFrauds);
-        
-        return result;
     }
-    
+
     /**
      * Detects potential fraud in fingerprint biometry images
      * @param image The fingerprint image to validate
-     * @return Map with fraud detection results
+     * @param velocity The report of {@link #recordAttempt}, may be null
+     * @param reusedByAnotherUser Whether the same image was already submitted under another user ID
+     * @return The decided assessment
      */
-    public Map<String, Object> detectFingerprintFraud(MultipartFile image) {
-        Map<String, Object> result = new HashMap<>();
-        List<String> detectedFrauds = new ArrayList<>();
-        
-        // Simulate checking for synthetic fingerprint
-        if (simulateFraudDetection("SYNTHETIC_FINGERPRINT", 0.5)) {
-            detectedFrauds.add("SYNTHETIC_FINGERPRINT");
-        }
-        
-        // Simulate checking for rubber/silicone replica
-        if (simulateFraudDetection("FINGERPRINT_REPLICA", 0.5)) {
-            detectedFrauds.add("FINGERPRINT_REPLICA");
-        }
-        
-        result.put("fraudDetected", !detectedFrauds.isEmpty());
-        result.put("fraudTypes", detectedFrauds);
-        
-        return result;
+    public FraudAssessment detectFingerprintFraud(IngestedImage image, VelocityEngine.Report velocity, boolean reusedByAnotherUser) {
+        RiskRules.Compiled rules = riskEngine.current();
+        return assess(VerificationResult.VerificationType.FINGERPRINT_BIOMETRY, rules, List.of(
+                // Simulate checking for synthetic fingerprint
+                simulatedCheck(rules, "SYNTHETIC_FINGERPRINT"),
+                // Simulate checking for rubber/silicone replica
+                simulatedCheck(rules, "FINGERPRINT_REPLICA")
+        ), velocity, reusedByAnotherUser, null);
     }
-    
+
     /**
      * Detects potential fraud in document images
      * @param documentImage The document image to validate
      * @param faceImage The face image to compare against document
-     * @return Map with fraud detection results
+     * @param velocity The report of {@link #recordAttempt}, may be null
+     * @param reusedByAnotherUser Whether the same images were already submitted under another user ID
+     * @return The decided assessment
+     */
+    public FraudAssessment detectDocumentFraud(IngestedImage documentImage, IngestedImage faceImage,
+                                               VelocityEngine.Report velocity, boolean reusedByAnotherUser) {
+        RiskRules.Compiled rules = riskEngine.current();
+        try (SharedDecode face = imageDecoder.share(faceImage)) {
+            NearDuplicateCheck nearDuplicateCheck = new NearDuplicateCheck(face, rules);
+            List<FraudCheck> checks = new ArrayList<>(List.of(
+                    // Simulate checking for doctored document
+                    simulatedCheck(rules, "DOCTORED_DOCUMENT"),
+                    // Simulate checking for fake document
+                    simulatedCheck(rules, "FAKE_DOCUMENT"),
+                    // Simulate checking for face mismatch with document
+                    simulatedCheck(rules, "FACE_DOCUMENT_MISMATCH")
+            ));
+            if (nearDuplicateEnabled) {
+                checks.add(nearDuplicateCheck.toFraudCheck());
+            }
+            return assess(VerificationResult.VerificationType.DOCUMENT_ANALYSIS, rules, checks, velocity,
+                    reusedByAnotherUser, nearDuplicateCheck);
+        }
+    }
+
+    /**
+     * Registers an accepted face image so later submissions of a near-identical photo are flagged
+     * @param facePerceptualHash The hash returned in the fraud detection result, may be null
+     */
+    public void registerAcceptedFace(Long facePerceptualHash, String userId, String verificationId) {
+        if (nearDuplicateEnabled && facePerceptualHash != null) {
+            nearDuplicateIndex.add(facePerceptualHash, userId, verificationId);
+        }
+    }
+
+    /**
+     * Runs the checks in parallel, scores every signal that ran and decides with the given rules
      */
-    public Map<String, Object> detectDocumentFraud(MultipartFile documentImage, MultipartFile faceImage) {
-        Map<String, Object> result = new HashMap<>();
-        List<String> detectedFrauds = new ArrayList<>();
-        
-        // Simulate checking for doctored document
-        if (simulateFraudDetection("DOCTORED_DOCUMENT", 0.5)) {
-            detectedFrauds.add("DOCTORED_DOCUMENT");
+    private FraudAssessment assess(VerificationResult.VerificationType type,
+                                   RiskRules.Compiled rules,
+                                   List<FraudCheck> checks,
+                                   VelocityEngine.Report velocity,
+                                   boolean reusedByAnotherUser,
+                                   NearDuplicateCheck nearDuplicateCheck) {
+        FraudCheckExecutor.Report report = verificationMetrics.stage(VerificationMetrics.FRAUD_DETECTION)
+                .record(() -> fraudCheckExecutor.run(checks));
+
+        RiskScorecard scorecard = new RiskScorecard(type);
+        report.getScores().forEach((fraudType, score) -> scorecard.score(RiskSignal.valueOf(fraudType), score));
+        if (velocity != null) {
+            velocity.getScores().forEach((fraudType, score) -> scorecard.score(RiskSignal.valueOf(fraudType), score));
+        }
+        if (reusedByAnotherUser) {
+            scorecard.score(RiskSignal.CROSS_ACCOUNT_IMAGE_REUSE, 1.0);
         }
-        
-        // Simulate checking for fake document
-        if (simulateFraudDetection("FAKE_DOCUMENT", 0.5)) {
-            detectedFrauds.add("FAKE_DOCUMENT");
+        riskEngine.evaluate(rules, scorecard);
+
+        Long facePerceptualHash = nearDuplicateCheck != null ? nearDuplicateCheck.hash : null;
+        String nearDuplicateOf = nearDuplicateCheck != null && nearDuplicateCheck.match != null
+                && scorecard.isFlagged(RiskSignal.NEAR_DUPLICATE_FACE) ? nearDuplicateCheck.match.getVerificationId() : null;
+        return new FraudAssessment(scorecard, report, velocity != null ? velocity.getCounts() : null,
+                facePerceptualHash, nearDuplicateOf);
+    }
+
+    private FraudCheck simulatedCheck(RiskRules.Compiled rules, String fraudType) {
+        return new FraudCheck(fraudType, checkDeadline(fraudType), rules.flagThreshold(RiskSignal.valueOf(fraudType)),
+                () -> simulateFraudDetection(fraudType));
+    }
+
+    /**
+     * Deadline for a check, overridable per fraud type with fraud-detection.check-deadlines.&lt;TYPE&gt;
+     */
+    private Duration checkDeadline(String fraudType) {
+        return environment.getProperty("fraud-detection.check-deadlines." + fraudType, Duration.class, defaultCheckDeadline);
+    }
+
+    /**
+     * Looks up the perceptual hash of a face image in the near-duplicate index; keeps the hash so
+     * the face can be registered once the verification is accepted
+     */
+    private class NearDuplicateCheck {
+
+        private final SharedDecode face;
+        private final RiskRules.Compiled rules;
+        private volatile Long hash;
+        private volatile NearDuplicateIndex.Match match;
+
+        private NearDuplicateCheck(SharedDecode face, RiskRules.Compiled rules) {
+            this.face = face;
+            this.rules = rules;
         }
-        
-        // Simulate checking for face mismatch with document
-        if (simulateFraudDetection("FACE_DOCUMENT_MISMATCH", 0.5)) {
-            detectedFrauds.add("FACE_DOCUMENT_MISMATCH");
+
+        private FraudCheck toFraudCheck() {
+            return new FraudCheck("NEAR_DUPLICATE_FACE", checkDeadline("NEAR_DUPLICATE_FACE"),
+                    rules.flagThreshold(RiskSignal.NEAR_DUPLICATE_FACE), () -> {
+                DecodedImage pixels = face.acquire();
+                try {
+                    hash = pixels != null ? perceptualHasher.hash(pixels) : null;
+                } finally {
+                    face.release();
+                }
+                if (hash == null) {
+                    return 0.0;
+                }
+                match = nearDuplicateIndex.findNearest(hash, nearDuplicateMaxDistance);
+                return match != null ? 1.0 : 0.0;
+            });
         }
-        
-        result.put("fraudDetected", !detectedFrauds.isEmpty());
-        result.put("fraudTypes", detectedFrauds);
-        
-        return result;
     }
-    
+
     /**
-     * Helper method to simulate fraud detection with a certain probability
+     * Helper method to simulate fraud detection with a random score
      * In a real application, this would be replaced with actual ML/AI-based detection
      */
-    private boolean simulateFraudDetection(String fraudType, double probability) {
-        log.info("Checking for fraud type: {}", fraudType);
-        return Math.random() < probability;
+    private double simulateFraudDetection(String fraudType) {
+        log.debug("Checking for fraud type: {}", fraudType);
+        return Math.random();
     }
-} 
\ No newline at end of file
+}
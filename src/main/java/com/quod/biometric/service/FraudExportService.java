@@ -0,0 +1,150 @@
+package com.quod.biometric.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.quod.biometric.dto.FraudCaseRecord;
+import com.quod.biometric.exception.InvalidRequestException;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Streams fraud cases as NDJSON, optionally gzip-compressed.
+ * Documents are read from a server-side cursor one batch at a time and each record is serialized
+ * straight to the output, so memory use does not grow with the number of exported cases. A slow
+ * client blocks the writer, which in turn stops fetching further batches.
+ */
+@Service
+@Slf4j
+public class FraudExportService {
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final String[] EXPORTED_FIELDS = {
+            "userId", "verificationType", "processedAt", "fraudTypes", "status", "metadata"};
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectWriter recordWriter;
+    private final int cursorBatchSize;
+    private final Counter exportedRecords;
+    private final Timer exportTime;
+
+    public FraudExportService(
+            MongoTemplate mongoTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${verification.export.cursor-batch-size:1000}") int cursorBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.recordWriter = objectMapper.writerFor(FraudCaseRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.cursorBatchSize = cursorBatchSize;
+        this.exportedRecords = meterRegistry.counter("verification.export.records");
+        this.exportTime = Timer.builder("verification.export").register(meterRegistry);
+    }
+
+    /**
+     * Rejects filters that cannot match, before the response is started
+     * @param from Optional lower bound of processedAt (inclusive)
+     * @param to Optional upper bound of processedAt (exclusive)
+     * @param verificationType Optional type filter
+     */
+    public void checkFilter(LocalDateTime from, LocalDateTime to, String verificationType) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new InvalidRequestException("from must be before to");
+        }
+        if (verificationType != null) {
+            VerificationHistoryService.parseType(verificationType);
+        }
+    }
+
+    /**
+     * Writes every matching fraud case, oldest first, one JSON object per line
+     * @param from Optional lower bound of processedAt (inclusive)
+     * @param to Optional upper bound of processedAt (exclusive)
+     * @param verificationType Optional type filter
+     * @param gzip Whether to gzip the output
+     * @param output The response stream; closed when done
+     * @return Number of exported cases
+     * @throws IOException If writing fails, e.g. because the client went away
+     */
+    public long export(LocalDateTime from, LocalDateTime to, String verificationType, boolean gzip,
+                       OutputStream output) throws IOException {
+        Query query = fraudCaseQuery(from, to, verificationType);
+        long start = System.nanoTime();
+        long count = 0;
+        try (OutputStream target = gzip ? new GZIPOutputStream(output, OUTPUT_BUFFER_SIZE) : new BufferedOutputStream(output, OUTPUT_BUFFER_SIZE);
+             Stream<VerificationResult> results = mongoTemplate.stream(query, VerificationResult.class);
+             JsonGenerator generator = recordWriter.getFactory().createGenerator(target)) {
+            generator.setRootValueSeparator(null);
+            Iterator<VerificationResult> iterator = results.iterator();
+            while (iterator.hasNext()) {
+                recordWriter.writeValue(generator, toRecord(iterator.next()));
+                generator.writeRaw('\n');
+                count++;
+            }
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            exportedRecords.increment(count);
+            exportTime.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            double seconds = Math.max(elapsedNanos, 1) / 1e9;
+            log.info("Exported {} fraud cases in {} ms ({} records/s)", count,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(count / seconds));
+        }
+        return count;
+    }
+
+    private Query fraudCaseQuery(LocalDateTime from, LocalDateTime to, String verificationType) {
+        // fraudDetected = true matches the partial filter of the fraud_queue index, which also gives the order
+        Criteria criteria = where("fraudDetected").is(true);
+        if (from != null || to != null) {
+            Criteria processedAt = criteria.and("processedAt");
+            if (from != null) {
+                processedAt.gte(from);
+            }
+            if (to != null) {
+                processedAt.lt(to);
+            }
+        }
+        if (verificationType != null) {
+            criteria.and("verificationType").is(VerificationHistoryService.parseType(verificationType));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "processedAt", "id"))
+                .cursorBatchSize(cursorBatchSize)
+                .noCursorTimeout(); // the client sets the pace, so a batch may take longer than the idle timeout
+        query.fields().include(EXPORTED_FIELDS);
+        return query;
+    }
+
+    private static FraudCaseRecord toRecord(VerificationResult result) {
+        return FraudCaseRecord.builder()
+                .id(result.getId())
+                .userId(result.getUserId())
+                .verificationType(result.getVerificationType())
+                .processedAt(result.getProcessedAt())
+                .fraudTypes(result.getFraudTypes())
+                .status(result.getStatus())
+                .metadata(result.getMetadata())
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of direct buffers, each large enough for the biggest accepted upload.
+ * Buffers are allocated lazily up to the pool size and reused across requests; when all of them
+ * are in use an exactly sized heap buffer is handed out instead, so callers never block.
+ */
+@Component
+public class ImageBufferPool {
+
+    private final int bufferCapacity;
+    private final int poolSize;
+    private final BlockingQueue<ByteBuffer> available;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final Counter misses;
+
+    public ImageBufferPool(
+            @Value("${image.validation.max-size}") long maxFileSize,
+            @Value("${image.ingest.pool-size:16}") int poolSize,
+            MeterRegistry meterRegistry) {
+        this.bufferCapacity = Math.toIntExact(maxFileSize);
+        this.poolSize = poolSize;
+        this.available = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.misses = meterRegistry.counter("image.buffer.pool.misses");
+        Gauge.builder("image.buffer.pool.available", available, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("image.buffer.pool.allocated", allocated, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Hands out a cleared buffer with room for at least the given number of bytes
+     * @param size Number of bytes the caller will write
+     * @return A pooled direct buffer, or a heap buffer if the pool is exhausted or size exceeds the pooled capacity
+     */
+    public ByteBuffer acquire(int size) {
+        if (size <= bufferCapacity) {
+            ByteBuffer buffer = available.poll();
+            if (buffer == null && allocated.getAndUpdate(count -> count < poolSize ? count + 1 : count) < poolSize) {
+                buffer = ByteBuffer.allocateDirect(bufferCapacity);
+            }
+            if (buffer != null) {
+                return buffer.clear();
+            }
+        }
+        misses.increment();
+        return ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire(int)}; heap buffers are simply dropped
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == bufferCapacity) {
+            available.offer(buffer);
+        }
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+}
@@ -0,0 +1,227 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes images for the fraud detectors at a fixed resolution, the longer side scaled to
+ * image.decode.size pixels. The reader subsamples the source while decoding, so an upload never exists
+ * at full resolution in memory, and the result is box-filtered into a pooled raster. The raster is pooled
+ * together with the row and sum buffers of the filter, so a decode from the pool allocates only what the
+ * image reader does. Each image is decoded at most once per request, see {@link #share}.
+ *
+ * Decodes in progress share image.decode.memory-budget bytes, each taking the size of its subsampled
+ * intermediate; a decode that cannot get its part within image.decode.budget-timeout fails (failing the
+ * check that needed it) rather than adding to the heap.
+ *
+ * Meters: image.decode.budget.used (bytes), image.decode.rejected, image.decode.raster.pool.available,
+ * image.decode.raster.pool.allocated and image.decode.raster.pool.misses.
+ */
+@Component
+@Slf4j
+public class ImageDecoder {
+
+    private static final int BYTES_PER_PIXEL = 4; // upper bound for the decoded intermediate (ARGB)
+
+    private final int size;
+    private final int budgetKib;
+    private final Semaphore budget;
+    private final long budgetTimeoutNanos;
+    private final int poolSize;
+    private final BlockingQueue<Buffers> rasters;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final Counter rejected;
+    private final Counter poolMisses;
+
+    public ImageDecoder(
+            MeterRegistry meterRegistry,
+            @Value("${image.decode.size:224}") int size,
+            @Value("${image.decode.memory-budget:33554432}") long memoryBudget,
+            @Value("${image.decode.budget-timeout:200ms}") Duration budgetTimeout,
+            @Value("${image.decode.pool-size:32}") int poolSize) {
+        this.size = size;
+        this.budgetKib = (int) Math.min(Integer.MAX_VALUE, memoryBudget / 1024);
+        this.budget = new Semaphore(budgetKib, true);
+        this.budgetTimeoutNanos = budgetTimeout.toNanos();
+        this.poolSize = poolSize;
+        this.rasters = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.rejected = meterRegistry.counter("image.decode.rejected");
+        this.poolMisses = meterRegistry.counter("image.decode.raster.pool.misses");
+        Gauge.builder("image.decode.budget.used", budget, permits -> (budgetKib - permits.availablePermits()) * 1024.0)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("image.decode.raster.pool.available", rasters, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("image.decode.raster.pool.allocated", allocated, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * @return A decode of the image, done on first use and shared until the caller closes it
+     */
+    public SharedDecode share(IngestedImage image) {
+        return new SharedDecode(this, image);
+    }
+
+    /**
+     * @return The decoded image in a pooled raster, or null if the image cannot be decoded
+     * @throws RejectedExecutionException If the memory budget stayed exhausted
+     */
+    DecodedImage decode(IngestedImage image) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image.openStream())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Coarsest subsampling that still leaves at least size pixels on the longer side
+                int subsampling = Math.max(1, Math.max(width, height) / size);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                long intermediateBytes = (long) ceilDiv(width, subsampling) * ceilDiv(height, subsampling) * BYTES_PER_PIXEL;
+                int kib = (int) Math.min(Integer.MAX_VALUE, ceilDiv(intermediateBytes, 1024));
+                acquireBudget(kib);
+                try {
+                    return scale(reader.read(0, param));
+                } finally {
+                    budget.release(kib);
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            log.debug("Unable to decode image: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the raster of a decode nobody reads any more, if it came from the pool
+     */
+    void recycle(DecodedImage image) {
+        Buffers buffers = image.buffers();
+        if (buffers.pooled && buffers.raster.length == size * size) {
+            rasters.offer(buffers);
+        }
+    }
+
+    private void acquireBudget(int kib) {
+        try {
+            if (kib <= budgetKib && budget.tryAcquire(kib, budgetTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        throw new RejectedExecutionException("Image decode memory budget exhausted");
+    }
+
+    /**
+     * Box-filters the image into a pooled raster that fits size x size, keeping the aspect ratio
+     */
+    private DecodedImage scale(BufferedImage source) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        int width;
+        int height;
+        if (sourceWidth >= sourceHeight) {
+            width = Math.min(size, sourceWidth);
+            height = Math.max(1, (int) ((long) sourceHeight * width / sourceWidth));
+        } else {
+            height = Math.min(size, sourceHeight);
+            width = Math.max(1, (int) ((long) sourceWidth * height / sourceHeight));
+        }
+
+        Buffers buffers = acquireBuffers();
+        if (buffers.row.length < sourceWidth) {
+            buffers.row = new int[sourceWidth];
+        }
+        int[] raster = buffers.raster;
+        int[] row = buffers.row;
+        long[] sums = buffers.sums;
+        for (int y = 0; y < height; y++) {
+            int fromY = (int) ((long) y * sourceHeight / height);
+            int toY = (int) ((long) (y + 1) * sourceHeight / height);
+            Arrays.fill(sums, 0, width * 3, 0);
+            for (int sourceY = fromY; sourceY < toY; sourceY++) {
+                source.getRGB(0, sourceY, sourceWidth, 1, row, 0, sourceWidth);
+                for (int x = 0; x < width; x++) {
+                    int fromX = (int) ((long) x * sourceWidth / width);
+                    int toX = (int) ((long) (x + 1) * sourceWidth / width);
+                    for (int sourceX = fromX; sourceX < toX; sourceX++) {
+                        int rgb = row[sourceX];
+                        sums[x * 3] += (rgb >> 16) & 0xFF;
+                        sums[x * 3 + 1] += (rgb >> 8) & 0xFF;
+                        sums[x * 3 + 2] += rgb & 0xFF;
+                    }
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                long pixels = (long) (toY - fromY) * ((long) (x + 1) * sourceWidth / width - (long) x * sourceWidth / width);
+                raster[y * width + x] = (int) (sums[x * 3] / pixels) << 16
+                        | (int) (sums[x * 3 + 1] / pixels) << 8
+                        | (int) (sums[x * 3 + 2] / pixels);
+            }
+        }
+        return new DecodedImage(width, height, buffers);
+    }
+
+    /**
+     * Rasters are allocated lazily up to the pool size; beyond it an unpooled one is handed out
+     */
+    private Buffers acquireBuffers() {
+        Buffers buffers = rasters.poll();
+        if (buffers != null) {
+            return buffers;
+        }
+        boolean pooled = allocated.getAndUpdate(count -> count < poolSize ? count + 1 : count) < poolSize;
+        if (!pooled) {
+            poolMisses.increment();
+        }
+        return new Buffers(size, pooled);
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * The output raster of a decode and the scratch buffers of its box filter
+     */
+    static final class Buffers {
+        final int[] raster;
+        final long[] sums; // per output column of the current row: red, green and blue
+        int[] row; // one row of the intermediate, grown when an intermediate is wider
+        final boolean pooled;
+
+        Buffers(int size, boolean pooled) {
+            this.raster = new int[size * size];
+            this.sums = new long[size * 3];
+            this.row = new int[2 * size]; // subsampling leaves fewer than 2 x size pixels on the longer side
+            this.pooled = pooled;
+        }
+    }
+}
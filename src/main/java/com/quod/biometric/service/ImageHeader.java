@@ -0,0 +1,47 @@
+package com.quod.biometric.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Format, dimensions and EXIF fields read from the first bytes of an image, without decoding pixels
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageHeader {
+
+    private Format format;
+    private int width;
+    private int height;
+    private LocalDateTime captureDate;
+    private String deviceManufacturer;
+    private String deviceModel;
+    private Double gpsLatitude;
+    private Double gpsLongitude;
+
+    public boolean hasDimensions() {
+        return width > 0 && height > 0;
+    }
+
+    public enum Format {
+        JPEG("image/jpeg"),
+        PNG("image/png"),
+        UNKNOWN(null);
+
+        private final String mimeType;
+
+        Format(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+}
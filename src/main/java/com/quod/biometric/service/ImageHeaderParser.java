@@ -0,0 +1,327 @@
+package com.quod.biometric.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Streaming parser for image headers.
+ * Identifies JPEG and PNG by their magic bytes, reads dimensions from the PNG IHDR chunk or the
+ * JPEG SOFn segment and EXIF fields from the JPEG APP1 segment. JPEG segments that are not needed
+ * are skipped and parsing stops at the start of the compressed image data, so only the header
+ * bytes of an upload are ever read.
+ */
+public final class ImageHeaderParser {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+    private static final DateTimeFormatter EXIF_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private static final int TAG_MAKE = 0x010F;
+    private static final int TAG_MODEL = 0x0110;
+    private static final int TAG_DATE_TIME = 0x0132;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_GPS_IFD = 0x8825;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_GPS_LATITUDE_REF = 1;
+    private static final int TAG_GPS_LATITUDE = 2;
+    private static final int TAG_GPS_LONGITUDE_REF = 3;
+    private static final int TAG_GPS_LONGITUDE = 4;
+
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_RATIONAL = 5;
+
+    private ImageHeaderParser() {
+    }
+
+    /**
+     * Parses the header of an image stream
+     * @param input The image stream, positioned at the first byte
+     * @param maxBytes Maximum number of bytes to consume before giving up on finding the dimensions
+     * @return The parsed header; format is UNKNOWN for anything that is not a JPEG or PNG
+     */
+    public static ImageHeader parse(InputStream input, int maxBytes) throws IOException {
+        BoundedInput in = new BoundedInput(input, maxBytes);
+        ImageHeader header = new ImageHeader();
+        header.setFormat(ImageHeader.Format.UNKNOWN);
+
+        int first = in.read();
+        int second = in.read();
+        if (first == 0xFF && second == 0xD8) {
+            header.setFormat(ImageHeader.Format.JPEG);
+            parseJpeg(in, header);
+        } else if (first == (PNG_SIGNATURE[0] & 0xFF) && second == PNG_SIGNATURE[1] && matchesRest(in, PNG_SIGNATURE, 2)) {
+            header.setFormat(ImageHeader.Format.PNG);
+            parsePng(in, header);
+        }
+        return header;
+    }
+
+    private static boolean matchesRest(BoundedInput in, byte[] expected, int offset) throws IOException {
+        for (int i = offset; i < expected.length; i++) {
+            if (in.read() != (expected[i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void parsePng(BoundedInput in, ImageHeader header) throws IOException {
+        in.readInt(); // IHDR chunk length
+        if (in.readInt() != 0x49484452) { // "IHDR" must be the first chunk
+            return;
+        }
+        header.setWidth(in.readInt());
+        header.setHeight(in.readInt());
+    }
+
+    private static void parseJpeg(BoundedInput in, ImageHeader header) throws IOException {
+        while (true) {
+            int marker = in.read();
+            if (marker != 0xFF) {
+                return; // not positioned on a marker: corrupt stream
+            }
+            while (marker == 0xFF) {
+                marker = in.read(); // fill bytes
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return; // end of image or start of scan: no more header segments
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue; // standalone markers without a length
+            }
+            int length = in.readUnsignedShort() - 2;
+            if (length < 0) {
+                return;
+            }
+            if (isStartOfFrame(marker)) {
+                in.read(); // sample precision
+                header.setHeight(in.readUnsignedShort());
+                header.setWidth(in.readUnsignedShort());
+                return;
+            }
+            if (marker == 0xE1 && length > EXIF_HEADER.length) {
+                byte[] segment = in.readBytes(length);
+                if (startsWith(segment, EXIF_HEADER)) {
+                    parseExif(ByteBuffer.wrap(segment, EXIF_HEADER.length, segment.length - EXIF_HEADER.length).slice(), header);
+                }
+            } else {
+                in.skip(length);
+            }
+        }
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads device, capture date and GPS fields from a TIFF structure; malformed EXIF data is ignored
+     */
+    private static void parseExif(ByteBuffer tiff, ImageHeader header) {
+        try {
+            if (tiff.remaining() < 8) {
+                return;
+            }
+            int byteOrder = tiff.getShort(0) & 0xFFFF;
+            if (byteOrder == 0x4949) {
+                tiff.order(ByteOrder.LITTLE_ENDIAN);
+            } else if (byteOrder == 0x4D4D) {
+                tiff.order(ByteOrder.BIG_ENDIAN);
+            } else {
+                return;
+            }
+            int ifd0 = tiff.getInt(4);
+            int exifIfd = -1;
+            int gpsIfd = -1;
+            String dateTime = null;
+
+            int entries = tiff.getShort(ifd0) & 0xFFFF;
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd0 + 2 + i * 12;
+                switch (tiff.getShort(entry) & 0xFFFF) {
+                    case TAG_MAKE -> header.setDeviceManufacturer(readAscii(tiff, entry));
+                    case TAG_MODEL -> header.setDeviceModel(readAscii(tiff, entry));
+                    case TAG_DATE_TIME -> dateTime = readAscii(tiff, entry);
+                    case TAG_EXIF_IFD -> exifIfd = (int) readUnsigned(tiff, entry);
+                    case TAG_GPS_IFD -> gpsIfd = (int) readUnsigned(tiff, entry);
+                    default -> { }
+                }
+            }
+
+            String dateTimeOriginal = exifIfd > 0 ? findAscii(tiff, exifIfd, TAG_DATE_TIME_ORIGINAL) : null;
+            header.setCaptureDate(parseDate(dateTimeOriginal != null ? dateTimeOriginal : dateTime));
+
+            if (gpsIfd > 0) {
+                parseGps(tiff, gpsIfd, header);
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Truncated or corrupt EXIF data: keep whatever was read so far
+        }
+    }
+
+    private static void parseGps(ByteBuffer tiff, int ifd, ImageHeader header) {
+        String latitudeRef = null;
+        String longitudeRef = null;
+        Double latitude = null;
+        Double longitude = null;
+
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            switch (tiff.getShort(entry) & 0xFFFF) {
+                case TAG_GPS_LATITUDE_REF -> latitudeRef = readAscii(tiff, entry);
+                case TAG_GPS_LATITUDE -> latitude = readDegrees(tiff, entry);
+                case TAG_GPS_LONGITUDE_REF -> longitudeRef = readAscii(tiff, entry);
+                case TAG_GPS_LONGITUDE -> longitude = readDegrees(tiff, entry);
+                default -> { }
+            }
+        }
+        if (latitude != null && longitude != null) {
+            header.setGpsLatitude("S".equals(latitudeRef) ? -latitude : latitude);
+            header.setGpsLongitude("W".equals(longitudeRef) ? -longitude : longitude);
+        }
+    }
+
+    private static String findAscii(ByteBuffer tiff, int ifd, int tag) {
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if ((tiff.getShort(entry) & 0xFFFF) == tag) {
+                return readAscii(tiff, entry);
+            }
+        }
+        return null;
+    }
+
+    private static String readAscii(ByteBuffer tiff, int entry) {
+        if ((tiff.getShort(entry + 2) & 0xFFFF) != TYPE_ASCII) {
+            return null;
+        }
+        int count = tiff.getInt(entry + 4);
+        int offset = count <= 4 ? entry + 8 : tiff.getInt(entry + 8);
+        if (count <= 0 || offset < 0 || offset + count > tiff.limit()) {
+            return null;
+        }
+        int length = 0;
+        while (length < count && tiff.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] value = new byte[length];
+        tiff.get(offset, value);
+        String text = new String(value, StandardCharsets.US_ASCII).trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static long readUnsigned(ByteBuffer tiff, int entry) {
+        int type = tiff.getShort(entry + 2) & 0xFFFF;
+        if (type == TYPE_SHORT) {
+            return tiff.getShort(entry + 8) & 0xFFFF;
+        }
+        if (type == TYPE_LONG) {
+            return tiff.getInt(entry + 8) & 0xFFFFFFFFL;
+        }
+        return -1;
+    }
+
+    private static Double readDegrees(ByteBuffer tiff, int entry) {
+        if ((tiff.getShort(entry + 2) & 0xFFFF) != TYPE_RATIONAL || tiff.getInt(entry + 4) != 3) {
+            return null;
+        }
+        int offset = tiff.getInt(entry + 8);
+        double degrees = rational(tiff, offset);
+        double minutes = rational(tiff, offset + 8);
+        double seconds = rational(tiff, offset + 16);
+        return degrees + minutes / 60 + seconds / 3600;
+    }
+
+    private static double rational(ByteBuffer tiff, int offset) {
+        long numerator = tiff.getInt(offset) & 0xFFFFFFFFL;
+        long denominator = tiff.getInt(offset + 4) & 0xFFFFFFFFL;
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value, EXIF_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Input stream wrapper that fails once more than the allowed number of bytes was consumed
+     */
+    private static final class BoundedInput {
+
+        private final InputStream input;
+        private final int maxBytes;
+        private int consumed;
+
+        private BoundedInput(InputStream input, int maxBytes) {
+            this.input = input;
+            this.maxBytes = maxBytes;
+        }
+
+        private int read() throws IOException {
+            claim(1);
+            int value = input.read();
+            if (value < 0) {
+                throw new EOFException("Unexpected end of image header");
+            }
+            return value;
+        }
+
+        private int readUnsignedShort() throws IOException {
+            return (read() << 8) | read();
+        }
+
+        private int readInt() throws IOException {
+            return (readUnsignedShort() << 16) | readUnsignedShort();
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            claim(length);
+            byte[] data = input.readNBytes(length);
+            if (data.length < length) {
+                throw new EOFException("Unexpected end of image header");
+            }
+            return data;
+        }
+
+        private void skip(int length) throws IOException {
+            claim(length);
+            input.skipNBytes(length);
+        }
+
+        private void claim(int length) throws IOException {
+            consumed += length;
+            if (consumed > maxBytes) {
+                throw new IOException("Image header exceeds " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.quod.biometric.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Service
+@Slf4j
+public class ImageIngestService {
+
+    private final ImageBufferPool bufferPool;
+    private final long maxFileSize;
+    private final int maxHeaderBytes;
+
+    public ImageIngestService(
+            ImageBufferPool bufferPool,
+            @Value("${image.validation.max-size}") long maxFileSize,
+            @Value("${image.validation.max-header-bytes:262144}") int maxHeaderBytes) {
+        this.bufferPool = bufferPool;
+        this.maxFileSize = maxFileSize;
+        this.maxHeaderBytes = maxHeaderBytes;
+    }
+
+    /**
+     * Reads an upload exactly once into a pooled buffer, computing its SHA-256 content hash and
+     * parsing its header on the way. Uploads larger than the maximum size are not read at all.
+     * @param file The uploaded file
+     * @return The ingested image; the caller must close it to return the buffer to the pool
+     */
+    public IngestedImage ingest(MultipartFile file) {
+        long size = file.getSize();
+        if (size > maxFileSize) {
+            return oversized(file.getOriginalFilename(), file.getContentType(), size);
+        }
+
+        ByteBuffer buffer = bufferPool.acquire((int) size);
+        try (InputStream input = file.getInputStream(); ReadableByteChannel channel = Channels.newChannel(input)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            buffer.limit((int) size);
+            while (buffer.hasRemaining()) {
+                int start = buffer.position();
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                digest.update(buffer.duplicate().position(start).limit(buffer.position()));
+            }
+            int read = buffer.position();
+            buffer.flip();
+
+            return new IngestedImage(file.getOriginalFilename(), file.getContentType(), read, false,
+                    HexFormat.of().formatHex(digest.digest()), parseHeader(buffer), buffer, bufferPool::release);
+        } catch (IOException e) {
+            bufferPool.release(buffer);
+            throw new UncheckedIOException("Unable to read uploaded image", e);
+        } catch (NoSuchAlgorithmException e) {
+            bufferPool.release(buffer);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #ingest(MultipartFile)} for the reactive stack: data buffers
+     * are copied into a pooled buffer and hashed as they arrive, without waiting on any thread
+     * @param part The uploaded file part
+     * @return The ingested image; the caller must close it to return the buffer to the pool
+     */
+    public Mono<IngestedImage> ingest(FilePart part) {
+        MediaType contentType = part.headers().getContentType();
+        long declaredSize = part.headers().getContentLength();
+        return Mono.using(
+                () -> new PartReader(declaredSize >= 0 && declaredSize <= maxFileSize ? (int) declaredSize : (int) maxFileSize),
+                reader -> part.content()
+                        .doOnNext(reader::append)
+                        .then(Mono.fromCallable(() -> reader.finish(part.filename(), contentType != null ? contentType.toString() : null))),
+                PartReader::releaseUnlessHandedOff);
+    }
+
+    private IngestedImage oversized(String originalFilename, String contentType, long size) {
+        return new IngestedImage(originalFilename, contentType, size, true, null,
+                ImageHeader.builder().format(ImageHeader.Format.UNKNOWN).build(), ByteBuffer.allocate(0), buffer -> { });
+    }
+
+    private ImageHeader parseHeader(ByteBuffer data) {
+        try (InputStream input = IngestedImage.streamOf(data.asReadOnlyBuffer())) {
+            return ImageHeaderParser.parse(input, maxHeaderBytes);
+        } catch (IOException e) {
+            log.debug("Unable to read image header: {}", e.getMessage());
+            return ImageHeader.builder().format(ImageHeader.Format.UNKNOWN).build();
+        }
+    }
+
+    /**
+     * Accumulates the data buffers of one part; parts larger than the maximum size are counted but not kept
+     */
+    private final class PartReader {
+
+        private final ByteBuffer buffer;
+        private final MessageDigest digest;
+        private long size;
+        private boolean handedOff;
+
+        private PartReader(int expectedSize) throws NoSuchAlgorithmException {
+            this.buffer = bufferPool.acquire(expectedSize);
+            this.digest = MessageDigest.getInstance("SHA-256");
+        }
+
+        private void append(DataBuffer data) {
+            try {
+                int readable = data.readableByteCount();
+                size += readable;
+                if (size > maxFileSize || readable > buffer.remaining()) {
+                    return;
+                }
+                try (DataBuffer.ByteBufferIterator chunks = data.readableByteBuffers()) {
+                    while (chunks.hasNext()) {
+                        ByteBuffer chunk = chunks.next();
+                        digest.update(chunk.duplicate());
+                        buffer.put(chunk);
+                    }
+                }
+            } finally {
+                DataBufferUtils.release(data);
+            }
+        }
+
+        private IngestedImage finish(String originalFilename, String contentType) {
+            if (size > maxFileSize || size > buffer.position()) {
+                return oversized(originalFilename, contentType, size);
+            }
+            buffer.flip();
+            handedOff = true;
+            return new IngestedImage(originalFilename, contentType, size, false,
+                    HexFormat.of().formatHex(digest.digest()), parseHeader(buffer), buffer, bufferPool::release);
+        }
+
+        private void releaseUnlessHandedOff() {
+            if (!handedOff) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+/**
+ * Content-addressed store for submitted images, kept in GridFS under their SHA-256 content hash.
+ * Images are copied out of the pooled ingest buffer on the request thread and written behind by a
+ * small pool, so a verification only pays for the copy. The bytes waiting to be written are capped:
+ * beyond the cap, or when the store is disabled, an image is not kept and the verification simply has
+ * no reference. Content that is already stored, or already waiting to be written, is not written again.
+ * Images are deflated when that saves at least image.store.min-compression-gain of their size, which
+ * in practice is rare for JPEG and common for PNG screenshots and scans.
+ */
+@Service
+@Slf4j
+public class ImageStore {
+
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String COMPRESSION = "compression";
+    private static final String DEFLATE = "deflate";
+    private static final String SIZE = "size";
+
+    private final GridFsTemplate gridFsTemplate;
+    private final boolean enabled;
+    private final long maxBufferedBytes;
+    private final int chunkSize;
+    private final double minCompressionGain;
+    private final ExecutorService writers;
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final Set<String> pendingHashes = ConcurrentHashMap.newKeySet();
+    private final Counter storedImages;
+    private final Counter duplicateImages;
+    private final Counter droppedImages;
+    private final Counter failedImages;
+
+    public ImageStore(
+            GridFsTemplate gridFsTemplate,
+            PipelineThreads pipelineThreads,
+            MeterRegistry meterRegistry,
+            @Value("${image.store.enabled:true}") boolean enabled,
+            @Value("${image.store.writers:2}") int writerThreads,
+            @Value("${image.store.queue-capacity:1000}") int queueCapacity,
+            @Value("${image.store.max-buffered-bytes:67108864}") long maxBufferedBytes,
+            @Value("${image.store.chunk-size:261120}") int chunkSize,
+            @Value("${image.store.min-compression-gain:0.1}") double minCompressionGain) {
+        this.gridFsTemplate = gridFsTemplate;
+        this.enabled = enabled;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.chunkSize = chunkSize;
+        this.minCompressionGain = minCompressionGain;
+        this.writers = pipelineThreads.newExecutor("image-store-", writerThreads, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.storedImages = meterRegistry.counter("image.store.images", "outcome", "stored");
+        this.duplicateImages = meterRegistry.counter("image.store.images", "outcome", "duplicate");
+        this.droppedImages = meterRegistry.counter("image.store.images", "outcome", "dropped");
+        this.failedImages = meterRegistry.counter("image.store.images", "outcome", "failed");
+        Gauge.builder("image.store.buffered.bytes", bufferedBytes, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Queues an image to be stored unless its content is already stored or queued
+     * @param image A valid ingested image
+     * @return The reference to read the image back (its content hash), or null if it is not kept
+     */
+    public String store(IngestedImage image) {
+        String contentHash = image.getContentHash();
+        if (!enabled || contentHash == null || image.isOversized()) {
+            return null;
+        }
+        if (!pendingHashes.add(contentHash)) {
+            duplicateImages.increment();
+            return contentHash;
+        }
+        long size = image.getSize();
+        if (bufferedBytes.addAndGet(size) > maxBufferedBytes) {
+            release(contentHash, size);
+            droppedImages.increment();
+            return null;
+        }
+        try {
+            byte[] data = new byte[(int) size];
+            image.getData().get(data);
+            String contentType = image.getHeader().getFormat().getMimeType();
+            writers.execute(() -> {
+                try {
+                    write(contentHash, contentType, data);
+                } finally {
+                    release(contentHash, size);
+                }
+            });
+            return contentHash;
+        } catch (RejectedExecutionException e) {
+            release(contentHash, size);
+            droppedImages.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Opens a stored image for reading
+     * @param contentHash The image reference
+     * @return The image, whose stream the caller must close, or empty if no such image is stored
+     */
+    public Optional<StoredImage> open(String contentHash) {
+        if (!isReference(contentHash)) {
+            return Optional.empty();
+        }
+        var file = gridFsTemplate.findOne(query(whereFilename().is(contentHash)));
+        if (file == null) {
+            return Optional.empty();
+        }
+        Document metadata = file.getMetadata() != null ? file.getMetadata() : new Document();
+        try {
+            InputStream stream = gridFsTemplate.getResource(file).getInputStream();
+            if (DEFLATE.equals(metadata.getString(COMPRESSION))) {
+                stream = new InflaterInputStream(stream);
+            }
+            Number size = metadata.get(SIZE, Number.class);
+            return Optional.of(new StoredImage(contentHash, metadata.getString("_contentType"),
+                    size != null ? size.longValue() : file.getLength(), stream));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read stored image " + contentHash, e);
+        }
+    }
+
+    /**
+     * Reference format check, so malformed references are rejected without a query
+     */
+    public static boolean isReference(String value) {
+        return value != null && CONTENT_HASH.matcher(value).matches();
+    }
+
+    private void write(String contentHash, String contentType, byte[] data) {
+        try {
+            if (gridFsTemplate.findOne(query(whereFilename().is(contentHash))) != null) {
+                duplicateImages.increment();
+                return;
+            }
+            Document metadata = new Document(SIZE, (long) data.length);
+            byte[] stored = deflate(data);
+            if (stored != null) {
+                metadata.put(COMPRESSION, DEFLATE);
+            } else {
+                stored = data;
+            }
+            gridFsTemplate.store(GridFsUpload.fromStream(new ByteArrayInputStream(stored))
+                    .filename(contentHash)
+                    .contentType(contentType)
+                    .metadata(metadata)
+                    .chunkSize(chunkSize)
+                    .build());
+            storedImages.increment();
+        } catch (RuntimeException e) {
+            failedImages.increment();
+            log.error("Error storing image {}", contentHash, e);
+        }
+    }
+
+    /**
+     * @return The deflated bytes, or null if compression does not pay off
+     */
+    private byte[] deflate(byte[] data) {
+        int limit = (int) (data.length * (1 - minCompressionGain));
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] output = new byte[Math.max(limit, 0)];
+            int length = 0;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            return deflater.finished() ? Arrays.copyOf(output, length) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void release(String contentHash, long size) {
+        bufferedBytes.addAndGet(-size);
+        pendingHashes.remove(contentHash);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Let queued images reach the store before the connection pool closes
+        writers.shutdown();
+        if (!writers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Image store writers did not finish, {} bytes not stored", bufferedBytes.get());
+        }
+    }
+
+    /**
+     * A stored image as read back for reviewers
+     * @param contentType The detected content type
+     * @param size Size of the original image in bytes
+     * @param stream The original image bytes
+     */
+    public record StoredImage(String contentHash, String contentType, long size, InputStream stream) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.ImageMetadata;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of validating one image: the errors found and the metadata read from its header
+ */
+@Getter
+public class ImageValidation {
+
+    private final List<String> errors;
+    private final ImageMetadata metadata; // null when the file is empty or too large to be read
+
+    ImageValidation(List<String> errors, ImageMetadata metadata) {
+        this.errors = errors;
+        this.metadata = metadata;
+    }
+
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
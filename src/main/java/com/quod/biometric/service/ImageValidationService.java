@@ -1,10 +1,9 @@
 package com.quod.biometric.service;
 
-import lombok.RequiredArgsConstructor;
+import com.quod.biometric.model.ImageMetadata;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.util.*;
 
@@ -14,72 +13,90 @@ public class ImageValidationService {
 
     private final long maxFileSize;
     private final List<String> allowedFormats;
-    private final String minResolution;
+    private final int minWidth;
+    private final int minHeight;
+    private final VerificationMetrics verificationMetrics;
 
     public ImageValidationService(
+            VerificationMetrics verificationMetrics,
             @Value("${image.validation.max-size}") long maxFileSize,
             @Value("${image.validation.min-resolution}") String minResolution) {
         this.maxFileSize = maxFileSize;
-        this.minResolution = minResolution;
         this.allowedFormats = Arrays.asList("image/jpeg", "image/png");
+        String[] resolution = minResolution.toLowerCase(Locale.ROOT).split("x");
+        this.minWidth = Integer.parseInt(resolution[0].trim());
+        this.minHeight = Integer.parseInt(resolution[1].trim());
+        this.verificationMetrics = verificationMetrics;
     }
 
     /**
-     * Performs basic validation of image files
-     * @param image The image file to validate
-     * @return Map with validation results
+     * Performs basic validation of image files.
+     * The format and resolution come from the header parsed at ingest time from the magic bytes,
+     * so the client-supplied content type is never trusted and pixels are never decoded.
+     * @param image The ingested image to validate
+     * @return The errors found and the image metadata
      */
-    public Map<String, Object> validateImage(MultipartFile image) {
-        Map<String, Object> result = new HashMap<>();
-        List<String> errors = new ArrayList<>();
-        
+    public ImageValidation validateImage(IngestedImage image) {
+        return verificationMetrics.stage(VerificationMetrics.VALIDATION).record(() -> validate(image));
+    }
+
+    private ImageValidation validate(IngestedImage image) {
         // Check if file is empty
         if (image.isEmpty()) {
-            errors.add("File is empty");
-            result.put("valid", false);
-            result.put("errors", errors);
-            return result;
+            return new ImageValidation(List.of("File is empty"), null);
         }
         
         // Check file size
-        if (image.getSize() > maxFileSize) {
-            errors.add("File size exceeds the maximum allowed size of " + (maxFileSize / 1024 / 1024) + "MB");
+        if (image.isOversized()) {
+            return new ImageValidation(List.of("File size exceeds the maximum allowed size of "
+                    + (maxFileSize / 1024 / 1024) + "MB"), null);
         }
-        
+
+        ImageHeader header = image.getHeader();
+        List<String> errors = new ArrayList<>();
+
         // Check file format
-        String contentType = image.getContentType();
+        String contentType = header.getFormat().getMimeType();
         if (contentType == null || !allowedFormats.contains(contentType)) {
             errors.add("File format not supported. Allowed formats: " + String.join(", ", allowedFormats));
+        } else if (!header.hasDimensions()) {
+            errors.add("Unable to determine image resolution");
+        } else if (!meetsMinimumResolution(header)) {
+            errors.add("Image resolution " + header.getWidth() + "x" + header.getHeight()
+                    + " is below the minimum of " + minWidth + "x" + minHeight);
         }
-        
-        // Extract metadata (simulated)
-        Map<String, Object> metadata = extractMetadata(image);
-        result.put("metadata", metadata);
-        
-        result.put("valid", errors.isEmpty());
-        result.put("errors", errors);
-        return result;
+
+        return new ImageValidation(errors, extractMetadata(image, header));
     }
-    
+
     /**
-     * Simulates extracting metadata from an image
-     * In a real application, this would use libraries like Apache Commons Imaging or metadata-extractor
+     * Accepts the minimum resolution in either orientation, so portrait captures are not rejected
      */
-    private Map<String, Object> extractMetadata(MultipartFile image) {
-        Map<String, Object> metadata = new HashMap<>();
-        // In a real implementation, extract actual metadata from the image
-        metadata.put("filename", image.getOriginalFilename());
-        metadata.put("contentType", image.getContentType());
-        metadata.put("size", image.getSize());
-        metadata.put("captureDate", new Date());
-        metadata.put("deviceManufacturer", "Simulated Device Manufacturer");
-        
-        // For demonstration purposes, generate random metadata
-        if (Math.random() > 0.5) {
-            metadata.put("gpsLatitude", "40.7128° N");
-            metadata.put("gpsLongitude", "74.0060° W");
-        }
-        
-        return metadata;
+    private boolean meetsMinimumResolution(ImageHeader header) {
+        int longSide = Math.max(header.getWidth(), header.getHeight());
+        int shortSide = Math.min(header.getWidth(), header.getHeight());
+        return longSide >= Math.max(minWidth, minHeight) && shortSide >= Math.min(minWidth, minHeight);
+    }
+
+    /**
+     * Builds image metadata from the parsed header and EXIF fields
+     */
+    private ImageMetadata extractMetadata(IngestedImage image, ImageHeader header) {
+        String mimeType = header.getFormat().getMimeType();
+        return ImageMetadata.builder()
+                .filename(image.getOriginalFilename())
+                .contentType(mimeType != null ? mimeType : image.getDeclaredContentType())
+                .declaredContentType(image.getDeclaredContentType() != null && !image.getDeclaredContentType().equals(mimeType)
+                        ? image.getDeclaredContentType() : null)
+                .size(image.getSize())
+                .contentHash(image.getContentHash())
+                .width(header.hasDimensions() ? header.getWidth() : null)
+                .height(header.hasDimensions() ? header.getHeight() : null)
+                .captureDate(header.getCaptureDate())
+                .deviceManufacturer(header.getDeviceManufacturer())
+                .deviceModel(header.getDeviceModel())
+                .gpsLatitude(header.getGpsLatitude())
+                .gpsLongitude(header.getGpsLongitude())
+                .build();
     }
-} 
\ No newline at end of file
+}
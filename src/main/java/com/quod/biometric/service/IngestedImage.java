@@ -0,0 +1,102 @@
+package com.quod.biometric.service;
+
+import lombok.Getter;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * An upload read once by the {@link ImageIngestService}.
+ * Holds the bytes in a (usually pooled) buffer together with everything computed during that
+ * single pass; later stages only get read-only views of the buffer. Closing the image returns the
+ * buffer to its pool, so it must not be used afterwards.
+ */
+@Getter
+public class IngestedImage implements AutoCloseable {
+
+    private final String originalFilename;
+    private final String declaredContentType;
+    private final long size;
+    private final boolean oversized;
+    private final String contentHash;
+    private final ImageHeader header;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final ByteBuffer buffer;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final Consumer<ByteBuffer> releaser;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    IngestedImage(String originalFilename, String declaredContentType, long size, boolean oversized,
+                  String contentHash, ImageHeader header, ByteBuffer buffer, Consumer<ByteBuffer> releaser) {
+        this.originalFilename = originalFilename;
+        this.declaredContentType = declaredContentType;
+        this.size = size;
+        this.oversized = oversized;
+        this.contentHash = contentHash;
+        this.header = header;
+        this.buffer = buffer;
+        this.releaser = releaser;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return A read-only view of the image bytes, positioned at the first byte
+     */
+    public ByteBuffer getData() {
+        return buffer.asReadOnlyBuffer().position(0).limit(oversized ? 0 : (int) size);
+    }
+
+    /**
+     * @return A stream over the image bytes that does not copy them
+     */
+    public InputStream openStream() {
+        return streamOf(getData());
+    }
+
+    static InputStream streamOf(ByteBuffer data) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return data.hasRemaining() ? data.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) {
+                if (!data.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, data.remaining());
+                data.get(target, offset, count);
+                return count;
+            }
+
+            @Override
+            public long skip(long count) {
+                int skipped = (int) Math.min(Math.max(count, 0), data.remaining());
+                data.position(data.position() + skipped);
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return data.remaining();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            releaser.accept(buffer);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.quod.biometric.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of 64-bit perceptual hashes queryable by Hamming distance.
+ * Uses multi-index hashing: every hash is filed under each of its four 16-bit chunks. Two hashes
+ * within distance r share at least one chunk within distance r / 4, so a query only probes the
+ * buckets of its own chunks and their near neighbours instead of scanning every entry.
+ */
+@Component
+public class NearDuplicateIndex {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int BUCKETS = 1 << CHUNK_BITS;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int[][][] buckets = new int[CHUNKS][BUCKETS][];
+    private final int[][] bucketSizes = new int[CHUNKS][BUCKETS];
+    private long[] hashes = new long[1024];
+    private String[] userIds = new String[1024];
+    private String[] verificationIds = new String[1024];
+    private int size;
+
+    /**
+     * Adds a hash to the index
+     * @param hash The perceptual hash
+     * @param userId The user that submitted the image
+     * @param verificationId The verification the image belongs to
+     */
+    public void add(long hash, String userId, String verificationId) {
+        lock.writeLock().lock();
+        try {
+            if (size == hashes.length) {
+                int capacity = size * 2;
+                hashes = Arrays.copyOf(hashes, capacity);
+                userIds = Arrays.copyOf(userIds, capacity);
+                verificationIds = Arrays.copyOf(verificationIds, capacity);
+            }
+            int entry = size++;
+            hashes[entry] = hash;
+            userIds[entry] = userId;
+            verificationIds[entry] = verificationId;
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                int key = chunkOf(hash, chunk);
+                int[] bucket = buckets[chunk][key];
+                int bucketSize = bucketSizes[chunk][key];
+                if (bucket == null) {
+                    bucket = new int[4];
+                } else if (bucketSize == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, bucketSize * 2);
+                }
+                bucket[bucketSize] = entry;
+                buckets[chunk][key] = bucket;
+                bucketSizes[chunk][key] = bucketSize + 1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the closest indexed hash within the given distance
+     * @param hash The perceptual hash to look up
+     * @param maxDistance Maximum Hamming distance (0-11)
+     * @return The closest match, or null if none is within maxDistance
+     */
+    public Match findNearest(long hash, int maxDistance) {
+        int chunkRadius = maxDistance / CHUNKS;
+        if (maxDistance < 0 || chunkRadius > 2) {
+            throw new IllegalArgumentException("Maximum distance must be between 0 and 11");
+        }
+        Match best = null;
+        lock.readLock().lock();
+        try {
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                int key = chunkOf(hash, chunk);
+                best = probe(chunk, key, hash, maxDistance, best);
+                if (chunkRadius >= 1) {
+                    for (int bit = 0; bit < CHUNK_BITS; bit++) {
+                        int oneOff = key ^ (1 << bit);
+                        best = probe(chunk, oneOff, hash, maxDistance, best);
+                        if (chunkRadius >= 2) {
+                            for (int secondBit = bit + 1; secondBit < CHUNK_BITS; secondBit++) {
+                                best = probe(chunk, oneOff ^ (1 << secondBit), hash, maxDistance, best);
+                            }
+                        }
+                    }
+                }
+                if (best != null && best.distance == 0) {
+                    return best;
+                }
+            }
+            return best;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Match probe(int chunk, int key, long hash, int maxDistance, Match best) {
+        int[] bucket = buckets[chunk][key];
+        if (bucket == null) {
+            return best;
+        }
+        int limit = best == null ? maxDistance : best.distance - 1;
+        for (int i = 0, count = bucketSizes[chunk][key]; i < count; i++) {
+            int entry = bucket[i];
+            int distance = Long.bitCount(hashes[entry] ^ hash);
+            if (distance <= limit) {
+                best = new Match(verificationIds[entry], userIds[entry], distance);
+                limit = distance - 1;
+            }
+        }
+        return best;
+    }
+
+    private static int chunkOf(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & (BUCKETS - 1);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Match {
+        private final String verificationId;
+        private final String userId;
+        private final int distance;
+    }
+}
@@ -0,0 +1,50 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Rebuilds the {@link NearDuplicateIndex} from verification_results when the application starts.
+ * Runs on its own thread so startup does not wait for the collection scan.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(value = "near-duplicate.rebuild-on-startup", matchIfMissing = true)
+public class NearDuplicateIndexLoader {
+
+    private final MongoTemplate mongoTemplate;
+    private final NearDuplicateIndex nearDuplicateIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Thread loader = new Thread(this::load, "near-duplicate-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        Query query = new Query(where("facePerceptualHash").ne(null)
+                .and("status").is(VerificationResult.ValidationStatus.APPROVED));
+        query.fields().include("userId", "facePerceptualHash");
+        try (Stream<VerificationResult> results = mongoTemplate.stream(query, VerificationResult.class)) {
+            results.forEach(result -> nearDuplicateIndex.add(result.getFacePerceptualHash(), result.getUserId(), result.getId()));
+            log.info("Loaded {} face hashes into the near-duplicate index in {} ms",
+                    nearDuplicateIndex.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error rebuilding the near-duplicate index", e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.NotificationPayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Delivers notifications off the caller's thread.
+ * Every endpoint gets its own bounded queue drained by dedicated sender threads, which group
+ * queued notifications into one POST when the endpoint accepts batches. With more than one attempt,
+ * failed deliveries are retried with exponential backoff and written to the dead-letter log once
+ * attempts run out; with a single attempt (the default) the failure goes back to the caller, which
+ * owns retries, as the outbox relay does.
+ * With a non-blocking transport a sender does not wait for the response, so the number of
+ * outstanding requests per endpoint is capped separately.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final Logger deadLetterLog = LoggerFactory.getLogger("com.quod.biometric.notification.dead-letter");
+
+    private final NotificationTransport transport;
+    private final MeterRegistry meterRegistry;
+    private final boolean simulate;
+    private final int queueCapacity;
+    private final int sendersPerEndpoint;
+    private final int maxInFlight;
+    private final Duration linger;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("notification-retry"));
+    private volatile boolean running = true;
+
+    public NotificationDispatcher(
+            NotificationTransport transport,
+            MeterRegistry meterRegistry,
+            @Value("${notification.dispatcher.simulate:true}") boolean simulate,
+            @Value("${notification.dispatcher.queue-capacity:10000}") int queueCapacity,
+            @Value("${notification.dispatcher.senders-per-endpoint:2}") int sendersPerEndpoint,
+            @Value("${notification.dispatcher.max-in-flight:64}") int maxInFlight,
+            @Value("${notification.dispatcher.linger:20ms}") Duration linger,
+            @Value("${notification.dispatcher.max-attempts:1}") int maxAttempts,
+            @Value("${notification.dispatcher.initial-backoff:200ms}") Duration initialBackoff,
+            @Value("${notification.dispatcher.max-backoff:5s}") Duration maxBackoff) {
+        this.transport = transport;
+        this.meterRegistry = meterRegistry;
+        this.simulate = simulate;
+        this.queueCapacity = queueCapacity;
+        this.sendersPerEndpoint = sendersPerEndpoint;
+        this.maxInFlight = Math.max(sendersPerEndpoint, maxInFlight);
+        this.linger = linger;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Returns the delivery channel for an endpoint, starting its sender threads on first use
+     * @param url The endpoint URL
+     * @param maxBatchSize Maximum notifications per POST; 1 for endpoints that only accept a single object
+     * @return The channel for the endpoint
+     */
+    public Channel channel(String url, int maxBatchSize) {
+        return channels.computeIfAbsent(url, key -> new Channel(key, Math.max(1, maxBatchSize)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        retryScheduler.shutdownNow();
+        channels.values().forEach(Channel::stop);
+    }
+
+    private Duration backoff(int attempt) {
+        long delay = initialBackoff.toMillis() << Math.min(attempt - 1, 20);
+        return Duration.ofMillis(Math.min(delay, maxBackoff.toMillis()));
+    }
+
+    /**
+     * @return The last path segment of an endpoint URL (e.g. fraud-notification), or its host, to tell sender threads apart
+     */
+    static String endpointName(String url) {
+        URI uri = URI.create(url);
+        String path = uri.getPath() != null ? uri.getPath().replaceAll("/+$", "") : "";
+        return path.isEmpty() ? String.valueOf(uri.getHost()) : path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A bounded queue plus sender threads for a single endpoint
+     */
+    public final class Channel {
+
+        private final String url;
+        private final int maxBatchSize;
+        private final BlockingQueue<Delivery> queue;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final List<Thread> senders = new ArrayList<>();
+        private final Timer latency;
+        private final Counter sent;
+        private final Counter retried;
+        private final Counter deadLettered;
+        private final Counter rejected;
+
+        private Channel(String url, int maxBatchSize) {
+            this.url = url;
+            this.maxBatchSize = maxBatchSize;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            Gauge.builder("notification.dispatch.queue.depth", queue, BlockingQueue::size)
+                    .tag("endpoint", url)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("notification.dispatch.latency")
+                    .tag("endpoint", url)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.sent = meterRegistry.counter("notification.dispatch.sent", "endpoint", url);
+            this.retried = meterRegistry.counter("notification.dispatch.retried", "endpoint", url);
+            this.deadLettered = meterRegistry.counter("notification.dispatch.dead_letter", "endpoint", url);
+            this.rejected = meterRegistry.counter("notification.dispatch.rejected", "endpoint", url);
+            for (int i = 0; i < sendersPerEndpoint; i++) {
+                Thread sender = daemonThreads("notification-sender-" + endpointName(url) + "-" + i).newThread(this::drain);
+                senders.add(sender);
+                sender.start();
+            }
+        }
+
+        /**
+         * Queues a notification for delivery without blocking
+         * @param payload The notification to deliver
+         * @return Future completed once the endpoint accepted the notification, or failed if it was
+         *         rejected because the queue is full or dead-lettered after the last retry
+         */
+        public CompletableFuture<Void> submit(NotificationPayload payload) {
+            Delivery delivery = new Delivery(payload);
+            if (!running || !queue.offer(delivery)) {
+                rejected.increment();
+                delivery.future.completeExceptionally(
+                        new RejectedExecutionException("Notification queue for " + url + " is full"));
+            }
+            return delivery.future;
+        }
+
+        private void drain() {
+            List<Delivery> batch = new ArrayList<>(maxBatchSize);
+            while (running) {
+                try {
+                    if (!inFlight.tryAcquire(1, TimeUnit.SECONDS)) {
+                        continue;
+                    }
+                    Delivery first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        inFlight.release();
+                        continue;
+                    }
+                    batch.add(first);
+                    if (maxBatchSize > 1) {
+                        fillBatch(batch);
+                    }
+                    send(List.copyOf(batch));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void fillBatch(List<Delivery> batch) throws InterruptedException {
+            long deadline = System.nanoTime() + linger.toNanos();
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            while (batch.size() < maxBatchSize) {
+                long remaining = deadline - System.nanoTime();
+                Delivery next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+        }
+
+        /**
+         * Sends one batch; the in-flight permit taken by the sender is released once the endpoint answers
+         */
+        private void send(List<Delivery> batch) {
+            long start = System.nanoTime();
+            Object body = batch.size() == 1
+                    ? batch.get(0).payload
+                    : batch.stream().map(delivery -> delivery.payload).toList();
+            CompletableFuture<Void> response;
+            if (simulate) {
+                log.info("Simulating HTTP POST to {} with {} notification(s): {}", url, batch.size(), body);
+                response = CompletableFuture.completedFuture(null);
+            } else {
+                try {
+                    response = transport.post(url, body);
+                } catch (RuntimeException e) {
+                    response = CompletableFuture.failedFuture(e);
+                }
+            }
+            response.whenComplete((ignored, error) -> {
+                inFlight.release();
+                if (error == null) {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    sent.increment(batch.size());
+                    batch.forEach(delivery -> delivery.future.complete(null));
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    log.warn("Error sending {} notification(s) to {}: {}", batch.size(), url, cause.getMessage());
+                    batch.forEach(delivery -> retryOrDeadLetter(delivery, cause));
+                }
+            });
+        }
+
+        private void retryOrDeadLetter(Delivery delivery, Throwable cause) {
+            delivery.attempts++;
+            if (maxAttempts <= 1) {
+                delivery.future.completeExceptionally(cause);
+                return;
+            }
+            if (delivery.attempts >= maxAttempts) {
+                deadLetter(delivery, cause);
+                return;
+            }
+            retried.increment();
+            try {
+                retryScheduler.schedule(() -> {
+                    if (!queue.offer(delivery)) {
+                        deadLetter(delivery, new RejectedExecutionException("Notification queue for " + url + " is full"));
+                    }
+                }, backoff(delivery.attempts).toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                deadLetter(delivery, cause);
+            }
+        }
+
+        private void deadLetter(Delivery delivery, Throwable cause) {
+            deadLettered.increment();
+            deadLetterLog.error("Dead-lettered notification to {} after {} attempt(s): {}", url, delivery.attempts, delivery.payload);
+            delivery.future.completeExceptionally(cause);
+        }
+
+        private void stop() {
+            senders.forEach(Thread::interrupt);
+            Delivery pending;
+            while ((pending = queue.poll()) != null) {
+                pending.future.completeExceptionally(new RejectedExecutionException("Notification dispatcher stopped"));
+            }
+        }
+    }
+
+    private static final class Delivery {
+        private final NotificationPayload payload;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private int attempts;
+
+        private Delivery(NotificationPayload payload) {
+            this.payload = payload;
+        }
+    }
+}
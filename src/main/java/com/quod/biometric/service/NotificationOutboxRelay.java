@@ -0,0 +1,202 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.NotificationOutbox;
+import com.quod.biometric.model.VerificationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Drains pending notifications written alongside verification results.
+ * Each entry is claimed with a lease, so several instances can run the relay and an entry
+ * left behind by a crashed instance is picked up again once its lease expires. Every poll renews the
+ * leases of the entries this instance still has with the dispatcher, so a slow endpoint does not let
+ * them expire and be claimed twice, and every claim carries its own token, so only the current claim
+ * can write the outcome back. At most notification.outbox.relay.max-in-flight entries are waiting on the
+ * dispatcher at a time.
+ *
+ * The relay owns retries: a failed delivery is retried after an exponential backoff, up to
+ * notification.outbox.relay.max-attempts, and the dispatcher makes a single attempt.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "notification.outbox.relay.enabled", matchIfMissing = true)
+public class NotificationOutboxRelay {
+
+    private static final String OUTBOX_STATUS = "outbox.status";
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationService notificationService;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Map<String, String> outstanding = new ConcurrentHashMap<>(); // verification ID -> claim token
+
+    public NotificationOutboxRelay(
+            MongoTemplate mongoTemplate,
+            NotificationService notificationService,
+            @Value("${notification.outbox.relay.batch-size:100}") int batchSize,
+            @Value("${notification.outbox.relay.max-in-flight:200}") int maxInFlight,
+            @Value("${notification.outbox.relay.max-attempts:5}") int maxAttempts,
+            @Value("${notification.outbox.relay.lease:30s}") Duration lease,
+            @Value("${notification.outbox.relay.initial-backoff:1s}") Duration initialBackoff,
+            @Value("${notification.outbox.relay.max-backoff:1m}") Duration maxBackoff) {
+        this.mongoTemplate = mongoTemplate;
+        this.notificationService = notificationService;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Renews the leases still held, then claims up to one batch of pending notifications and hands
+     * them to the dispatcher
+     */
+    @Scheduled(fixedDelayString = "${notification.outbox.relay.poll-interval:1000}")
+    public void relayPendingNotifications() {
+        try {
+            renewLeases();
+            for (int i = 0; i < batchSize && outstanding.size() < maxInFlight; i++) {
+                VerificationResult result = claimNext();
+                if (result == null) {
+                    return;
+                }
+                if (!dispatch(result)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error relaying pending notifications", e);
+        }
+    }
+
+    /**
+     * Atomically moves the oldest deliverable entry to DISPATCHING with a fresh lease; a pending entry
+     * is deliverable once its retry backoff, if any, has passed
+     */
+    private VerificationResult claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                where(OUTBOX_STATUS).is(NotificationOutbox.OutboxStatus.PENDING).and("outbox.nextAttemptAt").not().gt(now),
+                where(OUTBOX_STATUS).is(NotificationOutbox.OutboxStatus.DISPATCHING).and("outbox.leaseUntil").lt(now)))
+                .with(Sort.by("outbox.createdAt"));
+        Update update = new Update()
+                .set(OUTBOX_STATUS, NotificationOutbox.OutboxStatus.DISPATCHING)
+                .set("outbox.leaseUntil", now.plus(lease))
+                .set("outbox.claimToken", UUID.randomUUID().toString())
+                .inc("outbox.attempts", 1);
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), VerificationResult.class);
+    }
+
+    /**
+     * Hands a claimed entry to the dispatcher; the outcome is written back when delivery completes
+     * @return false if the dispatcher queue is full and no more entries should be claimed this poll
+     */
+    private boolean dispatch(VerificationResult result) {
+        NotificationOutbox outbox = result.getOutbox();
+        outstanding.put(result.getId(), outbox.getClaimToken());
+        CompletableFuture<String> delivery = outbox.getType() == NotificationOutbox.NotificationType.FRAUD
+                ? notificationService.sendFraudNotification(result)
+                : notificationService.sendSuccessNotification(result);
+
+        if (delivery.isCompletedExceptionally()
+                && unwrap(delivery.handle((notificationId, error) -> error).join()) instanceof RejectedExecutionException) {
+            outstanding.remove(result.getId(), outbox.getClaimToken());
+            release(result, new Update().inc("outbox.attempts", -1));
+            return false;
+        }
+        delivery.whenComplete((notificationId, error) -> {
+            outstanding.remove(result.getId(), outbox.getClaimToken());
+            try {
+                if (error == null) {
+                    markDelivered(result, notificationId);
+                } else {
+                    markFailed(result, error);
+                }
+            } catch (Exception e) {
+                log.error("Error updating outbox for verification ID: {}", result.getId(), e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Extends the lease of every entry still waiting on the dispatcher
+     */
+    private void renewLeases() {
+        if (outstanding.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                new Query(where("outbox.claimToken").in(List.copyOf(outstanding.values()))
+                        .and(OUTBOX_STATUS).is(NotificationOutbox.OutboxStatus.DISPATCHING)),
+                new Update().set("outbox.leaseUntil", LocalDateTime.now().plus(lease)),
+                VerificationResult.class);
+    }
+
+    private void markDelivered(VerificationResult result, String notificationId) {
+        mongoTemplate.updateFirst(claimed(result), new Update()
+                .set("notificationId", notificationId)
+                .unset("outbox"), VerificationResult.class);
+    }
+
+    private void markFailed(VerificationResult result, Throwable error) {
+        int attempts = result.getOutbox().getAttempts();
+        Update update = new Update().set("outbox.lastError", String.valueOf(unwrap(error).getMessage()));
+        if (attempts >= maxAttempts) {
+            log.warn("Giving up on notification for verification ID: {} after {} attempts", result.getId(), attempts);
+            mongoTemplate.updateFirst(claimed(result), update.set(OUTBOX_STATUS, NotificationOutbox.OutboxStatus.FAILED), VerificationResult.class);
+        } else {
+            release(result, update.set("outbox.nextAttemptAt", LocalDateTime.now().plus(backoff(attempts))));
+        }
+    }
+
+    private void release(VerificationResult result, Update update) {
+        mongoTemplate.updateFirst(claimed(result), update.set(OUTBOX_STATUS, NotificationOutbox.OutboxStatus.PENDING), VerificationResult.class);
+    }
+
+    /**
+     * Matches the entry only while it is still held by this claim
+     */
+    private Query claimed(VerificationResult result) {
+        return new Query(where("_id").is(result.getId())
+                .and(OUTBOX_STATUS).is(NotificationOutbox.OutboxStatus.DISPATCHING)
+                .and("outbox.claimToken").is(result.getOutbox().getClaimToken()));
+    }
+
+    private Duration backoff(int attempt) {
+        long delay = initialBackoff.toMillis() << Math.min(attempt - 1, 20);
+        return Duration.ofMillis(Math.min(delay, maxBackoff.toMillis()));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
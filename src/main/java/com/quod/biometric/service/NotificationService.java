@@ -1,101 +1,95 @@
 package com.quod.biometric.service;
 
+import com.quod.biometric.dto.NotificationPayload;
+import com.quod.biometric.model.NotificationOutbox;
 import com.quod.biometric.model.VerificationResult;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class NotificationService {
 
-    private final RestTemplate restTemplate;
-    
-    @Value("${notification.service.url}")
-    private String fraudNotificationUrl;
-    
-    @Value("${notification.service.success-url}")
-    private String successNotificationUrl;
+    private final NotificationDispatcher.Channel fraudChannel;
+    private final NotificationDispatcher.Channel successChannel;
+    private final Timer deliveryTime;
+
+    public NotificationService(
+            NotificationDispatcher notificationDispatcher,
+            VerificationMetrics verificationMetrics,
+            @Value("${notification.service.url}") String fraudNotificationUrl,
+            @Value("${notification.service.success-url}") String successNotificationUrl,
+            @Value("${notification.service.fraud-batch-size:1}") int fraudBatchSize,
+            @Value("${notification.service.success-batch-size:1}") int successBatchSize) {
+        this.fraudChannel = notificationDispatcher.channel(fraudNotificationUrl, fraudBatchSize);
+        this.successChannel = notificationDispatcher.channel(successNotificationUrl, successBatchSize);
+        this.deliveryTime = verificationMetrics.stage(VerificationMetrics.NOTIFICATION);
+    }
 
     /**
-     * Sends a fraud notification to the external system
-     * @param verificationResult The verification result containing fraud details
-     * @return Notification ID
+     * Queues a fraud notification for the external system
+     * @param verificationResult The verification result containing fraud details, with its outbox entry
+     * @return Future with the notification ID, completed once the notification was delivered
      */
-    public String sendFraudNotification(VerificationResult verificationResult) {
-        String notificationId = UUID.randomUUID().toString();
-        log.info("Sending fraud notification with ID: {}", notificationId);
-        
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("notificationId", notificationId);
-            requestBody.put("verificationId", verificationResult.getId());
-            requestBody.put("userId", verificationResult.getUserId());
-            requestBody.put("verificationType", verificationResult.getVerificationType());
-            requestBody.put("fraudTypes", verificationResult.getFraudTypes());
-            requestBody.put("timestamp", verificationResult.getProcessedAt());
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            // Since this is a simulation, log the request instead of making an actual call
-            log.info("Simulating HTTP POST to {} with payload: {}", fraudNotificationUrl, requestBody);
-            
-            // In a real implementation, this would make an actual HTTP call
-            // ResponseEntity<String> response = restTemplate.postForEntity(fraudNotificationUrl, request, String.class);
-            
-            return notificationId;
-        } catch (Exception e) {
-            log.error("Error sending fraud notification", e);
-            return null;
-        }
+    public CompletableFuture<String> sendFraudNotification(VerificationResult verificationResult) {
+        String notificationId = notificationId(verificationResult, NotificationOutbox.NotificationType.FRAUD);
+        log.debug("Queueing fraud notification with ID: {}", notificationId);
+
+        NotificationPayload payload = NotificationPayload.builder()
+                .notificationId(notificationId)
+                .verificationId(verificationResult.getId())
+                .userId(verificationResult.getUserId())
+                .verificationType(verificationResult.getVerificationType())
+                .fraudTypes(verificationResult.getFraudTypes())
+                .timestamp(verificationResult.getProcessedAt())
+                .build();
+
+        return timed(fraudChannel.submit(payload)).thenApply(delivered -> notificationId);
+    }
+
+    /**
+     * Queues a success notification for the external system
+     * @param verificationResult The successful verification result, with its outbox entry
+     * @return Future with the notification ID, completed once the notification was delivered
+     */
+    public CompletableFuture<String> sendSuccessNotification(VerificationResult verificationResult) {
+        String notificationId = notificationId(verificationResult, NotificationOutbox.NotificationType.SUCCESS);
+        log.debug("Queueing success notification with ID: {}", notificationId);
+
+        NotificationPayload payload = NotificationPayload.builder()
+                .notificationId(notificationId)
+                .verificationId(verificationResult.getId())
+                .userId(verificationResult.getUserId())
+                .verificationType(verificationResult.getVerificationType())
+                .timestamp(verificationResult.getProcessedAt())
+                .build();
+
+        return timed(successChannel.submit(payload)).thenApply(delivered -> notificationId);
     }
-    
+
     /**
-     * Sends a success notification to the external system
-     * @param verificationResult The successful verification result
-     * @return Notification ID
+     * The ID stored with the outbox entry, so every attempt sends the same one. Entries written in bulk,
+     * like those of the stale ticket sweep, have none; theirs is derived from the verification ID.
      */
-    public String sendSuccessNotification(VerificationResult verificationResult) {
-        String notificationId = UUID.randomUUID().toString();
-        log.info("Sending success notification with ID: {}", notificationId);
-        
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("notificationId", notificationId);
-            requestBody.put("verificationId", verificationResult.getId());
-            requestBody.put("userId", verificationResult.getUserId());
-            requestBody.put("verificationType", verificationResult.getVerificationType());
-            requestBody.put("timestamp", verificationResult.getProcessedAt());
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            // Since this is a simulation, log the request instead of making an actual call
-            log.info("Simulating HTTP POST to {} with payload: {}", successNotificationUrl, requestBody);
-            
-            // In a real implementation, this would make an actual HTTP call
-            // ResponseEntity<String> response = restTemplate.postForEntity(successNotificationUrl, request, String.class);
-            
-            return notificationId;
-        } catch (Exception e) {
-            log.error("Error sending success notification", e);
-            return null;
+    private static String notificationId(VerificationResult verificationResult, NotificationOutbox.NotificationType type) {
+        NotificationOutbox outbox = verificationResult.getOutbox();
+        if (outbox != null && outbox.getNotificationId() != null) {
+            return outbox.getNotificationId();
         }
+        return UUID.nameUUIDFromBytes((type + ":" + verificationResult.getId()).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Records the time from queueing to delivery, retries included
+     */
+    private CompletableFuture<Void> timed(CompletableFuture<Void> delivery) {
+        Timer.Sample sample = Timer.start();
+        return delivery.whenComplete((delivered, error) -> sample.stop(deliveryTime));
     }
-} 
\ No newline at end of file
+}
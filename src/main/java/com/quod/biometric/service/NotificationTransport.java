@@ -0,0 +1,16 @@
+package com.quod.biometric.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends a JSON notification body to an endpoint on behalf of the {@link NotificationDispatcher}
+ */
+public interface NotificationTransport {
+
+    /**
+     * @param url The endpoint URL
+     * @param body The notification, or a list of notifications for batch endpoints
+     * @return Future completed once the endpoint accepted the body, or failed with the delivery error
+     */
+    CompletableFuture<Void> post(String url, Object body);
+}
@@ -0,0 +1,58 @@
+package com.quod.biometric.service;
+
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Computes a 64-bit difference hash (dHash) of an image.
+ * The image, as decoded for the fraud detectors (see {@link ImageDecoder}), is averaged into a 9x8
+ * luminance grid and each bit records whether a cell is brighter than its right neighbour.
+ * Re-encoding, resizing and small edits change only a few bits, so near-duplicates have a small
+ * Hamming distance.
+ */
+@Component
+public class PerceptualHasher {
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    /**
+     * @param image The decoded image
+     * @return The dHash
+     */
+    public long hash(DecodedImage image) {
+        return hash(image.getWidth(), image.getHeight(), image::rgb);
+    }
+
+    static long hash(BufferedImage image) {
+        return hash(image.getWidth(), image.getHeight(), image::getRGB);
+    }
+
+    private static long hash(int width, int height, IntBinaryOperator rgbAt) {
+        double[] grid = new double[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            int cellY = y * GRID_HEIGHT / height;
+            for (int x = 0; x < width; x++) {
+                int rgb = rgbAt.applyAsInt(x, y);
+                double luminance = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                int cell = cellY * GRID_WIDTH + x * GRID_WIDTH / width;
+                grid[cell] += luminance;
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int row = 0; row < GRID_HEIGHT; row++) {
+            for (int column = 0; column < GRID_WIDTH - 1; column++) {
+                int cell = row * GRID_WIDTH + column;
+                double left = counts[cell] == 0 ? 0 : grid[cell] / counts[cell];
+                double right = counts[cell + 1] == 0 ? 0 : grid[cell + 1] / counts[cell + 1];
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,96 @@
+package com.quod.biometric.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads and executors of the verification pipeline.
+ * With spring.threads.virtual.enabled on a Java 21+ runtime every blocking stage runs on virtual
+ * threads: executors become thread-per-task, so pool sizes no longer cap concurrency and callers rely
+ * on their own limits (in-flight windows, permits, bounded queues). Otherwise bounded pools of daemon
+ * platform threads are used. Virtual threads are created reflectively so the code still builds on Java 17.
+ *
+ * Code that may run on these threads, or on virtual request threads, guards blocking work with a
+ * {@link java.util.concurrent.locks.ReentrantLock} rather than synchronized, which pins a virtual thread
+ * to its carrier on Java 21 (see {@link VirtualThreadPinningMonitor}).
+ */
+@Component
+@Slf4j
+public class PipelineThreads {
+
+    private final boolean virtual;
+
+    public PipelineThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled) {
+        boolean supported = Runtime.version().feature() >= 21;
+        if (virtualThreadsEnabled && !supported) {
+            log.warn("Virtual threads need Java 21 or later, running the pipeline on platform threads (Java {})",
+                    Runtime.version().feature());
+        }
+        this.virtual = virtualThreadsEnabled && supported;
+    }
+
+    /**
+     * @return Whether pipeline stages run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @param namePrefix Thread name prefix, followed by a sequence number
+     * @return Factory for virtual threads, or daemon platform threads
+     */
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (virtual) {
+            return virtualThreadFactory(namePrefix);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates an executor for one pipeline stage
+     * @param namePrefix Thread name prefix
+     * @param threads Pool size on platform threads
+     * @param queueCapacity Queue capacity on platform threads
+     * @param rejectedHandler What to do when the platform pool and its queue are full
+     * @return A thread-per-task executor on virtual threads, or a bounded platform thread pool
+     */
+    public ExecutorService newExecutor(String namePrefix, int threads, int queueCapacity,
+                                       RejectedExecutionHandler rejectedHandler) {
+        if (virtual) {
+            return virtualThreadPerTaskExecutor(virtualThreadFactory(namePrefix));
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory(namePrefix), rejectedHandler);
+    }
+
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create virtual threads", e);
+        }
+    }
+
+    private static ExecutorService virtualThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            Method factoryMethod = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) factoryMethod.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.DocumentAnalysisRequest;
+import com.quod.biometric.dto.FacialBiometryRequest;
+import com.quod.biometric.dto.FingerprintBiometryRequest;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.exception.ResourceNotFoundException;
+import com.quod.biometric.repository.ReactiveVerificationRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reactive front of {@link BiometricVerificationService}.
+ * Uploads are read and results saved without blocking; validation and fraud detection run the
+ * same evaluation code as the servlet stack on the bounded elastic scheduler, since fraud checks
+ * wait for their deadlines and image hashing is CPU bound.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Profile("reactive")
+public class ReactiveBiometricVerificationService {
+
+    private final BiometricVerificationService biometricVerificationService;
+    private final ImageIngestService imageIngestService;
+    private final ReactiveVerificationRepository verificationRepository;
+    private final VerificationMetrics verificationMetrics;
+
+    /**
+     * Process a facial biometry verification request
+     * @param request The facial biometry request
+     * @param faceImage The uploaded face image
+     * @return Verification response
+     */
+    public Mono<VerificationResponse> processFacialBiometry(FacialBiometryRequest request, FilePart faceImage) {
+        log.debug("Processing facial biometry for user ID: {}", request.getUserId());
+        return process(List.of(faceImage),
+                images -> biometricVerificationService.evaluateFacialBiometry(request, images.get(0)));
+    }
+
+    /**
+     * Process a fingerprint biometry verification request
+     * @param request The fingerprint biometry request
+     * @param fingerprintImage The uploaded fingerprint image
+     * @return Verification response
+     */
+    public Mono<VerificationResponse> processFingerprintBiometry(FingerprintBiometryRequest request, FilePart fingerprintImage) {
+        log.debug("Processing fingerprint biometry for user ID: {}", request.getUserId());
+        return process(List.of(fingerprintImage),
+                images -> biometricVerificationService.evaluateFingerprintBiometry(request, images.get(0)));
+    }
+
+    /**
+     * Process a document analysis verification request
+     * @param request The document analysis request
+     * @param documentImage The uploaded document image
+     * @param faceImage The uploaded face image
+     * @return Verification response
+     */
+    public Mono<VerificationResponse> processDocumentAnalysis(DocumentAnalysisRequest request,
+                                                              FilePart documentImage,
+                                                              FilePart faceImage) {
+        log.debug("Processing document analysis for user ID: {}", request.getUserId());
+        return process(List.of(documentImage, faceImage),
+                images -> biometricVerificationService.evaluateDocumentAnalysis(request, images.get(0), images.get(1)));
+    }
+
+    /**
+     * Gets the current state of a verification
+     * @param id The verification ID
+     * @return Verification response
+     */
+    public Mono<VerificationResponse> getVerification(String id) {
+        return verificationRepository.findById(id)
+                .map(biometricVerificationService::mapToResponse)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Verification not found: " + id)));
+    }
+
+    /**
+     * Ingests the parts in order, evaluates them and saves the result; the images are released
+     * once the evaluation finished or failed
+     */
+    private Mono<VerificationResponse> process(List<FilePart> parts,
+                                               Function<List<IngestedImage>, BiometricVerificationService.Evaluation> evaluation) {
+        return Mono.usingWhen(
+                        Mono.fromSupplier(() -> new ArrayList<IngestedImage>(parts.size())),
+                        images -> Flux.fromIterable(parts)
+                                .concatMap(imageIngestService::ingest)
+                                .doOnNext(images::add)
+                                .then(Mono.fromCallable(() -> evaluation.apply(images))
+                                        .subscribeOn(Schedulers.boundedElastic())),
+                        images -> Mono.fromRunnable(() -> images.forEach(IngestedImage::close)))
+                .flatMap(this::persist);
+    }
+
+    private Mono<VerificationResponse> persist(BiometricVerificationService.Evaluation evaluation) {
+        if (evaluation.getResult() == null) {
+            return Mono.just(evaluation.getResponse());
+        }
+        return Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start();
+                    return verificationRepository.save(evaluation.getResult())
+                            .doFinally(signal -> sample.stop(verificationMetrics.stage(VerificationMetrics.SAVE)));
+                })
+                .map(saved -> biometricVerificationService.complete(evaluation, saved));
+    }
+}
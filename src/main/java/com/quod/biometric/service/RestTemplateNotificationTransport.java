@@ -0,0 +1,42 @@
+package com.quod.biometric.service;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Blocking transport used by the servlet stack; the calling sender thread waits for the response
+ */
+@Component
+@Profile("!reactive")
+public class RestTemplateNotificationTransport implements NotificationTransport {
+
+    private static final HttpHeaders JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(jsonHeaders());
+
+    private final RestTemplate restTemplate;
+
+    public RestTemplateNotificationTransport(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    @Override
+    public CompletableFuture<Void> post(String url, Object body) {
+        try {
+            restTemplate.postForEntity(url, new HttpEntity<>(body, JSON_HEADERS), Void.class);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+}
@@ -0,0 +1,140 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides verifications from the scores of their risk signals with the rules in risk.rules
+ * (risk-rules.yml on the classpath by default). When the rules are a file, it is checked for changes
+ * every risk.reload-interval and new rules replace the old ones atomically, without a restart; rules that
+ * do not parse or validate are logged and ignored, keeping the ones in effect. Invalid rules at startup
+ * stop the application.
+ *
+ * Meters: verification.risk.score{type} (distribution of risk scores) and risk.rules.reloads{outcome}.
+ */
+@Component
+@Slf4j
+public class RiskEngine {
+
+    private final Resource rulesResource;
+    private final Map<VerificationResult.VerificationType, DistributionSummary> scores =
+            new EnumMap<>(VerificationResult.VerificationType.class);
+    private final Counter reloadsApplied;
+    private final Counter reloadsRejected;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile RiskRules.Compiled rules;
+    private long lastModified;
+
+    public RiskEngine(
+            ResourceLoader resourceLoader,
+            MeterRegistry meterRegistry,
+            @Value("${risk.rules:classpath:risk-rules.yml}") String rulesLocation) {
+        this.rulesResource = resourceLoader.getResource(rulesLocation);
+        for (VerificationResult.VerificationType type : VerificationResult.VerificationType.values()) {
+            scores.put(type, DistributionSummary.builder("verification.risk.score")
+                    .tag("type", type.name())
+                    .serviceLevelObjectives(0.25, 0.5, 0.75, 1.0, 1.5, 2.0, 3.0)
+                    .register(meterRegistry));
+        }
+        this.reloadsApplied = reloadCounter(meterRegistry, "applied");
+        this.reloadsRejected = reloadCounter(meterRegistry, "rejected");
+        try {
+            this.lastModified = lastModified();
+            this.rules = load();
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Unable to load risk rules from " + rulesLocation, e);
+        }
+        log.info("Loaded risk rules {} from {}{}", rules.getVersion(), rulesLocation,
+                isFile() ? "" : " (not a file, changes need a restart)");
+    }
+
+    /**
+     * @return The rules in effect; use one snapshot for everything about a verification
+     */
+    public RiskRules.Compiled current() {
+        return rules;
+    }
+
+    /**
+     * Decides the scorecard with the given rules
+     */
+    public void evaluate(RiskRules.Compiled rules, RiskScorecard scorecard) {
+        rules.evaluate(scorecard);
+        scores.get(scorecard.getVerificationType()).record(scorecard.getRiskScore());
+    }
+
+    /**
+     * Reloads the rules file if it changed since it was last read
+     */
+    @Scheduled(fixedDelayString = "${risk.reload-interval:10000}")
+    public void reloadIfChanged() {
+        if (!isFile()) {
+            return;
+        }
+        try {
+            long modified = lastModified();
+            if (modified != lastModified) {
+                lastModified = modified;
+                reload();
+            }
+        } catch (IOException e) {
+            log.error("Unable to check the risk rules file {}", rulesResource, e);
+        }
+    }
+
+    /**
+     * Reads, compiles and applies the rules
+     * @return Whether the new rules are in effect
+     */
+    public boolean reload() {
+        reloadLock.lock();
+        try {
+            RiskRules.Compiled reloaded = load();
+            String previous = rules.getVersion();
+            rules = reloaded;
+            reloadsApplied.increment();
+            log.info("Risk rules {} replaced {}", reloaded.getVersion(), previous);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            reloadsRejected.increment();
+            log.error("Ignoring invalid risk rules in {}, keeping {}", rulesResource, rules.getVersion(), e);
+            return false;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private RiskRules.Compiled load() throws IOException {
+        try (InputStream input = rulesResource.getInputStream()) {
+            return RiskRules.parse(input).compile();
+        }
+    }
+
+    private boolean isFile() {
+        return rulesResource.isFile();
+    }
+
+    private long lastModified() throws IOException {
+        return isFile() ? rulesResource.lastModified() : 0;
+    }
+
+    private static Counter reloadCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("risk.rules.reloads")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,179 @@
+package com.quod.biometric.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.quod.biometric.model.VerificationResult;
+import lombok.Data;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Risk scoring rules as written in the rules file (see risk-rules.yml): a weight per signal, the score at
+ * which a signal is flagged, and a decision table evaluated top down, whose first matching row gives the
+ * status. {@link #compile()} validates them and turns them into a {@link Compiled} evaluator.
+ */
+@Data
+public class RiskRules {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.KEBAB_CASE)
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private String version;
+    private double defaultWeight = 0;
+    private double defaultFlagThreshold = 0.5;
+    private Map<RiskSignal, Double> weights = new LinkedHashMap<>();
+    private Map<RiskSignal, Double> flagThresholds = new LinkedHashMap<>();
+    private List<Decision> decisions = new ArrayList<>();
+
+    /**
+     * One row of the decision table; a row without conditions matches every verification
+     */
+    @Data
+    public static class Decision {
+        private VerificationResult.ValidationStatus status;
+        private List<VerificationResult.VerificationType> types; // all types when absent
+        private Double minScore; // weighted sum of the signal scores
+        private List<RiskSignal> anyFlagged;
+    }
+
+    /**
+     * Reads rules from YAML; unknown keys, signals, types and statuses are errors
+     */
+    public static RiskRules parse(InputStream input) {
+        Object document = new Yaml(new SafeConstructor(new LoaderOptions())).load(input);
+        if (!(document instanceof Map)) {
+            throw new IllegalArgumentException("Risk rules must be a YAML mapping");
+        }
+        return OBJECT_MAPPER.convertValue(document, RiskRules.class);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the rules are inconsistent
+     */
+    public Compiled compile() {
+        int signals = RiskSignal.values().length;
+        double[] compiledWeights = new double[signals];
+        double[] compiledThresholds = new double[signals];
+        for (RiskSignal signal : RiskSignal.values()) {
+            double weight = weights.getOrDefault(signal, defaultWeight);
+            double threshold = flagThresholds.getOrDefault(signal, defaultFlagThreshold);
+            if (weight < 0 || Double.isNaN(weight)) {
+                throw new IllegalArgumentException("Weight of " + signal + " must not be negative");
+            }
+            if (!(threshold > 0 && threshold <= 1)) {
+                throw new IllegalArgumentException("Flag threshold of " + signal + " must be above 0 and at most 1");
+            }
+            compiledWeights[signal.ordinal()] = weight;
+            compiledThresholds[signal.ordinal()] = threshold;
+        }
+        if (decisions.isEmpty()) {
+            throw new IllegalArgumentException("The decision table is empty");
+        }
+        int rows = decisions.size();
+        VerificationResult.ValidationStatus[] statuses = new VerificationResult.ValidationStatus[rows];
+        int[] typeMasks = new int[rows];
+        double[] minScores = new double[rows];
+        long[] anyFlaggedMasks = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            Decision decision = decisions.get(row);
+            if (decision.getStatus() != VerificationResult.ValidationStatus.APPROVED
+                    && decision.getStatus() != VerificationResult.ValidationStatus.MANUAL_REVIEW
+                    && decision.getStatus() != VerificationResult.ValidationStatus.REJECTED) {
+                throw new IllegalArgumentException("Decision " + (row + 1) + " must be APPROVED, MANUAL_REVIEW or REJECTED");
+            }
+            statuses[row] = decision.getStatus();
+            if (decision.getTypes() == null || decision.getTypes().isEmpty()) {
+                typeMasks[row] = -1;
+            } else {
+                for (VerificationResult.VerificationType type : decision.getTypes()) {
+                    typeMasks[row] |= 1 << type.ordinal();
+                }
+            }
+            minScores[row] = decision.getMinScore() != null ? decision.getMinScore() : Double.NEGATIVE_INFINITY;
+            if (decision.getAnyFlagged() != null) {
+                for (RiskSignal signal : decision.getAnyFlagged()) {
+                    anyFlaggedMasks[row] |= 1L << signal.ordinal();
+                }
+            }
+        }
+        int last = rows - 1;
+        if (typeMasks[last] != -1 || minScores[last] != Double.NEGATIVE_INFINITY || anyFlaggedMasks[last] != 0) {
+            throw new IllegalArgumentException("The last decision must have no conditions, so every verification gets a status");
+        }
+        return new Compiled(version != null ? version : "unversioned",
+                compiledWeights, compiledThresholds, statuses, typeMasks, minScores, anyFlaggedMasks);
+    }
+
+    /**
+     * The rules as flat arrays indexed by signal ordinal and decision row. Evaluation walks the scored
+     * signals with bit operations and the rows in order, and allocates nothing.
+     */
+    public static final class Compiled {
+
+        private final String version;
+        private final double[] weights;
+        private final double[] flagThresholds;
+        private final VerificationResult.ValidationStatus[] statuses;
+        private final int[] typeMasks;
+        private final double[] minScores;
+        private final long[] anyFlaggedMasks;
+
+        private Compiled(String version, double[] weights, double[] flagThresholds,
+                         VerificationResult.ValidationStatus[] statuses, int[] typeMasks,
+                         double[] minScores, long[] anyFlaggedMasks) {
+            this.version = version;
+            this.weights = weights;
+            this.flagThresholds = flagThresholds;
+            this.statuses = statuses;
+            this.typeMasks = typeMasks;
+            this.minScores = minScores;
+            this.anyFlaggedMasks = anyFlaggedMasks;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @return Score at which the signal is flagged
+         */
+        public double flagThreshold(RiskSignal signal) {
+            return flagThresholds[signal.ordinal()];
+        }
+
+        /**
+         * Computes the risk score and flags of the scorecard and records the decision in it
+         */
+        public void evaluate(RiskScorecard scorecard) {
+            double[] scores = scorecard.scores();
+            double riskScore = 0;
+            long flagged = 0;
+            for (long mask = scorecard.getScoredMask(); mask != 0; mask &= mask - 1) {
+                int signal = Long.numberOfTrailingZeros(mask);
+                riskScore += weights[signal] * scores[signal];
+                if (scores[signal] >= flagThresholds[signal]) {
+                    flagged |= 1L << signal;
+                }
+            }
+            int typeBit = 1 << scorecard.getVerificationType().ordinal();
+            for (int row = 0; row < statuses.length; row++) {
+                if ((typeMasks[row] & typeBit) != 0
+                        && riskScore >= minScores[row]
+                        && (anyFlaggedMasks[row] == 0 || (flagged & anyFlaggedMasks[row]) != 0)) {
+                    scorecard.decide(riskScore, flagged, statuses[row], version);
+                    return;
+                }
+            }
+            throw new IllegalStateException("No decision matched"); // the last row is unconditional
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+
+/**
+ * Scores of one verification's risk signals and the decision the {@link RiskEngine} takes from them.
+ * Scores range from 0 (no sign of fraud) to 1; signals that did not run (timed out, failed, not part of
+ * the flow) are left out of the score rather than counted as 0.
+ */
+@Getter
+public class RiskScorecard {
+
+    private final VerificationResult.VerificationType verificationType;
+    @Getter(AccessLevel.NONE)
+    private final double[] scores = new double[RiskSignal.values().length];
+    private long scoredMask;
+    private double riskScore;
+    private long flaggedMask;
+    private VerificationResult.ValidationStatus status;
+    private String rulesVersion;
+
+    public RiskScorecard(VerificationResult.VerificationType verificationType) {
+        this.verificationType = verificationType;
+    }
+
+    /**
+     * @param score Between 0 and 1, clamped
+     */
+    public void score(RiskSignal signal, double score) {
+        scores[signal.ordinal()] = Math.max(0, Math.min(1, score));
+        scoredMask |= 1L << signal.ordinal();
+    }
+
+    public boolean isScored(RiskSignal signal) {
+        return (scoredMask & 1L << signal.ordinal()) != 0;
+    }
+
+    public double getScore(RiskSignal signal) {
+        return scores[signal.ordinal()];
+    }
+
+    public boolean isFlagged(RiskSignal signal) {
+        return (flaggedMask & 1L << signal.ordinal()) != 0;
+    }
+
+    /**
+     * @return The flagged signals as fraud types, in signal order
+     */
+    public ArrayList<String> flaggedTypes() {
+        ArrayList<String> types = new ArrayList<>(Long.bitCount(flaggedMask));
+        for (long mask = flaggedMask; mask != 0; mask &= mask - 1) {
+            types.add(RiskSignal.of(Long.numberOfTrailingZeros(mask)).name());
+        }
+        return types;
+    }
+
+    void decide(double riskScore, long flaggedMask, VerificationResult.ValidationStatus status, String rulesVersion) {
+        this.riskScore = riskScore;
+        this.flaggedMask = flaggedMask;
+        this.status = status;
+        this.rulesVersion = rulesVersion;
+    }
+
+    double[] scores() {
+        return scores;
+    }
+}
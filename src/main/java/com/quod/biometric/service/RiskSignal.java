@@ -0,0 +1,28 @@
+package com.quod.biometric.service;
+
+/**
+ * Everything that contributes to the risk score of a verification: the fraud checks, the velocity rules
+ * and cross-account image reuse. The names are the fraud types reported when a signal is flagged; the
+ * ordinals index the compiled risk rules, so there can be at most 64 signals.
+ */
+public enum RiskSignal {
+    DEEPFAKE,
+    MASK,
+    PHOTO_OF_PHOTO,
+    SYNTHETIC_FINGERPRINT,
+    FINGERPRINT_REPLICA,
+    DOCTORED_DOCUMENT,
+    FAKE_DOCUMENT,
+    FACE_DOCUMENT_MISMATCH,
+    NEAR_DUPLICATE_FACE,
+    VELOCITY_USER_ATTEMPTS,
+    VELOCITY_DEVICE_USERS,
+    VELOCITY_GEO_ATTEMPTS,
+    CROSS_ACCOUNT_IMAGE_REUSE;
+
+    private static final RiskSignal[] VALUES = values();
+
+    static RiskSignal of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,85 @@
+package com.quod.biometric.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The decode of one image, shared by every fraud check of a request that needs its pixels. The first
+ * {@link #acquire()} decodes, the others wait for it and get the same pixels. The raster goes back to
+ * the pool once the owner closed the handle and every acquire was released, so a check still running
+ * past its deadline never reads a recycled raster.
+ */
+public class SharedDecode implements AutoCloseable {
+
+    private final ImageDecoder decoder;
+    private final IngestedImage image;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int references = 1; // the owner's
+    private boolean closed;
+    private boolean decodeAttempted;
+    private DecodedImage decoded;
+    private RuntimeException failure;
+
+    SharedDecode(ImageDecoder decoder, IngestedImage image) {
+        this.decoder = decoder;
+        this.image = image;
+    }
+
+    /**
+     * Decodes the image on first use; a call that returns must be followed by {@link #release()}
+     * @return The decoded image, or null if the image cannot be decoded
+     * @throws java.util.concurrent.RejectedExecutionException If the decode memory budget stayed exhausted
+     * @throws IllegalStateException If the owner already closed the handle
+     */
+    public DecodedImage acquire() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The request no longer holds the image");
+            }
+            if (!decodeAttempted) {
+                decodeAttempted = true;
+                try {
+                    decoded = decoder.decode(image);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            references++;
+            return decoded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            if (--references == 0 && decoded != null) {
+                decoder.recycle(decoded);
+                decoded = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the owner's reference; checks still holding the pixels keep them until they release
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        release();
+    }
+}
@@ -0,0 +1,226 @@
+package com.quod.biometric.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-key sliding-window counters with a fixed memory budget.
+ * The window is split into {@value #BUCKETS} buckets; a key holds one ring of buckets and the bucket
+ * number it last touched, and buckets that fell out of the window are cleared when the key is next
+ * used. Keys are 64-bit hashes kept in open-addressing tables split into independently locked
+ * stripes, so an update is a few array accesses under an uncontended lock and the whole table is
+ * allocated up front (about 85 bytes per key). When a stripe fills up its idle keys (nothing within
+ * the window) are evicted; if every key is active, new keys are not counted until space frees up.
+ *
+ * In {@link Mode#COUNT} a bucket counts events. In {@link Mode#DISTINCT} it is a 64-bit bitmap of
+ * member hashes and the window reports a linear-counting estimate of distinct members, accurate for
+ * the small numbers (tens) that velocity rules look for.
+ */
+public class SlidingWindowCounter {
+
+    public enum Mode { COUNT, DISTINCT }
+
+    static final int BUCKETS = 6;
+    private static final int STRIPES = 64;
+    private static final int SLOTS = BUCKETS + 1; // bucket ring, then the last bucket number used
+    private static final double MAX_LOAD = 0.75;
+
+    private final Mode mode;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param mode Whether to count events or distinct members
+     * @param window Length of the sliding window
+     * @param maxKeys Number of keys tracked at most
+     * @param clock Current time in milliseconds
+     */
+    public SlidingWindowCounter(Mode mode, Duration window, int maxKeys, LongSupplier clock) {
+        this.mode = mode;
+        this.bucketMillis = Math.max(1, window.toMillis() / BUCKETS);
+        this.clock = clock;
+        int capacity = Math.max(16, (int) Math.ceil(maxKeys / (double) STRIPES / MAX_LOAD));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    /**
+     * Counts one event for the key
+     * @return Events for the key within the window, including this one; 0 if the key could not be tracked
+     */
+    public long increment(String key) {
+        return record(key, 1);
+    }
+
+    /**
+     * Records a member (e.g. a user) seen with the key (e.g. a device)
+     * @return Estimated distinct members within the window, including this one; 0 if the key could not be tracked
+     */
+    public long addDistinct(String key, String member) {
+        return record(key, 1L << (hash(member) & 63));
+    }
+
+    /**
+     * @return Number of keys currently held
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private long record(String key, long value) {
+        long keyHash = hash(key);
+        long bucket = clock.getAsLong() / bucketMillis;
+        Stripe stripe = stripes[(int) (keyHash >>> 58)]; // top bits pick the stripe, low bits the slot
+        stripe.lock.lock();
+        try {
+            int entry = stripe.find(keyHash, bucket);
+            if (entry < 0) {
+                return 0;
+            }
+            long[] slots = stripe.slots;
+            int base = entry * SLOTS;
+            long lastBucket = slots[base + BUCKETS];
+            if (bucket > lastBucket) {
+                // Clear the buckets that slid out of the window since the key was last used
+                for (long expired = Math.max(lastBucket + 1, bucket - BUCKETS + 1); expired <= bucket; expired++) {
+                    slots[base + (int) (expired % BUCKETS)] = 0;
+                }
+                slots[base + BUCKETS] = bucket;
+            }
+            int current = base + (int) (Math.max(bucket, lastBucket) % BUCKETS);
+            if (mode == Mode.COUNT) {
+                slots[current] += value;
+                long total = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    total += slots[base + i];
+                }
+                return total;
+            }
+            slots[current] |= value;
+            long union = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                union |= slots[base + i];
+            }
+            return estimateDistinct(union);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Linear counting over a 64-bit bitmap
+     */
+    static long estimateDistinct(long bitmap) {
+        int zeros = 64 - Long.bitCount(bitmap);
+        if (zeros == 0) {
+            return Math.round(64 * Math.log(64)); // saturated
+        }
+        return Math.round(-64 * Math.log(zeros / 64.0));
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters followed by a final mix; never 0, which marks an empty slot
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] keys;
+        private long[] slots;
+        private final int capacity;
+        private final int maxSize;
+        private int size;
+        private long noEvictionBefore; // bucket after a full stripe was swept without freeing anything
+
+        private Stripe(int capacity) {
+            this.keys = new long[capacity];
+            this.slots = new long[capacity * SLOTS];
+            this.capacity = capacity;
+            this.maxSize = (int) (capacity * MAX_LOAD);
+        }
+
+        private int home(long keyHash) {
+            return (int) (((keyHash & 0xffffffffL) * capacity) >>> 32);
+        }
+
+        private int next(int index) {
+            return index + 1 == capacity ? 0 : index + 1;
+        }
+
+        /**
+         * @return The entry of the key, added if missing, or -1 if the stripe is full of active keys
+         */
+        private int find(long keyHash, long bucket) {
+            int index = home(keyHash);
+            while (keys[index] != 0) {
+                if (keys[index] == keyHash) {
+                    return index;
+                }
+                index = next(index);
+            }
+            if (size >= maxSize) {
+                if (bucket < noEvictionBefore) {
+                    return -1;
+                }
+                evictIdle(bucket);
+                if (size >= maxSize) {
+                    noEvictionBefore = bucket + 1;
+                    return -1;
+                }
+                return find(keyHash, bucket);
+            }
+            keys[index] = keyHash;
+            int base = index * SLOTS;
+            Arrays.fill(slots, base, base + BUCKETS, 0);
+            slots[base + BUCKETS] = bucket;
+            size++;
+            return index;
+        }
+
+        /**
+         * Rebuilds the stripe without the keys that saw nothing within the window
+         */
+        private void evictIdle(long bucket) {
+            long[] oldKeys = keys.clone();
+            long[] oldSlots = slots;
+            Arrays.fill(keys, 0);
+            slots = new long[oldSlots.length];
+            size = 0;
+            for (int entry = 0; entry < oldKeys.length; entry++) {
+                if (oldKeys[entry] == 0 || oldSlots[entry * SLOTS + BUCKETS] <= bucket - BUCKETS) {
+                    continue;
+                }
+                int index = home(oldKeys[entry]);
+                while (keys[index] != 0) {
+                    index = next(index);
+                }
+                keys[index] = oldKeys[entry];
+                System.arraycopy(oldSlots, entry * SLOTS, slots, index * SLOTS, SLOTS);
+                size++;
+            }
+        }
+    }
+}
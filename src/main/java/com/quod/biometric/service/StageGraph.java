@@ -0,0 +1,198 @@
+package com.quod.biometric.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A fixed graph of stages run over a per-request context. Each stage is declared after the stages it
+ * depends on, which keeps the graph acyclic, and is placed one level after the deepest of them. The
+ * stages of a level are independent and run in parallel: the first on the calling thread, the others on
+ * the executor (or on the calling thread too when the executor refuses them).
+ *
+ * A stage either lets the run go on (returns null) or ends it with an outcome. When several stages of a
+ * level end it, the first one declared wins; later levels do not run. A run only returns once every
+ * stage it started has finished, so stages may use resources the caller releases afterwards.
+ *
+ * @param <C> Per-request context; stages of one level must write to separate parts of it
+ * @param <R> Outcome of a run
+ */
+public final class StageGraph<C, R> {
+
+    @FunctionalInterface
+    public interface Stage<C, R> {
+
+        /**
+         * @return The outcome that ends the run, or null to go on with the next level
+         */
+        R run(C context);
+    }
+
+    /**
+     * @param outcome Outcome of the stage that ended the run
+     * @param stageNanos Time taken by each stage that ran, in declaration order
+     */
+    public record Run<R>(R outcome, Map<String, Long> stageNanos) {
+    }
+
+    private final Executor executor;
+    private final String[] names;
+    private final List<Stage<C, R>> stages;
+    private final int[][] levels; // stage indexes of each level, in declaration order
+
+    private StageGraph(Executor executor, List<String> names, List<Stage<C, R>> stages, List<Integer> stageLevels) {
+        this.executor = executor;
+        this.names = names.toArray(String[]::new);
+        this.stages = List.copyOf(stages);
+        int levelCount = stageLevels.stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        List<List<Integer>> grouped = new ArrayList<>();
+        for (int level = 0; level < levelCount; level++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (int stage = 0; stage < stageLevels.size(); stage++) {
+            grouped.get(stageLevels.get(stage)).add(stage);
+        }
+        this.levels = grouped.stream()
+                .map(level -> level.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    /**
+     * @param executor Runs the second and further stages of a level
+     */
+    public static <C, R> Builder<C, R> builder(Executor executor) {
+        return new Builder<>(executor);
+    }
+
+    /**
+     * Runs the graph level by level until a stage returns an outcome
+     * @throws IllegalStateException If every stage ran and none returned an outcome
+     */
+    public Run<R> run(C context) {
+        long[] elapsedNanos = new long[names.length];
+        Arrays.fill(elapsedNanos, -1);
+        for (int[] level : levels) {
+            R outcome = level.length == 1
+                    ? runStage(level[0], context, elapsedNanos)
+                    : runLevel(level, context, elapsedNanos);
+            if (outcome != null) {
+                Map<String, Long> stageNanos = new LinkedHashMap<>();
+                for (int stage = 0; stage < names.length; stage++) {
+                    if (elapsedNanos[stage] >= 0) {
+                        stageNanos.put(names[stage], elapsedNanos[stage]);
+                    }
+                }
+                return new Run<>(outcome, stageNanos);
+            }
+        }
+        throw new IllegalStateException("No stage returned an outcome");
+    }
+
+    private R runLevel(int[] level, C context, long[] elapsedNanos) {
+        List<FutureTask<R>> forked = new ArrayList<>(level.length - 1);
+        for (int i = 1; i < level.length; i++) {
+            int stage = level[i];
+            FutureTask<R> task = new FutureTask<>(() -> runStage(stage, context, elapsedNanos));
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+            forked.add(task);
+        }
+
+        R outcome = null;
+        RuntimeException failure = null;
+        try {
+            outcome = runStage(level[0], context, elapsedNanos);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        boolean interrupted = false;
+        for (FutureTask<R> task : forked) {
+            while (true) {
+                try {
+                    R forkedOutcome = task.get();
+                    if (outcome == null) {
+                        outcome = forkedOutcome;
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // keep waiting, the stage may still be using the context
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException cause
+                                ? cause : new IllegalStateException("Stage failed", e.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return outcome;
+    }
+
+    private R runStage(int stage, C context, long[] elapsedNanos) {
+        long start = System.nanoTime();
+        try {
+            return stages.get(stage).run(context);
+        } finally {
+            elapsedNanos[stage] = System.nanoTime() - start;
+        }
+    }
+
+    public static final class Builder<C, R> {
+
+        private final Executor executor;
+        private final List<String> names = new ArrayList<>();
+        private final List<Stage<C, R>> stages = new ArrayList<>();
+        private final List<Integer> levels = new ArrayList<>();
+        private final Map<String, Integer> levelsByName = new HashMap<>();
+
+        private Builder(Executor executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * @param name Stage name, unique in the graph
+         * @param stage What the stage does
+         * @param after Stages that must finish before this one, all declared already
+         * @throws IllegalArgumentException If the name is taken or a dependency is not declared yet
+         */
+        public Builder<C, R> stage(String name, Stage<C, R> stage, String... after) {
+            if (levelsByName.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate stage: " + name);
+            }
+            int level = 0;
+            for (String dependency : after) {
+                Integer dependencyLevel = levelsByName.get(dependency);
+                if (dependencyLevel == null) {
+                    throw new IllegalArgumentException("Stage " + name + " depends on " + dependency
+                            + ", which must be declared before it");
+                }
+                level = Math.max(level, dependencyLevel + 1);
+            }
+            names.add(name);
+            stages.add(stage);
+            levels.add(level);
+            levelsByName.put(name, level);
+            return this;
+        }
+
+        public StageGraph<C, R> build() {
+            return new StageGraph<>(executor, names, stages, levels);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Flags bursts of verification attempts using in-memory sliding-window counters:
+ * too many attempts by one user, too many users on one device, or too many attempts from one
+ * geolocation within the configured windows. Counters live only in this instance.
+ */
+@Component
+public class VelocityEngine {
+
+    private final boolean enabled;
+    private final Rule userAttempts;
+    private final Rule deviceUsers;
+    private final Rule geoAttempts;
+
+    public VelocityEngine(
+            MeterRegistry meterRegistry,
+            @Value("${velocity.enabled:true}") boolean enabled,
+            @Value("${velocity.user-attempts.window:1m}") Duration userAttemptsWindow,
+            @Value("${velocity.user-attempts.limit:10}") int userAttemptsLimit,
+            @Value("${velocity.user-attempts.max-keys:500000}") int userAttemptsMaxKeys,
+            @Value("${velocity.device-users.window:10m}") Duration deviceUsersWindow,
+            @Value("${velocity.device-users.limit:5}") int deviceUsersLimit,
+            @Value("${velocity.device-users.max-keys:250000}") int deviceUsersMaxKeys,
+            @Value("${velocity.geo-attempts.window:1m}") Duration geoAttemptsWindow,
+            @Value("${velocity.geo-attempts.limit:100}") int geoAttemptsLimit,
+            @Value("${velocity.geo-attempts.max-keys:50000}") int geoAttemptsMaxKeys) {
+        this.enabled = enabled;
+        this.userAttempts = enabled ? new Rule("VELOCITY_USER_ATTEMPTS", "userAttempts", SlidingWindowCounter.Mode.COUNT,
+                userAttemptsWindow, userAttemptsLimit, userAttemptsMaxKeys, meterRegistry) : null;
+        this.deviceUsers = enabled ? new Rule("VELOCITY_DEVICE_USERS", "deviceUsers", SlidingWindowCounter.Mode.DISTINCT,
+                deviceUsersWindow, deviceUsersLimit, deviceUsersMaxKeys, meterRegistry) : null;
+        this.geoAttempts = enabled ? new Rule("VELOCITY_GEO_ATTEMPTS", "geoAttempts", SlidingWindowCounter.Mode.COUNT,
+                geoAttemptsWindow, geoAttemptsLimit, geoAttemptsMaxKeys, meterRegistry) : null;
+    }
+
+    /**
+     * Records the attempt in every window and checks the limits
+     * @param attempt The verification attempt
+     * @return The triggered fraud types and the window counts, or null when velocity checks are disabled
+     */
+    public Report record(VerificationAttempt attempt) {
+        if (!enabled) {
+            return null;
+        }
+        Report report = new Report();
+        userAttempts.apply(report, userAttempts.counter.increment(attempt.userId()));
+        if (isPresent(attempt.deviceInfo())) {
+            deviceUsers.apply(report, deviceUsers.counter.addDistinct(normalize(attempt.deviceInfo()), attempt.userId()));
+        }
+        if (isPresent(attempt.geoLocation())) {
+            geoAttempts.apply(report, geoAttempts.counter.increment(normalize(attempt.geoLocation())));
+        }
+        return report;
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Getter
+    public static class Report {
+        private final List<String> fraudTypes = new ArrayList<>();
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+        private final Map<String, Double> scores = new LinkedHashMap<>(); // by fraud type: 1 over the limit, else 0
+    }
+
+    private static final class Rule {
+
+        private final String fraudType;
+        private final String name;
+        private final int limit;
+        private final SlidingWindowCounter counter;
+        private final Counter untracked;
+
+        private Rule(String fraudType, String name, SlidingWindowCounter.Mode mode, Duration window, int limit, int maxKeys,
+                     MeterRegistry meterRegistry) {
+            this.fraudType = fraudType;
+            this.name = name;
+            this.limit = limit;
+            this.counter = new SlidingWindowCounter(mode, window, maxKeys, System::currentTimeMillis);
+            this.untracked = meterRegistry.counter("velocity.untracked", "rule", name);
+            Gauge.builder("velocity.keys", counter, SlidingWindowCounter::size)
+                    .tag("rule", name)
+                    .register(meterRegistry);
+        }
+
+        private void apply(Report report, long count) {
+            if (count == 0) {
+                untracked.increment(); // every key in the stripe is active, see velocity.*.max-keys
+                return;
+            }
+            report.counts.put(name, count);
+            report.scores.put(fraudType, count > limit ? 1.0 : 0.0);
+            if (count > limit) {
+                report.fraudTypes.add(fraudType);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, content-addressed cache of verification verdicts.
+ * Keys combine the verification type with the SHA-256 hashes computed at ingest time, so a
+ * replayed submission is recognised without re-reading the image. Entries expire after a fixed time
+ * to live. The cache is split by key hash into independently locked stripes, each holding an equal
+ * share of the entries in LRU order, so concurrent lookups of different content rarely wait on each
+ * other; eviction is least recently used within a stripe.
+ */
+@Component
+public class VerdictCache {
+
+    /** Rough per-entry overhead of the map node, key, response and timestamps */
+    private static final int ENTRY_OVERHEAD_BYTES = 400;
+    private static final int STRIPES = 16;
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Stripe[] stripes;
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter crossUserHits;
+
+    @Autowired
+    public VerdictCache(
+            @Value("${verdict-cache.enabled:true}") boolean enabled,
+            @Value("${verdict-cache.max-entries:100000}") int maxEntries,
+            @Value("${verdict-cache.ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this(enabled, maxEntries, ttl, meterRegistry, STRIPES, System::nanoTime);
+    }
+
+    /**
+     * @param stripes Number of independently locked stripes
+     * @param clock Current time in nanoseconds
+     */
+    VerdictCache(boolean enabled, int maxEntries, Duration ttl, MeterRegistry meterRegistry, int stripes, LongSupplier clock) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.stripes = new Stripe[stripes];
+        int stripeEntries = Math.max(1, (maxEntries + stripes - 1) / stripes);
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(stripeEntries);
+        }
+        this.hits = meterRegistry.counter("verdict.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("verdict.cache.requests", "result", "miss");
+        this.crossUserHits = meterRegistry.counter("verdict.cache.cross_user_hits");
+        Gauge.builder("verdict.cache.size", this, VerdictCache::size).register(meterRegistry);
+        Gauge.builder("verdict.cache.estimated.bytes", estimatedBytes, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Builds the cache key for a submission
+     * @param verificationType The verification type
+     * @param images The ingested images of the submission, in a fixed order
+     * @return The cache key, or null if any image could not be hashed
+     */
+    public static String key(VerificationResult.VerificationType verificationType, IngestedImage... images) {
+        StringBuilder key = new StringBuilder(verificationType.name());
+        for (IngestedImage image : images) {
+            if (image.getContentHash() == null) {
+                return null;
+            }
+            key.append(':').append(image.getContentHash());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Looks up a verdict; a hit under another user ID is counted separately as a reuse signal
+     * @param key The cache key, may be null
+     * @param userId The user submitting the image
+     * @return The cached verdict, or null on a miss
+     */
+    public CachedVerdict get(String key, String userId) {
+        if (!enabled || key == null) {
+            return null;
+        }
+        Stripe stripe = stripe(key);
+        CachedVerdict cached;
+        stripe.lock.lock();
+        try {
+            cached = stripe.entries.get(key);
+            if (cached != null && clock.getAsLong() - cached.cachedAtNanos > ttlNanos) {
+                stripe.entries.remove(key);
+                estimatedBytes.addAndGet(-cached.estimatedBytes);
+                cached = null;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        if (cached == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+            if (!cached.userId.equals(userId)) {
+                crossUserHits.increment();
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Caches a verdict unless the same content is already cached, so the first submitter stays the owner
+     */
+    public void putIfAbsent(String key, String userId, VerificationResponse response) {
+        if (!enabled || key == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        CachedVerdict verdict = new CachedVerdict(userId, response, now,
+                ENTRY_OVERHEAD_BYTES + 2L * (key.length() + userId.length()));
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            CachedVerdict existing = stripe.entries.get(key);
+            if (existing == null || now - existing.cachedAtNanos > ttlNanos) {
+                stripe.entries.put(key, verdict);
+                estimatedBytes.addAndGet(verdict.estimatedBytes - (existing != null ? existing.estimatedBytes : 0));
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    /**
+     * An access-ordered map of one share of the entries, evicting its least recently used entry when full
+     */
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, CachedVerdict> entries;
+
+        Stripe(int maxEntries) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedVerdict> eldest) {
+                    if (size() > maxEntries) {
+                        estimatedBytes.addAndGet(-eldest.getValue().estimatedBytes);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedVerdict {
+        private final String userId;
+        private final VerificationResponse response;
+        @Getter(lombok.AccessLevel.NONE)
+        private final long cachedAtNanos;
+        @Getter(lombok.AccessLevel.NONE)
+        private final long estimatedBytes;
+
+        public boolean isSameUser(String otherUserId) {
+            return userId.equals(otherUserId);
+        }
+    }
+}
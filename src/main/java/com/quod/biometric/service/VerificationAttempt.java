@@ -0,0 +1,10 @@
+package com.quod.biometric.service;
+
+/**
+ * Who submitted a verification and from where, as used by the velocity rules
+ * @param userId The user
+ * @param deviceInfo Device description sent by the client, may be null
+ * @param geoLocation Location sent by the client, may be null
+ */
+public record VerificationAttempt(String userId, String deviceInfo, String geoLocation) {
+}
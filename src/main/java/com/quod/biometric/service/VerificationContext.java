@@ -0,0 +1,61 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One verification as it moves through its {@link StageGraph}: the request, its images and what the
+ * stages found so far. Stages that run in parallel write to separate fields (validation fills a
+ * different image field of the metadata per image).
+ */
+@Getter
+public class VerificationContext {
+
+    public enum ImageRole { FACE, FINGERPRINT, DOCUMENT }
+
+    private final VerificationResult.VerificationType verificationType;
+    private final VerificationAttempt attempt;
+    private final VerificationMetadata metadata; // request fields first, filled in by the stages
+    private final List<IngestedImage> images = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final IngestedImage[] imagesByRole = new IngestedImage[ImageRole.values().length];
+    @Setter
+    private String cacheKey;
+    @Setter
+    private VelocityEngine.Report velocity; // recorded by replay, null when velocity checks are disabled
+    @Setter
+    private boolean reusedByAnotherUser;
+    @Setter
+    private FraudAssessment fraudAssessment;
+
+    public VerificationContext(VerificationResult.VerificationType verificationType,
+                               VerificationAttempt attempt,
+                               VerificationMetadata metadata) {
+        this.verificationType = verificationType;
+        this.attempt = attempt;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Adds an image; the first one added is the one the result references
+     */
+    public VerificationContext image(ImageRole role, IngestedImage image) {
+        imagesByRole[role.ordinal()] = image;
+        images.add(image);
+        return this;
+    }
+
+    public IngestedImage getImage(ImageRole role) {
+        return imagesByRole[role.ordinal()];
+    }
+
+    public String getUserId() {
+        return attempt.userId();
+    }
+}
@@ -0,0 +1,239 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.ImageMetadata;
+import com.quod.biometric.model.NotificationOutbox;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import com.quod.biometric.service.BiometricVerificationService.Evaluation;
+import com.quod.biometric.service.VerificationContext.ImageRole;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * The verification flows, one {@link StageGraph} per verification type over a {@link VerificationContext}:
+ *
+ *   replay -> validate_(image) for each image, in parallel -> detect -> enrich
+ *
+ * replay counts the attempt towards the velocity limits and answers content the same user already submitted
+ * from the verdict cache; validation rejects unusable images; detect runs fraud detection and the risk
+ * decision; enrich builds the result and stores the images. Every flow ends with an {@link Evaluation}; saving it together with its pending notification
+ * is left to the caller, which writes results one at a time, in bulk or reactively. A new verification
+ * type is one more graph built from these stages.
+ *
+ * Stages are timed by verification.flow.stage{type,stage}; the times are also kept in the result metadata.
+ */
+@Component
+public class VerificationFlows {
+
+    static final String REPLAY = "replay";
+    static final String VALIDATE_FACE = "validate_face";
+    static final String VALIDATE_FINGERPRINT = "validate_fingerprint";
+    static final String VALIDATE_DOCUMENT = "validate_document";
+    static final String DETECT = "detect";
+    static final String ENRICH = "enrich";
+
+    private final ImageValidationService imageValidationService;
+    private final FraudDetectionService fraudDetectionService;
+    private final VerdictCache verdictCache;
+    private final ImageStore imageStore;
+    private final VerificationMetrics verificationMetrics;
+    private final ExecutorService executor;
+    private final Map<VerificationResult.VerificationType, StageGraph<VerificationContext, Evaluation>> flows =
+            new EnumMap<>(VerificationResult.VerificationType.class);
+
+    public VerificationFlows(
+            ImageValidationService imageValidationService,
+            FraudDetectionService fraudDetectionService,
+            VerdictCache verdictCache,
+            ImageStore imageStore,
+            VerificationMetrics verificationMetrics,
+            PipelineThreads pipelineThreads,
+            @Value("${verification.stages.threads:4}") int threads,
+            @Value("${verification.stages.queue-capacity:1000}") int queueCapacity) {
+        this.imageValidationService = imageValidationService;
+        this.fraudDetectionService = fraudDetectionService;
+        this.verdictCache = verdictCache;
+        this.imageStore = imageStore;
+        this.verificationMetrics = verificationMetrics;
+        // A stage refused by a saturated pool runs on the request thread instead
+        this.executor = pipelineThreads.newExecutor("verification-stage-", threads, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+
+        flows.put(VerificationResult.VerificationType.FACIAL_BIOMETRY, StageGraph.<VerificationContext, Evaluation>builder(executor)
+                .stage(REPLAY, this::replay)
+                .stage(VALIDATE_FACE, validate(ImageRole.FACE, "Image validation failed: ", VerificationMetadata::setImage), REPLAY)
+                .stage(DETECT, context -> detected(context, fraudDetectionService.detectFacialFraud(
+                        context.getImage(ImageRole.FACE), context.getVelocity(), context.isReusedByAnotherUser())), VALIDATE_FACE)
+                .stage(ENRICH, this::enrich, DETECT)
+                .build());
+
+        flows.put(VerificationResult.VerificationType.FINGERPRINT_BIOMETRY, StageGraph.<VerificationContext, Evaluation>builder(executor)
+                .stage(REPLAY, this::replay)
+                .stage(VALIDATE_FINGERPRINT, validate(ImageRole.FINGERPRINT, "Image validation failed: ", VerificationMetadata::setImage), REPLAY)
+                .stage(DETECT, context -> detected(context, fraudDetectionService.detectFingerprintFraud(
+                        context.getImage(ImageRole.FINGERPRINT), context.getVelocity(), context.isReusedByAnotherUser())), VALIDATE_FINGERPRINT)
+                .stage(ENRICH, this::enrich, DETECT)
+                .build());
+
+        // Both images are validated at the same time; when both fail, the document's errors are reported
+        flows.put(VerificationResult.VerificationType.DOCUMENT_ANALYSIS, StageGraph.<VerificationContext, Evaluation>builder(executor)
+                .stage(REPLAY, this::replay)
+                .stage(VALIDATE_DOCUMENT, validate(ImageRole.DOCUMENT, "Document image validation failed: ", VerificationMetadata::setDocumentImage), REPLAY)
+                .stage(VALIDATE_FACE, validate(ImageRole.FACE, "Face image validation failed: ", VerificationMetadata::setFaceImage), REPLAY)
+                .stage(DETECT, context -> detected(context, fraudDetectionService.detectDocumentFraud(
+                        context.getImage(ImageRole.DOCUMENT), context.getImage(ImageRole.FACE),
+                        context.getVelocity(), context.isReusedByAnotherUser())), VALIDATE_DOCUMENT, VALIDATE_FACE)
+                .stage(ENRICH, this::enrich, DETECT)
+                .build());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the flow of the context's verification type
+     * @return The evaluation, either a final response or a result still to be saved
+     */
+    Evaluation run(VerificationContext context) {
+        StageGraph.Run<Evaluation> run = flows.get(context.getVerificationType()).run(context);
+        Map<String, Long> stageMicros = new LinkedHashMap<>();
+        run.stageNanos().forEach((stage, nanos) -> {
+            verificationMetrics.flowStage(context.getVerificationType(), stage).record(nanos, TimeUnit.NANOSECONDS);
+            stageMicros.put(stage, TimeUnit.NANOSECONDS.toMicros(nanos));
+        });
+        if (run.outcome().getResult() != null) {
+            run.outcome().getResult().getMetadata().setStageTimingsMicros(stageMicros);
+        }
+        return run.outcome();
+    }
+
+    /**
+     * Counts the attempt towards the velocity limits, then answers replayed content from the verdict cache
+     * unless another user submitted it first or the attempt is over a velocity limit
+     */
+    private Evaluation replay(VerificationContext context) {
+        // Before the cache lookup, so a burst of replays trips the limits like any other burst
+        context.setVelocity(fraudDetectionService.recordAttempt(context.getAttempt()));
+        context.setCacheKey(VerdictCache.key(context.getVerificationType(), context.getImages().toArray(IngestedImage[]::new)));
+        VerdictCache.CachedVerdict cachedVerdict = verdictCache.get(context.getCacheKey(), context.getUserId());
+        boolean sameUser = cachedVerdict != null && cachedVerdict.isSameUser(context.getUserId());
+        // The cached verdict predates the burst, so an attempt over a limit is evaluated again
+        if (sameUser && !isOverVelocityLimit(context.getVelocity())) {
+            return Evaluation.done(cachedVerdict.getResponse());
+        }
+        // Content first submitted by another user counts against this verification
+        context.setReusedByAnotherUser(cachedVerdict != null && !sameUser);
+        return null;
+    }
+
+    private static boolean isOverVelocityLimit(VelocityEngine.Report velocity) {
+        return velocity != null && !velocity.getFraudTypes().isEmpty();
+    }
+
+    /**
+     * Basic image validation; a valid image's metadata goes to the given metadata field
+     */
+    private StageGraph.Stage<VerificationContext, Evaluation> validate(
+            ImageRole role, String failureMessage, BiConsumer<VerificationMetadata, ImageMetadata> metadataField) {
+        return context -> {
+            ImageValidation validation = imageValidationService.validateImage(context.getImage(role));
+            if (!validation.isValid()) {
+                return Evaluation.done(createRejectedResponse(context, failureMessage + validation.getErrors()));
+            }
+            metadataField.accept(context.getMetadata(), validation.getMetadata());
+            return null;
+        };
+    }
+
+    private static Evaluation detected(VerificationContext context, FraudAssessment fraudAssessment) {
+        context.setFraudAssessment(fraudAssessment);
+        return null;
+    }
+
+    /**
+     * Builds the result the caller saves together with its pending notification (delivered by the outbox relay)
+     */
+    private Evaluation enrich(VerificationContext context) {
+        VerificationMetadata metadata = context.getMetadata();
+        metadata.setDeviceInfo(context.getAttempt().deviceInfo());
+        metadata.setGeoLocation(context.getAttempt().geoLocation());
+        VerificationResult result = createVerificationResult(context, context.getFraudAssessment());
+
+        // Keep signal scores, per-check timing and the face hash so results can be traced back and re-indexed
+        addFraudCheckReport(result, context.getFraudAssessment());
+
+        // Keep the images for review; they are written behind the request. The result references the
+        // first one, the others are found by their content hash in the metadata
+        List<IngestedImage> images = context.getImages();
+        result.setImageReference(imageStore.store(images.get(0)));
+        for (IngestedImage image : images.subList(1, images.size())) {
+            imageStore.store(image);
+        }
+        return Evaluation.pending(result, context.getCacheKey());
+    }
+
+    /**
+     * Helper method to create a verification result
+     */
+    private static VerificationResult createVerificationResult(VerificationContext context, FraudAssessment fraudAssessment) {
+        boolean fraudDetected = fraudAssessment.isFraudDetected();
+        return VerificationResult.builder()
+                .userId(context.getUserId())
+                .verificationType(context.getVerificationType())
+                .createdAt(LocalDateTime.now())
+                .processedAt(LocalDateTime.now())
+                .fraudDetected(fraudDetected)
+                .fraudTypes(fraudAssessment.getFraudTypes())
+                .status(fraudAssessment.getStatus())
+                .riskScore(fraudAssessment.getRiskScore())
+                .metadata(context.getMetadata())
+                .outbox(NotificationOutbox.pending(fraudDetected
+                        ? NotificationOutbox.NotificationType.FRAUD
+                        : NotificationOutbox.NotificationType.SUCCESS))
+                .build();
+    }
+
+    /**
+     * Helper method to copy the face hash, signal scores, fraud check timing and timed out checks into the result
+     */
+    private static void addFraudCheckReport(VerificationResult result, FraudAssessment fraudAssessment) {
+        result.setFacePerceptualHash(fraudAssessment.getFacePerceptualHash());
+        VerificationMetadata metadata = result.getMetadata();
+        metadata.setNearDuplicateOf(fraudAssessment.getNearDuplicateOf());
+        metadata.setRiskScores(fraudAssessment.getSignalScores());
+        metadata.setRiskRulesVersion(fraudAssessment.getScorecard().getRulesVersion());
+        metadata.setFraudCheckTimingsMicros(fraudAssessment.getCheckTimingsMicros());
+        metadata.setVelocity(fraudAssessment.getVelocity());
+        if (!fraudAssessment.getTimedOutChecks().isEmpty()) {
+            metadata.setTimedOutFraudChecks(fraudAssessment.getTimedOutChecks());
+        }
+    }
+
+    /**
+     * Helper method to create a rejected response without saving to DB
+     */
+    private static VerificationResponse createRejectedResponse(VerificationContext context, String message) {
+        return VerificationResponse.builder()
+                .userId(context.getUserId())
+                .verificationType(context.getVerificationType())
+                .processedAt(LocalDateTime.now())
+                .fraudDetected(false)
+                .status(VerificationResult.ValidationStatus.REJECTED)
+                .message(message)
+                .build();
+    }
+}
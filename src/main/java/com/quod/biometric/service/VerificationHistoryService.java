@@ -0,0 +1,125 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.VerificationPage;
+import com.quod.biometric.dto.VerificationSummary;
+import com.quod.biometric.exception.InvalidRequestException;
+import com.quod.biometric.model.VerificationResult;
+import com.quod.biometric.repository.VerificationHistoryRepository.PageKey;
+import com.quod.biometric.repository.VerificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Paged verification history of a user and the fraud queue.
+ * Pages are returned newest first with an opaque cursor holding the key of the last item; one more
+ * item than requested is read to know whether another page follows.
+ */
+@Service
+public class VerificationHistoryService {
+
+    private final VerificationRepository verificationRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public VerificationHistoryService(
+            VerificationRepository verificationRepository,
+            @Value("${verification.history.default-page-size:50}") int defaultPageSize,
+            @Value("${verification.history.max-page-size:500}") int maxPageSize) {
+        this.verificationRepository = verificationRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * @param userId The user
+     * @param verificationType Optional type filter (e.g. FACIAL_BIOMETRY)
+     * @param limit Optional page size
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @return One page of the user's verifications
+     */
+    public VerificationPage getUserHistory(String userId, String verificationType, Integer limit, String cursor) {
+        Set<VerificationResult.VerificationType> types = verificationType == null
+                ? EnumSet.allOf(VerificationResult.VerificationType.class)
+                : EnumSet.of(parseType(verificationType));
+        int pageSize = pageSize(limit);
+        return toPage(verificationRepository.findHistoryPage(userId, types, decodeCursor(cursor), pageSize + 1), pageSize);
+    }
+
+    /**
+     * @param limit Optional page size
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @return One page of verifications with fraud detected
+     */
+    public VerificationPage getFraudQueue(Integer limit, String cursor) {
+        int pageSize = pageSize(limit);
+        return toPage(verificationRepository.findFraudPage(decodeCursor(cursor), pageSize + 1), pageSize);
+    }
+
+    private VerificationPage toPage(List<VerificationResult> results, int pageSize) {
+        boolean more = results.size() > pageSize;
+        List<VerificationResult> page = more ? results.subList(0, pageSize) : results;
+        List<VerificationSummary> items = page.stream().map(VerificationHistoryService::toSummary).toList();
+        String nextCursor = more ? encodeCursor(PageKey.of(page.get(pageSize - 1))) : null;
+        return new VerificationPage(items, nextCursor);
+    }
+
+    private static VerificationSummary toSummary(VerificationResult result) {
+        return VerificationSummary.builder()
+                .id(result.getId())
+                .userId(result.getUserId())
+                .verificationType(result.getVerificationType())
+                .processedAt(result.getProcessedAt())
+                .fraudDetected(result.isFraudDetected())
+                .fraudTypes(result.getFraudTypes())
+                .status(result.getStatus())
+                .build();
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestException("limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+
+    static VerificationResult.VerificationType parseType(String verificationType) {
+        try {
+            return VerificationResult.VerificationType.valueOf(verificationType.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unknown verification type: " + verificationType);
+        }
+    }
+
+    static String encodeCursor(PageKey key) {
+        String value = key.processedAt() + "|" + key.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static PageKey decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            if (separator <= 0 || separator == value.length() - 1) {
+                throw new InvalidRequestException("Invalid cursor");
+            }
+            return new PageKey(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bulkheads between the verification types. Evaluations (validation and fraud detection) share
+ * verification.lanes.capacity slots; each type has its own lane with a bounded queue, so a burst of one
+ * type (say document analyses, which validate two images and run more checks) waits in its own lane
+ * instead of in front of the others. A free slot goes straight to whoever asks while nobody is waiting;
+ * once lanes queue up, each freed slot goes to the waiting lane running the fewest evaluations for its
+ * weight, so under contention the slots are split by weight and a lane's unused share goes to the others.
+ * An evaluation runs on its caller's thread; callers that cannot get a slot within the queue timeout, or
+ * find their lane's queue full, get a {@link RejectedExecutionException} (503).
+ *
+ * Per lane (type=&lt;TYPE&gt;) settings: verification.lanes.&lt;TYPE&gt;.weight and .queue-capacity.
+ * Meters: verification.lane.queue.wait{type}, verification.lane.running{type}, verification.lane.queued{type},
+ * verification.lane.utilization{type} (running evaluations over the lane's weighted share, above 1 when it
+ * borrows spare slots) and verification.lane.rejected{type,reason=queue_full|timeout}.
+ */
+@Component
+public class VerificationLanes {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long queueTimeoutNanos;
+    private final Map<VerificationResult.VerificationType, Lane> lanes = new EnumMap<>(VerificationResult.VerificationType.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private int running; // guarded by lock
+
+    public VerificationLanes(
+            MeterRegistry meterRegistry,
+            Environment environment,
+            @Value("${verification.lanes.enabled:true}") boolean enabled,
+            @Value("${verification.lanes.capacity:16}") int capacity,
+            @Value("${verification.lanes.queue-timeout:2s}") Duration queueTimeout) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        double totalWeight = 0;
+        for (VerificationResult.VerificationType type : VerificationResult.VerificationType.values()) {
+            String prefix = "verification.lanes." + type.name() + ".";
+            int weight = environment.getProperty(prefix + "weight", Integer.class, 1);
+            int queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class, 100);
+            if (weight < 1 || queueCapacity < 0) {
+                throw new IllegalArgumentException("Invalid lane settings for " + type);
+            }
+            lanes.put(type, new Lane(type, weight, queueCapacity, meterRegistry));
+            totalWeight += weight;
+        }
+        for (Lane lane : lanes.values()) {
+            lane.share = capacity * lane.weight / totalWeight;
+            if (enabled) {
+                lane.registerGauges(meterRegistry);
+            }
+        }
+    }
+
+    /**
+     * Runs an evaluation once its lane gets a slot
+     * @param type Lane of the evaluation
+     * @param evaluation Runs on the calling thread
+     * @throws RejectedExecutionException If the lane's queue is full or no slot freed up in time
+     */
+    public <T> T run(VerificationResult.VerificationType type, Supplier<T> evaluation) {
+        if (!enabled) {
+            return evaluation.get();
+        }
+        Lane lane = lanes.get(type);
+        acquire(lane);
+        try {
+            return evaluation.get();
+        } finally {
+            release(lane);
+        }
+    }
+
+    private void acquire(Lane lane) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            // Freed slots are handed to waiters at once, so a free slot means nobody is waiting
+            if (running < capacity) {
+                grant(lane);
+                lane.queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return;
+            }
+            if (lane.waiters.size() >= lane.queueCapacity) {
+                lane.rejectedQueueFull.increment();
+                throw new RejectedExecutionException("Verification lane " + lane.type + " is full");
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            lane.waiters.addLast(waiter);
+            long remaining = queueTimeoutNanos;
+            try {
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        lane.waiters.remove(waiter);
+                        lane.rejectedTimeout.increment();
+                        throw new RejectedExecutionException("No verification slot for " + lane.type + " within the queue timeout");
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    releaseLocked(lane);
+                } else {
+                    lane.waiters.remove(waiter);
+                }
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a verification slot", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+        lane.queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void release(Lane lane) {
+        lock.lock();
+        try {
+            releaseLocked(lane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked(Lane lane) {
+        lane.running--;
+        running--;
+        while (running < capacity) {
+            Lane next = null;
+            for (Lane candidate : lanes.values()) {
+                if (!candidate.waiters.isEmpty()
+                        && (next == null || candidate.running * next.weight < next.running * candidate.weight)) {
+                    next = candidate;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter waiter = next.waiters.pollFirst();
+            waiter.granted = true;
+            grant(next);
+            waiter.condition.signal();
+        }
+    }
+
+    private void grant(Lane lane) {
+        lane.running++;
+        running++;
+    }
+
+    private int queued(Lane lane) {
+        lock.lock();
+        try {
+            return lane.waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    private final class Lane {
+        private final VerificationResult.VerificationType type;
+        private final int weight;
+        private final int queueCapacity;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private final Timer queueWait;
+        private final Counter rejectedQueueFull;
+        private final Counter rejectedTimeout;
+        private double share;
+        private volatile int running; // written under lock, read by the gauges
+
+        private Lane(VerificationResult.VerificationType type, int weight, int queueCapacity, MeterRegistry meterRegistry) {
+            this.type = type;
+            this.weight = weight;
+            this.queueCapacity = queueCapacity;
+            this.queueWait = Timer.builder("verification.lane.queue.wait")
+                    .tag("type", type.name())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100_000))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+            this.rejectedQueueFull = rejectedCounter(meterRegistry, "queue_full");
+            this.rejectedTimeout = rejectedCounter(meterRegistry, "timeout");
+        }
+
+        private Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+            return Counter.builder("verification.lane.rejected")
+                    .tag("type", type.name())
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+
+        private void registerGauges(MeterRegistry meterRegistry) {
+            Gauge.builder("verification.lane.running", this, lane -> lane.running)
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+            Gauge.builder("verification.lane.queued", this, lane -> queued(lane))
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+            Gauge.builder("verification.lane.utilization", this, lane -> lane.running / lane.share)
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult;
+import com.quod.biometric.repository.VerificationMetadataCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Rewrites metadata stored before the typed model into the compact layout.
+ * Old documents are readable without it; running it once shrinks them and lets the legacy read
+ * path retire. Documents are streamed from a cursor and rewritten with unordered bulk updates on
+ * their own thread, and a document already in the compact layout is never touched, so the job can
+ * be stopped and started again at any point.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty("verification.metadata-migration.enabled")
+public class VerificationMetadataMigration {
+
+    private final MongoTemplate mongoTemplate;
+    private final VerificationMetadataCodec codec;
+    private final int batchSize;
+
+    public VerificationMetadataMigration(
+            MongoTemplate mongoTemplate,
+            VerificationMetadataCodec codec,
+            @Value("${verification.metadata-migration.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.codec = codec;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread migration = new Thread(this::migrate, "verification-metadata-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    void migrate() {
+        long start = System.currentTimeMillis();
+        String collection = mongoTemplate.getCollectionName(VerificationResult.class);
+        Query query = new Query(where("metadata").type(3) // embedded document
+                .and("metadata." + VerificationMetadataCodec.VERSION).exists(false))
+                .cursorBatchSize(batchSize);
+        query.fields().include("metadata");
+        long migrated = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, collection)) {
+            BulkOperations bulk = null;
+            int pending = 0;
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VerificationResult.class);
+                }
+                // The version check keeps a concurrent write in the compact layout from being overwritten
+                bulk.updateOne(new Query(where("_id").is(document.get("_id"))
+                                .and("metadata." + VerificationMetadataCodec.VERSION).exists(false)),
+                        new Update().set("metadata", codec.toBson(codec.fromDocument(document.get("metadata", Document.class)))));
+                if (++pending == batchSize) {
+                    migrated += bulk.execute().getModifiedCount();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+            if (bulk != null) {
+                migrated += bulk.execute().getModifiedCount();
+            }
+            log.info("Migrated the metadata of {} verification results in {} ms", migrated, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error migrating verification metadata after {} results", migrated, e);
+        }
+    }
+}
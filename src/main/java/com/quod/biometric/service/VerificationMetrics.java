@@ -0,0 +1,134 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the verification pipeline, published with percentile histograms so p99 can be computed
+ * per stage across instances (e.g. histogram_quantile over verification_stage_seconds_bucket):
+ * verification.stage{stage} times validation, fraud detection, saves and notification delivery;
+ * verification.flow.stage{type,stage} times each stage of the verification flows (see {@link VerificationFlows});
+ * verification.fraud.check{check,outcome} times each fraud check on its worker thread;
+ * verification.results{type,status} and verification.fraud.detected{type,fraud_type} count outcomes;
+ * verification.in_flight{type} is the number of verifications being evaluated.
+ */
+@Component
+public class VerificationMetrics {
+
+    public static final String VALIDATION = "validation";
+    public static final String FRAUD_DETECTION = "fraud_detection";
+    public static final String SAVE = "save";
+    public static final String BULK_SAVE = "bulk_save";
+    public static final String NOTIFICATION = "notification";
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> fraudCheckTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> flowStageTimers = new ConcurrentHashMap<>();
+    private final Map<VerificationResult.VerificationType, AtomicInteger> inFlight =
+            new EnumMap<>(VerificationResult.VerificationType.class);
+
+    public VerificationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (VerificationResult.VerificationType type : VerificationResult.VerificationType.values()) {
+            AtomicInteger count = new AtomicInteger();
+            inFlight.put(type, count);
+            Gauge.builder("verification.in_flight", count, AtomicInteger::get)
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * @param stage One of the stage constants
+     * @return Timer of the stage
+     */
+    public Timer stage(String stage) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder("verification.stage")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry));
+    }
+
+    /**
+     * @param type The verification type of the flow
+     * @param stage Stage name in the flow
+     * @return Timer of the stage in that flow
+     */
+    public Timer flowStage(VerificationResult.VerificationType type, String stage) {
+        return flowStageTimers.computeIfAbsent(type.name() + '/' + stage, key -> Timer.builder("verification.flow.stage")
+                .tag("type", type.name())
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry));
+    }
+
+    /**
+     * @param fraudType The fraud type the check looks for
+     * @param outcome detected, clear, failed or timeout
+     * @return Timer of the check
+     */
+    public Timer fraudCheck(String fraudType, String outcome) {
+        return fraudCheckTimers.computeIfAbsent(fraudType + '/' + outcome, key -> Timer.builder("verification.fraud.check")
+                .tag("check", fraudType)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Runs an evaluation while counting it as in flight
+     */
+    public <T> T trackInFlight(VerificationResult.VerificationType type, Supplier<T> evaluation) {
+        AtomicInteger count = inFlight.get(type);
+        count.incrementAndGet();
+        try {
+            return evaluation.get();
+        } finally {
+            count.decrementAndGet();
+        }
+    }
+
+    /**
+     * Counts a verdict and the fraud types it reports
+     */
+    public void recordOutcome(VerificationResult.VerificationType type,
+                              VerificationResult.ValidationStatus status,
+                              List<String> fraudTypes) {
+        Counter.builder("verification.results")
+                .tag("type", type.name())
+                .tag("status", status.name())
+                .register(meterRegistry)
+                .increment();
+        if (fraudTypes != null) {
+            for (String fraudType : fraudTypes) {
+                Counter.builder("verification.fraud.detected")
+                        .tag("type", type.name())
+                        .tag("fraud_type", fraudType)
+                        .register(meterRegistry)
+                        .increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Pushes verification state changes to Server-Sent Events subscribers.
+ * Each event carries a full snapshot of the verification, so a subscriber may see the same state
+ * twice but never misses the final one. Only changes processed on this instance are pushed.
+ */
+@Component
+@Slf4j
+public class VerificationStatusPublisher {
+
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    public VerificationStatusPublisher(@Value("${verification.async.sse-timeout:60s}") Duration timeout) {
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Subscribes to a verification; the current state is sent right away and the stream completes
+     * once the verification reaches a final state
+     * @param id The verification ID
+     * @param currentState Reads the current state, called after the subscription is registered
+     * @return The event stream
+     */
+    public SseEmitter subscribe(String id, Supplier<VerificationResponse> currentState) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        subscribers.compute(id, (key, emitters) -> {
+            List<SseEmitter> registered = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            registered.add(emitter);
+            return registered;
+        });
+        emitter.onCompletion(() -> unsubscribe(id, emitter));
+        emitter.onTimeout(() -> unsubscribe(id, emitter));
+        emitter.onError(error -> unsubscribe(id, emitter));
+
+        // Reading after registering means a change published in between is either seen here or pushed later
+        VerificationResponse current;
+        try {
+            current = currentState.get();
+        } catch (RuntimeException e) {
+            unsubscribe(id, emitter);
+            throw e;
+        }
+        send(emitter, current);
+        return emitter;
+    }
+
+    /**
+     * Pushes a state change to the subscribers of that verification
+     * @param response The new state
+     */
+    public void publish(VerificationResponse response) {
+        List<SseEmitter> emitters = subscribers.get(response.getId());
+        if (emitters != null) {
+            emitters.forEach(emitter -> send(emitter, response));
+        }
+    }
+
+    private void send(SseEmitter emitter, VerificationResponse response) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("status")
+                    .id(response.getStatus().name())
+                    .data(response));
+            if (isFinal(response.getStatus())) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping status subscriber for verification {}: {}", response.getId(), e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void unsubscribe(String id, SseEmitter emitter) {
+        subscribers.computeIfPresent(id, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private static boolean isFinal(VerificationResult.ValidationStatus status) {
+        return status == VerificationResult.ValidationStatus.APPROVED
+                || status == VerificationResult.ValidationStatus.MANUAL_REVIEW
+                || status == VerificationResult.ValidationStatus.REJECTED;
+    }
+}
@@ -0,0 +1,104 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, e.g. while blocking inside a
+ * synchronized block or a native call. Listens to the JFR jdk.VirtualThreadPinned event, counts every
+ * occurrence and logs the stack of each distinct pinning site once.
+ */
+@Component
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final PipelineThreads pipelineThreads;
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Counter pinned;
+    private final Timer pinnedTime;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(
+            PipelineThreads pipelineThreads,
+            MeterRegistry meterRegistry,
+            @Value("${virtual-threads.pinning.monitor:true}") boolean enabled,
+            @Value("${virtual-threads.pinning.threshold:20ms}") Duration threshold) {
+        this.pipelineThreads = pipelineThreads;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.pinned = meterRegistry.counter("virtual.threads.pinned");
+        this.pinnedTime = Timer.builder("virtual.threads.pinned.time").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !pipelineThreads.isVirtual()) {
+            return;
+        }
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        log.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    /**
+     * @return Whether the JFR recording is running
+     */
+    boolean isRunning() {
+        return recording != null;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        pinnedTime.record(event.getDuration());
+        String stack = stackOf(event.getStackTrace());
+        if (reportedSites.add(stack)) {
+            log.warn("Virtual thread {} pinned for {} ms at:{}", event.getThread() == null ? "?" : event.getThread().getJavaName(),
+                    event.getDuration().toMillis(), stack);
+        }
+    }
+
+    private static String stackOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return " (no stack trace)";
+        }
+        return stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::frameOf)
+                .collect(Collectors.joining());
+    }
+
+    private static String frameOf(RecordedFrame frame) {
+        return "\n\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.quod.biometric.service;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking transport used by the reactive stack; sender threads hand off the request and move on
+ */
+@Component
+@Profile("reactive")
+public class WebClientNotificationTransport implements NotificationTransport {
+
+    private final WebClient webClient;
+
+    public WebClientNotificationTransport(WebClient notificationWebClient) {
+        this.webClient = notificationWebClient;
+    }
+
+    @Override
+    public CompletableFuture<Void> post(String url, Object body) {
+        return webClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .then()
+                .toFuture();
+    }
+}
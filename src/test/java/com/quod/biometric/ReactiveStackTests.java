@@ -0,0 +1,69 @@
+package com.quod.biometric;
+
+import com.quod.biometric.model.VerificationResult;
+import com.quod.biometric.repository.ReactiveVerificationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+@ActiveProfiles({"test", "reactive"})
+class ReactiveStackTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveVerificationRepository verificationRepository;
+
+    @Test
+    void documentAnalysisIsSavedThroughReactiveRepository() {
+        when(verificationRepository.save(any())).thenAnswer(invocation -> {
+            VerificationResult result = invocation.getArgument(0);
+            result.setId("680e4293db8187011846756f");
+            return Mono.just(result);
+        });
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("userId", "123456");
+        body.part("documentType", "ID_CARD");
+        body.part("documentImage", new FileSystemResource("test_images/document.jpg"));
+        body.part("faceImage", new FileSystemResource("test_images/face.jpg"));
+
+        webTestClient.post().uri("/api/v1/verification/document")
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("680e4293db8187011846756f")
+                .jsonPath("$.verificationType").isEqualTo("DOCUMENT_ANALYSIS")
+                .jsonPath("$.status").exists();
+        verify(verificationRepository).save(any());
+    }
+
+    @Test
+    void missingFieldsAreReportedLikeTheServletStack() {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("faceImage", new FileSystemResource("test_images/face.jpg"));
+
+        webTestClient.post().uri("/api/v1/verification/facial")
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Validation Error")
+                .jsonPath("$.details.userId").isEqualTo("User ID is required");
+    }
+}
@@ -0,0 +1,77 @@
+package com.quod.biometric.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quod.biometric.service.AdmissionControl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(
+            new AdmissionControl(meterRegistry, true, 20, 4, 200, 1.5, 0.2, 600, Duration.ofSeconds(1)),
+            new ObjectMapper());
+
+    @Test
+    void serverErrorsUnderAContextPathCutTheLimit() throws Exception {
+        filter.doFilter(request("/api/v1/verification/facial"), new MockHttpServletResponse(),
+                respondWith(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+
+        assertEquals(18.0, limit());
+        assertEquals(0.0, inFlight());
+    }
+
+    @Test
+    void failuresThrownByTheChainCutTheLimit() {
+        FilterChain failing = (request, response) -> {
+            throw new IllegalStateException("Mongo unavailable");
+        };
+
+        assertThrows(IllegalStateException.class, () ->
+                filter.doFilter(request("/api/v1/verification/document"), new MockHttpServletResponse(), failing));
+
+        assertEquals(18.0, limit());
+        assertEquals(0.0, inFlight());
+    }
+
+    @Test
+    void clientErrorsAndOtherPathsLeaveTheLimitAlone() throws Exception {
+        filter.doFilter(request("/api/v1/verification/fingerprint"), new MockHttpServletResponse(),
+                respondWith(HttpServletResponse.SC_BAD_REQUEST));
+        filter.doFilter(request("/actuator/health"), new MockHttpServletResponse(),
+                respondWith(HttpServletResponse.SC_INTERNAL_SERVER_ERROR));
+
+        assertEquals(20.0, limit());
+        assertEquals(0.0, inFlight());
+    }
+
+    /**
+     * A POST to the servlet path, deployed under server.servlet.context-path=/biometric
+     */
+    private static MockHttpServletRequest request(String servletPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/biometric" + servletPath);
+        request.setContextPath("/biometric");
+        request.setServletPath(servletPath);
+        return request;
+    }
+
+    private static FilterChain respondWith(int status) {
+        return (request, response) -> ((HttpServletResponse) response).setStatus(status);
+    }
+
+    private double limit() {
+        return meterRegistry.get("verification.admission.limit").gauge().value();
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("verification.admission.in_flight").gauge().value();
+    }
+}
@@ -0,0 +1,83 @@
+package com.quod.biometric.repository;
+
+import com.quod.biometric.model.VerificationResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VerificationHistoryRepositoryTests {
+
+    @Test
+    void declaresHistoryAndPartialFraudAndOutboxIndexes() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        Map<String, IndexDefinition> indexes = StreamSupport.stream(new MongoPersistentEntityIndexResolver(mappingContext)
+                        .resolveIndexFor(VerificationResult.class).spliterator(), false)
+                .filter(resolved -> resolved.getIndexOptions().containsKey("name"))
+                .collect(Collectors.toMap(resolved -> resolved.getIndexOptions().getString("name"), resolved -> resolved));
+
+        assertEquals(List.of("userId", "verificationType", "processedAt", "_id"),
+                List.copyOf(indexes.get("user_history").getIndexKeys().keySet()));
+        assertEquals(new Document("processedAt", -1).append("_id", -1), indexes.get("fraud_queue").getIndexKeys());
+        assertEquals(new Document("fraudDetected", true),
+                indexes.get("fraud_queue").getIndexOptions().get("partialFilterExpression"));
+        assertEquals(List.of("outbox.status", "outbox.nextAttemptAt", "outbox.createdAt"),
+                List.copyOf(indexes.get("notification_outbox").getIndexKeys().keySet()));
+        assertEquals(new Document("outbox.status", new Document("$exists", true)),
+                indexes.get("notification_outbox").getIndexOptions().get("partialFilterExpression"));
+        assertNull(indexes.get("outbox.status"), "the compound index replaces the single-field one");
+    }
+
+    @Test
+    void continuesAfterLastKeyWithSummaryFieldsOnly() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(VerificationResult.class))).thenReturn(List.of());
+        VerificationHistoryRepositoryImpl repository = new VerificationHistoryRepositoryImpl(mongoTemplate);
+        LocalDateTime processedAt = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+        repository.findHistoryPage("user-1", EnumSet.allOf(VerificationResult.VerificationType.class),
+                new VerificationHistoryRepository.PageKey(processedAt, "652f0c0e8f1b2a3c4d5e6f70"), 51);
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(VerificationResult.class));
+        Query query = captor.getValue();
+        Document filter = query.getQueryObject();
+        assertEquals("user-1", filter.get("userId"));
+        assertEquals(new Document("$lte", processedAt), filter.get("processedAt"));
+        assertEquals(2, filter.getList("$or", Document.class).size());
+        assertEquals(new Document("processedAt", -1).append("id", -1), query.getSortObject());
+        assertEquals(51, query.getLimit());
+        assertFalse(query.getFieldsObject().containsKey("metadata"));
+        assertTrue(query.getFieldsObject().containsKey("status"));
+    }
+
+    @Test
+    void fraudQueueMatchesPartialIndexFilter() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(VerificationResult.class))).thenReturn(List.of());
+
+        new VerificationHistoryRepositoryImpl(mongoTemplate).findFraudPage(null, 10);
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(VerificationResult.class));
+        assertEquals(new Document("fraudDetected", true), captor.getValue().getQueryObject());
+    }
+}
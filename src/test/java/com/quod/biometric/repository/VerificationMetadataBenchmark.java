@@ -0,0 +1,202 @@
+package com.quod.biometric.repository;
+
+import com.mongodb.MongoClientSettings;
+import com.quod.biometric.config.MongoConfig;
+import com.quod.biometric.model.ImageMetadata;
+import com.quod.biometric.model.NotificationOutbox;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compares stored size and encode/decode time of verification results with the legacy map metadata
+ * and with the compact codec, through the same mapping converter and driver codec the repository uses.
+ * Run with: mvn test -Dtest=VerificationMetadataBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VerificationMetadataBenchmark {
+
+    private static final int DOCUMENTS = 20_000;
+    private static final int ROUNDS = 10;
+
+    private final DocumentCodec documentCodec = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+    private final MappingMongoConverter converter = converter();
+
+    @Test
+    void compareLegacyAndCompactMetadata() {
+        List<VerificationResult> results = new ArrayList<>(DOCUMENTS);
+        List<Map<String, Object>> legacyMetadata = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            VerificationResult result = sampleResult(i);
+            results.add(result);
+            legacyMetadata.add(legacyMap(result.getMetadata()));
+        }
+
+        System.out.printf("%-8s %10s %10s %12s %12s%n", "layout", "doc bytes", "meta bytes", "encode ns", "decode ns");
+        report("legacy", i -> {
+            Document document = new Document();
+            VerificationResult result = results.get(i);
+            VerificationMetadata metadata = result.getMetadata();
+            result.setMetadata(null);
+            converter.write(result, document);
+            result.setMetadata(metadata);
+            document.put("metadata", converter.convertToMongoType(legacyMetadata.get(i)));
+            return document;
+        });
+        report("compact", i -> {
+            Document document = new Document();
+            converter.write(results.get(i), document);
+            return document;
+        });
+    }
+
+    private void report(String layout, Function<Integer, Document> write) {
+        byte[][] encoded = new byte[DOCUMENTS][];
+        long documentBytes = 0;
+        long metadataBytes = 0;
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Document document = write.apply(i);
+            encoded[i] = encode(document);
+            documentBytes += encoded[i].length;
+            metadataBytes += encode(new Document("metadata", document.get("metadata"))).length;
+        }
+
+        long encodeNanos = Long.MAX_VALUE;
+        long decodeNanos = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < DOCUMENTS; i++) {
+                checksum += encode(write.apply(i)).length;
+            }
+            encodeNanos = Math.min(encodeNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < DOCUMENTS; i++) {
+                Document document = documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(encoded[i])),
+                        DecoderContext.builder().build());
+                checksum += converter.read(VerificationResult.class, document).getMetadata().hashCode();
+            }
+            decodeNanos = Math.min(decodeNanos, System.nanoTime() - start);
+        }
+        System.out.printf("%-8s %10d %10d %12d %12d (checksum %d)%n", layout,
+                documentBytes / DOCUMENTS, metadataBytes / DOCUMENTS,
+                encodeNanos / DOCUMENTS, decodeNanos / DOCUMENTS, checksum & 0xff);
+    }
+
+    private byte[] encode(Document document) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer(1024);
+        documentCodec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    /**
+     * A document analysis result as the flows build it
+     */
+    private static VerificationResult sampleResult(int i) {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        timings.put("DOCTORED_DOCUMENT", 1200L + i % 100);
+        timings.put("FAKE_DOCUMENT", 900L + i % 70);
+        timings.put("FACE_DOCUMENT_MISMATCH", 1500L + i % 50);
+        timings.put("NEAR_DUPLICATE_FACE", 300L + i % 30);
+        Map<String, Long> velocity = new LinkedHashMap<>();
+        velocity.put("userAttempts", 1L + i % 5);
+        velocity.put("deviceUsers", 1L);
+        return VerificationResult.builder()
+                .userId("user-" + i)
+                .verificationType(VerificationResult.VerificationType.DOCUMENT_ANALYSIS)
+                .createdAt(LocalDateTime.now())
+                .fraudTypes(new ArrayList<>())
+                .status(VerificationResult.ValidationStatus.APPROVED)
+                .outbox(NotificationOutbox.pending(NotificationOutbox.NotificationType.SUCCESS))
+                .metadata(VerificationMetadata.builder()
+                        .documentImage(image("document-" + i + ".jpg", i))
+                        .faceImage(image("face-" + i + ".jpg", i + 1))
+                        .documentType("ID_CARD")
+                        .deviceInfo("Android 14; Pixel 8")
+                        .geoLocation("-23.5505,-46.6333")
+                        .fraudCheckTimingsMicros(timings)
+                        .velocity(velocity)
+                        .build())
+                .build();
+    }
+
+    private static ImageMetadata image(String filename, int seed) {
+        return ImageMetadata.builder()
+                .filename(filename)
+                .contentType("image/jpeg")
+                .size(180_000L + seed)
+                .contentHash(String.format("%064x", seed * 0x9E3779B97F4A7C15L & Long.MAX_VALUE))
+                .width(1920)
+                .height(1080)
+                .captureDate(LocalDateTime.of(2026, 10, 1, 9, 30).plusSeconds(seed))
+                .deviceManufacturer("Simulated Device Manufacturer")
+                .deviceModel("Simulated Device Model")
+                .gpsLatitude(-23.5505)
+                .gpsLongitude(-46.6333)
+                .build();
+    }
+
+    /**
+     * The free-form map the flows stored before the typed model
+     */
+    private static Map<String, Object> legacyMap(VerificationMetadata metadata) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("documentMetadata", legacyImage(metadata.getDocumentImage()));
+        map.put("faceMetadata", legacyImage(metadata.getFaceImage()));
+        map.put("documentType", metadata.getDocumentType());
+        map.put("deviceInfo", metadata.getDeviceInfo());
+        map.put("geoLocation", metadata.getGeoLocation());
+        map.put("fraudCheckTimingsMicros", metadata.getFraudCheckTimingsMicros());
+        map.put("velocity", metadata.getVelocity());
+        return map;
+    }
+
+    private static Map<String, Object> legacyImage(ImageMetadata image) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("filename", image.getFilename());
+        map.put("contentType", image.getContentType());
+        map.put("size", image.getSize());
+        map.put("contentHash", image.getContentHash());
+        map.put("width", image.getWidth());
+        map.put("height", image.getHeight());
+        map.put("captureDate", image.getCaptureDate());
+        map.put("deviceManufacturer", image.getDeviceManufacturer());
+        map.put("deviceModel", image.getDeviceModel());
+        map.put("gpsLatitude", image.getGpsLatitude());
+        map.put("gpsLongitude", image.getGpsLongitude());
+        return map;
+    }
+
+    private static MappingMongoConverter converter() {
+        MongoConfig config = new MongoConfig();
+        MongoCustomConversions conversions = config.mongoCustomConversions(config.verificationMetadataCodec());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
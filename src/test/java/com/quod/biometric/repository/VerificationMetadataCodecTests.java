@@ -0,0 +1,163 @@
+package com.quod.biometric.repository;
+
+import com.mongodb.MongoClientSettings;
+import com.quod.biometric.config.MongoConfig;
+import com.quod.biometric.model.ImageMetadata;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationMetadataCodecTests {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoConfig config = new MongoConfig();
+        MongoCustomConversions conversions = config.mongoCustomConversions(config.verificationMetadataCodec());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    void roundTripsThroughTheDriverWithShortNames() {
+        VerificationMetadata metadata = VerificationMetadata.builder()
+                .documentImage(image("document.jpg", "image/jpeg"))
+                .faceImage(image("face.png", "image/png"))
+                .documentType("PASSPORT")
+                .fingerPosition("LEFT_SIXTH") // not in the code table
+                .deviceInfo("Pixel 8")
+                .fraudCheckTimingsMicros(Map.of("DEEPFAKE", 1200L))
+                .timedOutFraudChecks(List.of("MASK"))
+                .velocity(Map.of("userAttempts", 3L))
+                .build();
+
+        Document stored = roundTrip(VerificationResult.builder().userId("user-1").metadata(metadata).build());
+
+        Document compact = stored.get("metadata", Document.class);
+        assertEquals(1, compact.get("v"));
+        assertEquals(1, compact.get("dt"));
+        assertEquals("LEFT_SIXTH", compact.get("fp"));
+        assertEquals(1, compact.get("face", Document.class).get("ct"));
+        assertInstanceOf(Binary.class, compact.get("doc", Document.class).get("h"));
+        assertEquals(metadata, converter.read(VerificationResult.class, stored).getMetadata());
+    }
+
+    @Test
+    void readsDocumentsWrittenBeforeTheTypedModel() {
+        LocalDateTime captureDate = LocalDateTime.of(2026, 9, 30, 8, 15, 0);
+        Document legacy = new Document("userId", "user-1")
+                .append("metadata", new Document("filename", "face.jpg")
+                        .append("contentType", "image/jpeg")
+                        .append("size", 2048L)
+                        .append("contentHash", HASH)
+                        .append("width", 1280)
+                        .append("height", 960)
+                        .append("captureDate", Date.from(captureDate.atZone(ZoneId.systemDefault()).toInstant()))
+                        .append("deviceManufacturer", "Simulated Device Manufacturer")
+                        .append("gpsLatitude", "40.7128° N")
+                        .append("gpsLongitude", "74.0060° W")
+                        .append("geoLocation", "-23.55,-46.63")
+                        .append("statusMessage", "Verification was interrupted, please resubmit")
+                        .append("fraudCheckTimingsMicros", new Document("DEEPFAKE", 900L))
+                        .append("operator", "desk-4"));
+
+        VerificationMetadata metadata = converter.read(VerificationResult.class, roundTrip(legacy)).getMetadata();
+
+        assertEquals("face.jpg", metadata.getImage().getFilename());
+        assertEquals(HASH, metadata.getImage().getContentHash());
+        assertEquals(captureDate, metadata.getImage().getCaptureDate());
+        assertEquals(960, metadata.getImage().getHeight());
+        assertEquals(40.7128, metadata.getImage().getGpsLatitude());
+        assertEquals(-74.006, metadata.getImage().getGpsLongitude());
+        assertEquals("-23.55,-46.63", metadata.getGeoLocation());
+        assertEquals("Verification was interrupted, please resubmit", metadata.getStatusMessage());
+        assertEquals(Map.of("DEEPFAKE", 900L), metadata.getFraudCheckTimingsMicros());
+        assertEquals(Map.of("operator", "desk-4"), metadata.getLegacy());
+
+        Document nested = new Document("documentMetadata", new Document("filename", "document.jpg"))
+                .append("faceMetadata", new Document("filename", "face.jpg"))
+                .append("documentType", "ID_CARD");
+        VerificationMetadata document = converter.read(VerificationResult.class,
+                new Document("metadata", nested)).getMetadata();
+        assertEquals("document.jpg", document.getDocumentImage().getFilename());
+        assertEquals("face.jpg", document.getFaceImage().getFilename());
+        assertNull(document.getImage());
+
+        // A coordinate that cannot be read is kept as it was
+        VerificationMetadata unreadable = converter.read(VerificationResult.class,
+                new Document("metadata", new Document("filename", "face.jpg").append("gpsLatitude", "unknown"))).getMetadata();
+        assertNull(unreadable.getImage().getGpsLatitude());
+        assertEquals(Map.of("gpsLatitude", "unknown"), unreadable.getLegacy());
+    }
+
+    @Test
+    void statusMessageUpdateTargetsTheShortName() {
+        Update update = new Update().set("metadata." + VerificationMetadataCodec.STATUS_MESSAGE, "interrupted");
+
+        Document mapped = new UpdateMapper(converter).getMappedObject(update.getUpdateObject(),
+                converter.getMappingContext().getPersistentEntity(VerificationResult.class));
+
+        assertEquals(new Document("metadata.sm", "interrupted"), mapped.get("$set"));
+    }
+
+    private static ImageMetadata image(String filename, String contentType) {
+        return ImageMetadata.builder()
+                .filename(filename)
+                .contentType(contentType)
+                .size(183_245L)
+                .contentHash(HASH)
+                .width(1280)
+                .height(960)
+                .captureDate(LocalDateTime.of(2026, 10, 1, 9, 30, 15))
+                .deviceManufacturer("Simulated Device Manufacturer")
+                .gpsLatitude(-23.5505)
+                .gpsLongitude(-46.6333)
+                .build();
+    }
+
+    /**
+     * Writes the result the way the repository does and reads the stored bytes back
+     */
+    private Document roundTrip(Object value) {
+        Document document = new Document();
+        if (value instanceof Document given) {
+            document = given;
+        } else {
+            converter.write(value, document);
+        }
+        DocumentCodec codec = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+    }
+}
@@ -0,0 +1,82 @@
+package com.quod.biometric.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void rejectsBeyondTheLimitUntilWorkIsReleased() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 100, 1.5, 0.2, 600);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        limiter.ignore();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(4, limiter.getInFlight());
+    }
+
+    @Test
+    void growsWhileLatencyHoldsAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 1.5, 0.2, 600);
+
+        runAtLimit(limiter, 200, 50 * MILLIS);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "limit should grow at steady latency, was " + grown);
+
+        // Queueing: latency climbs well past the tolerated ratio
+        runAtLimit(limiter, 50, 400 * MILLIS);
+        assertTrue(limiter.getLimit() < grown / 2, "limit should shrink, was " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 4);
+    }
+
+    @Test
+    void doesNotGrowWhileMostOfTheLimitIsUnused() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 1.5, 0.2, 600);
+
+        for (int i = 0; i < 500; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(50 * MILLIS);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void dropsCutTheLimitDownToItsMinimum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 1.5, 0.2, 600);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.drop();
+        assertEquals(18, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.drop();
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    /**
+     * Fills the limit, then releases one unit at a time with the given latency, admitting a replacement each time
+     */
+    private static void runAtLimit(AdaptiveConcurrencyLimiter limiter, int samples, long rttNanos) {
+        while (limiter.tryAcquire()) {
+            // fill
+        }
+        for (int i = 0; i < samples; i++) {
+            limiter.release(rttNanos);
+            while (limiter.tryAcquire()) {
+                // refill up to the new limit
+            }
+        }
+        while (limiter.getInFlight() > 0) {
+            limiter.ignore();
+        }
+    }
+}
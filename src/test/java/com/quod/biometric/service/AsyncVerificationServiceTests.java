@@ -0,0 +1,199 @@
+package com.quod.biometric.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.quod.biometric.dto.FacialBiometryRequest;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.NotificationOutbox;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import com.quod.biometric.repository.VerificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AsyncVerificationServiceTests {
+
+    private static final String ID = "680e4293db8187011846756f";
+
+    private final BiometricVerificationService verificationService = mock(BiometricVerificationService.class);
+    private final ImageIngestService ingestService = mock(ImageIngestService.class);
+    private final VerificationRepository repository = mock(VerificationRepository.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final VerificationStatusPublisher publisher = mock(VerificationStatusPublisher.class);
+    private final AtomicInteger releasedImages = new AtomicInteger();
+    private final AsyncVerificationService asyncService = new AsyncVerificationService(verificationService, ingestService,
+            repository, mongoTemplate, publisher, new VerificationMetrics(new SimpleMeterRegistry()), new PipelineThreads(false),
+            true, 1, 1, Duration.ofMinutes(10));
+
+    @BeforeEach
+    void setUp() {
+        when(ingestService.ingest(any(MultipartFile.class))).thenAnswer(invocation -> image());
+        when(repository.save(any())).thenAnswer(invocation -> {
+            VerificationResult result = invocation.getArgument(0);
+            result.setId(ID);
+            return result;
+        });
+        when(verificationService.mapToResponse(any())).thenAnswer(invocation -> response(invocation.getArgument(0)));
+        when(verificationService.complete(any(), any())).thenAnswer(invocation -> response(invocation.getArgument(1)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(VerificationResult.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @AfterEach
+    void shutdown() {
+        asyncService.shutdown();
+    }
+
+    @Test
+    void ticketMovesFromPendingThroughProcessingToItsVerdict() throws Exception {
+        when(verificationService.evaluateFacialBiometry(any(), any())).thenReturn(approved());
+        when(mongoTemplate.findAndReplace(any(Query.class), any(VerificationResult.class), any(FindAndReplaceOptions.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+
+        VerificationResponse accepted = asyncService.submitFacialBiometry(request());
+
+        assertEquals(VerificationResult.ValidationStatus.PENDING, accepted.getStatus());
+        assertEquals(List.of(VerificationResult.ValidationStatus.PROCESSING, VerificationResult.ValidationStatus.APPROVED), published());
+        ArgumentCaptor<Query> processing = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(processing.capture(), any(Update.class), eq(VerificationResult.class));
+        assertEquals(VerificationResult.ValidationStatus.PENDING, processing.getValue().getQueryObject().get("status"));
+        ArgumentCaptor<Query> verdict = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndReplace(verdict.capture(), any(VerificationResult.class), any(FindAndReplaceOptions.class));
+        assertEquals(VerificationResult.ValidationStatus.PROCESSING, verdict.getValue().getQueryObject().get("status"));
+        assertTrue(imagesReleased(1));
+    }
+
+    @Test
+    void verdictDoesNotOverwriteATicketRejectedMeanwhile() {
+        when(verificationService.evaluateFacialBiometry(any(), any())).thenReturn(approved());
+        when(mongoTemplate.findAndReplace(any(Query.class), any(VerificationResult.class), any(FindAndReplaceOptions.class)))
+                .thenReturn(null);
+        when(repository.findById(ID)).thenReturn(Optional.of(VerificationResult.builder()
+                .id(ID)
+                .status(VerificationResult.ValidationStatus.REJECTED)
+                .build()));
+
+        asyncService.submitFacialBiometry(request());
+
+        assertEquals(List.of(VerificationResult.ValidationStatus.PROCESSING, VerificationResult.ValidationStatus.REJECTED), published());
+        verify(verificationService, never()).complete(any(), any());
+    }
+
+    @Test
+    void fullQueueRejectsSubmissionsAndLeasesOfHeldTicketsAreRenewed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(verificationService.evaluateFacialBiometry(any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return approved();
+        });
+        when(mongoTemplate.findAndReplace(any(Query.class), any(VerificationResult.class), any(FindAndReplaceOptions.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+
+        // One worker plus one queued submission
+        asyncService.submitFacialBiometry(request());
+        asyncService.submitFacialBiometry(request());
+        assertThrows(RejectedExecutionException.class, () -> asyncService.submitFacialBiometry(request()));
+        verify(ingestService, times(2)).ingest(any(MultipartFile.class));
+
+        asyncService.renewTicketLeases();
+        ArgumentCaptor<Query> renewed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateMulti(renewed.capture(), any(Update.class), eq(VerificationResult.class));
+        assertEquals(List.of(ID), renewed.getValue().getQueryObject().get("_id", Document.class).getList("$in", String.class));
+
+        release.countDown();
+        verify(publisher, timeout(5_000).times(4)).publish(any());
+        assertTrue(imagesReleased(2));
+    }
+
+    @Test
+    void sweepRejectsOnlyTicketsWhoseLeaseRanOut() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(VerificationResult.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        asyncService.rejectStaleVerifications();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(VerificationResult.class));
+        List<Document> branches = query.getValue().getQueryObject().getList("$or", Document.class);
+        assertTrue(branches.get(0).get("leaseUntil", Document.class).containsKey("$lt"));
+        assertEquals(new Document("$exists", false), branches.get(1).get("leaseUntil"));
+        assertFalse(query.getValue().getQueryObject().containsKey("createdAt"));
+
+        // The rejection is notified through the outbox, written in the same update
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(VerificationResult.ValidationStatus.REJECTED, set.get("status"));
+        NotificationOutbox outbox = (NotificationOutbox) set.get("outbox");
+        assertEquals(NotificationOutbox.NotificationType.SUCCESS, outbox.getType());
+        assertEquals(NotificationOutbox.OutboxStatus.PENDING, outbox.getStatus());
+        assertNull(outbox.getNotificationId(), "shared by every rejected ticket, so none is stored");
+    }
+
+    private List<VerificationResult.ValidationStatus> published() {
+        ArgumentCaptor<VerificationResponse> captor = ArgumentCaptor.forClass(VerificationResponse.class);
+        verify(publisher, timeout(5_000).times(2)).publish(captor.capture());
+        return captor.getAllValues().stream().map(VerificationResponse::getStatus).toList();
+    }
+
+    /**
+     * Images are closed after the last state change is published
+     */
+    private boolean imagesReleased(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (releasedImages.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return releasedImages.get() == count;
+    }
+
+    private IngestedImage image() {
+        return new IngestedImage("face.jpg", "image/jpeg", 1, false, "hash",
+                ImageHeader.builder().format(ImageHeader.Format.JPEG).build(), ByteBuffer.wrap(new byte[]{1}),
+                buffer -> releasedImages.incrementAndGet());
+    }
+
+    private static FacialBiometryRequest request() {
+        return FacialBiometryRequest.builder()
+                .userId("user-1")
+                .faceImage(new MockMultipartFile("faceImage", "face.jpg", "image/jpeg", new byte[]{1}))
+                .build();
+    }
+
+    private static BiometricVerificationService.Evaluation approved() {
+        return BiometricVerificationService.Evaluation.pending(VerificationResult.builder()
+                .userId("user-1")
+                .status(VerificationResult.ValidationStatus.APPROVED)
+                .metadata(new VerificationMetadata())
+                .build(), "key");
+    }
+
+    private static VerificationResponse response(VerificationResult result) {
+        return VerificationResponse.builder()
+                .id(result.getId())
+                .status(result.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.quod.biometric.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesDecisionsThatTheReaderCanQuery() throws Exception {
+        AuditLog auditLog = new AuditLog(new SimpleMeterRegistry(), true, directory.toString(), 1024, 1 << 20, 5, 0);
+        auditLog.decision(result("v1", "user-1", true, List.of("DEEPFAKE")));
+        auditLog.decision(result("v2", "user-2", false, List.of()));
+        auditLog.decision(VerificationResponse.builder().id("v1").userId("user-1")
+                .status(VerificationResult.ValidationStatus.REJECTED).fraudTypes(List.of("DEEPFAKE")).build());
+        auditLog.decision(VerificationResponse.builder().userId("user-3")
+                .status(VerificationResult.ValidationStatus.REJECTED).message("Image validation failed").build());
+        auditLog.shutdown();
+
+        List<JsonNode> events = AuditLogReader.readAll(directory);
+        assertEquals(4, events.size());
+        JsonNode rejected = events.get(0);
+        assertEquals("evaluated", rejected.path("source").asText());
+        assertEquals("v1", rejected.path("id").asText());
+        assertEquals("DEEPFAKE", rejected.path("fraudTypes").get(0).asText());
+        assertEquals(412, rejected.path("checkMicros").path("DEEPFAKE").asLong());
+        assertEquals("device-1", rejected.path("device").asText());
+        // Approved verifications carry no detail unless sampled
+        assertTrue(events.get(1).path("checkMicros").isMissingNode());
+        assertEquals("replay", events.get(2).path("source").asText());
+        assertEquals("invalid", events.get(3).path("source").asText());
+        assertEquals("Image validation failed", events.get(3).path("message").asText());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long matched = AuditLogReader.query(directory,
+                AuditLogReader.filter(Map.of("user", "user-1", "fraud-type", "DEEPFAKE")), 10, new PrintStream(output), false);
+        assertEquals(2, matched);
+        assertEquals(2, output.toString().lines().count());
+    }
+
+    @Test
+    void rotatesSegmentsAndKeepsOnlyTheNewest() throws Exception {
+        AuditLog auditLog = new AuditLog(new SimpleMeterRegistry(), true, directory.toString(), 1024, 512, 3, 0);
+        for (int i = 0; i < 50; i++) {
+            auditLog.decision(result("v" + i, "user-" + i, false, List.of()));
+        }
+        auditLog.shutdown();
+
+        List<Path> segments = AuditLog.segments(directory);
+        assertEquals(3, segments.size());
+        // Closed segments are trimmed to what was written
+        for (Path segment : segments) {
+            byte[] content = Files.readAllBytes(segment);
+            assertEquals('\n', content[content.length - 1]);
+        }
+        List<JsonNode> events = AuditLogReader.readAll(directory);
+        assertTrue(events.size() < 50);
+        assertEquals("v49", events.get(events.size() - 1).path("id").asText());
+    }
+
+    @Test
+    void ringRefusesClaimsWhenFullUntilTheConsumerReleases() {
+        AuditRingBuffer<long[]> ring = new AuditRingBuffer<>(4, () -> new long[1]);
+        for (int i = 0; i < 4; i++) {
+            long sequence = ring.claim();
+            assertEquals(i, sequence);
+            ring.entry(sequence)[0] = i * 10;
+            ring.publish(sequence);
+        }
+        assertEquals(-1, ring.claim());
+
+        assertEquals(0, ring.peek()[0]);
+        ring.release();
+        long sequence = ring.claim();
+        assertEquals(4, sequence);
+        for (int i = 1; i < 4; i++) {
+            assertEquals(i * 10, ring.peek()[0]);
+            ring.release();
+        }
+        assertNull(ring.peek(), "A claimed entry is not visible before it is published");
+        ring.publish(sequence);
+        assertSame(ring.entry(sequence), ring.peek());
+    }
+
+    private static VerificationResult result(String id, String userId, boolean fraudDetected, List<String> fraudTypes) {
+        return VerificationResult.builder()
+                .id(id)
+                .userId(userId)
+                .verificationType(VerificationResult.VerificationType.FACIAL_BIOMETRY)
+                .fraudDetected(fraudDetected)
+                .fraudTypes(fraudTypes)
+                .status(fraudDetected ? VerificationResult.ValidationStatus.REJECTED : VerificationResult.ValidationStatus.APPROVED)
+                .metadata(VerificationMetadata.builder()
+                        .fraudCheckTimingsMicros(Map.of("DEEPFAKE", 412L))
+                        .deviceInfo("device-1")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.quod.biometric.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.quod.biometric.dto.BatchVerificationItem;
+import com.quod.biometric.dto.BatchVerificationItemResult;
+import com.quod.biometric.dto.FacialBiometryRequest;
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BatchVerificationServiceTests {
+
+    private static final Map<String, MultipartFile> FILES =
+            Map.of("face", new MockMultipartFile("face", "face.jpg", "image/jpeg", new byte[]{1}));
+
+    private final BiometricVerificationService verificationService = mock(BiometricVerificationService.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulkOperations = mock(BulkOperations.class);
+    private final List<String> evaluatedOn = new CopyOnWriteArrayList<>();
+    private BatchVerificationService batchService;
+
+    @AfterEach
+    void shutdown() {
+        if (batchService != null) {
+            batchService.shutdown();
+        }
+    }
+
+    @Test
+    void boundsItemsInFlightSoABatchNeverOverflowsThePool() {
+        batchService = batchService(1, 2, 500);
+        when(verificationService.evaluate(any(FacialBiometryRequest.class))).thenAnswer(invocation -> {
+            evaluatedOn.add(Thread.currentThread().getName());
+            return BiometricVerificationService.Evaluation.done(VerificationResponse.builder().build());
+        });
+
+        List<BatchVerificationItemResult> results = process(items(20));
+
+        // A batch keeps at most two items in flight, which the queue alone can hold, so the caller never runs one
+        assertEquals(20, results.size());
+        assertTrue(evaluatedOn.stream().allMatch(thread -> thread.startsWith("batch-verification-")), evaluatedOn.toString());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void callerRunsItemsWhenConcurrentBatchesSaturateThePool() throws Exception {
+        batchService = batchService(1, 2, 500);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        when(verificationService.evaluate(any(FacialBiometryRequest.class))).thenAnswer(invocation -> {
+            evaluatedOn.add(Thread.currentThread().getName());
+            bothRunning.countDown();
+            bothRunning.await(5, TimeUnit.SECONDS);
+            return BiometricVerificationService.Evaluation.done(VerificationResponse.builder().build());
+        });
+
+        Thread first = new Thread(() -> process(items(2)), "batch-request-1");
+        first.start();
+        // Wait until the first batch holds the worker; the second batch then fills the queue
+        while (evaluatedOn.isEmpty()) {
+            Thread.onSpinWait();
+        }
+        Thread second = new Thread(() -> process(items(3)), "batch-request-2");
+        second.start();
+        first.join(5_000);
+        second.join(5_000);
+
+        assertEquals(5, evaluatedOn.size());
+        assertTrue(evaluatedOn.stream().anyMatch(thread -> thread.startsWith("batch-request-")), evaluatedOn.toString());
+    }
+
+    @Test
+    void savesResultsWithUnorderedBulkInsertsAndReportsFailedWrites() {
+        batchService = batchService(2, 10, 500);
+        when(verificationService.evaluate(any(FacialBiometryRequest.class)))
+                .thenAnswer(invocation -> BiometricVerificationService.Evaluation.pending(
+                        VerificationResult.builder().userId(((FacialBiometryRequest) invocation.getArgument(0)).getUserId()).build(), "key"));
+        when(verificationService.complete(any(), any())).thenAnswer(invocation -> VerificationResponse.builder()
+                .id(((VerificationResult) invocation.getArgument(1)).getId())
+                .build());
+        // Results are written whenever no further item is ready, so the chunks vary; user-1's insert fails
+        List<List<VerificationResult>> inserts = new CopyOnWriteArrayList<>();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VerificationResult.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            inserts.add(invocation.getArgument(0));
+            return bulkOperations;
+        });
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            List<VerificationResult> chunk = inserts.get(inserts.size() - 1);
+            for (int i = 0; i < chunk.size(); i++) {
+                if ("user-1".equals(chunk.get(i).getUserId())) {
+                    BulkOperationException partialFailure = mock(BulkOperationException.class);
+                    when(partialFailure.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), i)));
+                    throw partialFailure;
+                }
+            }
+            return null;
+        });
+
+        List<BatchVerificationItem> items = new ArrayList<>(items(3));
+        items.add(BatchVerificationItem.builder().itemId("untyped").userId("user").faceImage("face").build());
+        List<BatchVerificationItemResult> results = process(items);
+
+        assertEquals(4, results.size());
+        assertEquals("Verification type is required", byItem(results, "untyped").getError());
+        assertEquals("Unable to store verification result", byItem(results, "item-1").getError());
+        assertNotNull(byItem(results, "item-0").getResponse().getId());
+        assertNotNull(byItem(results, "item-2").getResponse().getId());
+        verify(verificationService, times(2)).complete(any(), any());
+        assertEquals(3, inserts.stream().mapToInt(List::size).sum());
+        verify(mongoTemplate, never()).insert(any(VerificationResult.class));
+    }
+
+    private BatchVerificationService batchService(int parallelism, int queueCapacity, int writeChunkSize) {
+        return new BatchVerificationService(verificationService, mongoTemplate,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new VerificationMetrics(new SimpleMeterRegistry()), new PipelineThreads(false),
+                parallelism, queueCapacity, 100, writeChunkSize);
+    }
+
+    private List<BatchVerificationItemResult> process(List<BatchVerificationItem> items) {
+        List<BatchVerificationItemResult> results = new ArrayList<>();
+        batchService.process(items, FILES, results::add);
+        return results;
+    }
+
+    private static List<BatchVerificationItem> items(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> BatchVerificationItem.builder()
+                        .itemId("item-" + i)
+                        .verificationType(VerificationResult.VerificationType.FACIAL_BIOMETRY)
+                        .userId("user-" + i)
+                        .faceImage("face")
+                        .build())
+                .toList();
+    }
+
+    private static BatchVerificationItemResult byItem(List<BatchVerificationItemResult> results, String itemId) {
+        return results.stream().filter(result -> itemId.equals(result.getItemId())).findFirst().orElseThrow();
+    }
+}
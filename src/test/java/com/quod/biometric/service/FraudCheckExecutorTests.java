@@ -0,0 +1,122 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FraudCheckExecutorTests {
+
+    private final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private final FraudCheckExecutor executor = new FraudCheckExecutor(new PipelineThreads(false),
+            new VerificationMetrics(meterRegistry), 4, 10, false, List.of());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void recordsEachCheckByOutcome() {
+        FraudCheckExecutor.Report report = executor.run(List.of(
+                new FraudCheck("DEEPFAKE", Duration.ofSeconds(1), 0.5, () -> 0.9),
+                new FraudCheck("MASK", Duration.ofSeconds(1), 0.5, () -> 0.2),
+                new FraudCheck("PHOTO_OF_PHOTO", Duration.ofMillis(50), 0.5, () -> {
+                    Thread.sleep(5_000);
+                    return 1.0;
+                })));
+
+        assertEquals(List.of("DEEPFAKE"), report.getDetected());
+        assertEquals(Map.of("DEEPFAKE", 0.9, "MASK", 0.2), report.getScores());
+        assertEquals(List.of("PHOTO_OF_PHOTO"), report.getTimedOutChecks());
+        assertEquals(1, checkTimer("DEEPFAKE", "detected").count());
+        assertEquals(1, checkTimer("MASK", "clear").count());
+        assertEquals(1, checkTimer("PHOTO_OF_PHOTO", "timeout").count());
+        assertTrue(meterRegistry.scrape().contains("verification_fraud_check_seconds_bucket{check=\"MASK\""),
+                "percentile histogram is published");
+        assertNull(meterRegistry.find("verification.fraud.check").tags("check", "PHOTO_OF_PHOTO", "outcome", "failed").timer());
+    }
+
+    @Test
+    void cancelsAndInterruptsCheckPastItsDeadline() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        FraudCheckExecutor.Report report = executor.run(List.of(
+                new FraudCheck("DEEPFAKE", Duration.ofMillis(100), 0.5, () -> sleepUntilInterrupted(interrupted)),
+                new FraudCheck("MASK", Duration.ofSeconds(1), 0.5, () -> {
+                    throw new IllegalStateException("model unavailable");
+                })));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(List.of("DEEPFAKE"), report.getTimedOutChecks());
+        assertEquals(List.of("MASK"), report.getFailedChecks());
+        assertTrue(report.getScores().isEmpty());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS), "the check thread is interrupted");
+    }
+
+    @Test
+    void shortCircuitCancelsRemainingChecksOnDecisiveDetection() throws Exception {
+        FraudCheckExecutor shortCircuit = new FraudCheckExecutor(new PipelineThreads(false),
+                new VerificationMetrics(meterRegistry), 4, 10, true, List.of("DEEPFAKE"));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try {
+            FraudCheckExecutor.Report report = shortCircuit.run(List.of(
+                    new FraudCheck("MASK", Duration.ofSeconds(10), 0.5, () -> 0.9),
+                    new FraudCheck("DEEPFAKE", Duration.ofSeconds(10), 0.5, () -> {
+                        Thread.sleep(50); // after MASK, which is detected but not decisive
+                        return 0.95;
+                    }),
+                    new FraudCheck("PHOTO_OF_PHOTO", Duration.ofSeconds(10), 0.5, () -> sleepUntilInterrupted(interrupted))));
+
+            assertEquals(List.of("MASK", "DEEPFAKE"), report.getDetected());
+            assertEquals(List.of("PHOTO_OF_PHOTO"), report.getCancelledChecks());
+            assertTrue(report.getTimedOutChecks().isEmpty());
+            assertTrue(interrupted.await(1, TimeUnit.SECONDS), "the remaining check is interrupted");
+        } finally {
+            shortCircuit.shutdown();
+        }
+    }
+
+    @Test
+    void deadlinesCountFromSubmissionIncludingQueueTime() {
+        FraudCheckExecutor singleThread = new FraudCheckExecutor(new PipelineThreads(false),
+                new VerificationMetrics(meterRegistry), 1, 10, false, List.of());
+        try {
+            FraudCheckExecutor.Report report = singleThread.run(List.of(
+                    new FraudCheck("DEEPFAKE", Duration.ofSeconds(2), 0.5, () -> {
+                        Thread.sleep(400);
+                        return 0.1;
+                    }),
+                    // Instant once it runs, but it waits behind DEEPFAKE for longer than its deadline
+                    new FraudCheck("MASK", Duration.ofMillis(150), 0.5, () -> 0.1)));
+
+            assertEquals(List.of("MASK"), report.getTimedOutChecks());
+            assertEquals(Map.of("DEEPFAKE", 0.1), report.getScores());
+        } finally {
+            singleThread.shutdown();
+        }
+    }
+
+    private static double sleepUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return 1.0;
+    }
+
+    private Timer checkTimer(String check, String outcome) {
+        return meterRegistry.get("verification.fraud.check").tags("check", check, "outcome", outcome).timer();
+    }
+}
@@ -0,0 +1,165 @@
+package com.quod.biometric.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.quod.biometric.exception.InvalidRequestException;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Meta;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FraudExportServiceTests {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    // Configured as Spring Boot does: ISO-8601 dates
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FraudExportService exportService = new FraudExportService(mongoTemplate, objectMapper, meterRegistry, 500);
+    private final AtomicBoolean cursorClosed = new AtomicBoolean();
+    private final AtomicInteger fetched = new AtomicInteger();
+
+    @Test
+    void streamsOneLinePerCaseFromANoTimeoutCursor() throws Exception {
+        cursor(3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = exportService.export(FROM, TO, "FACIAL_BIOMETRY", false, output);
+
+        assertEquals(3, count);
+        List<JsonNode> lines = lines(output.toString(StandardCharsets.UTF_8));
+        assertEquals(List.of("case-0", "case-1", "case-2"), lines.stream().map(line -> line.get("id").asText()).toList());
+        assertEquals("2025-04-02T10:00:00", lines.get(0).get("processedAt").asText());
+        assertFalse(lines.get(0).has("metadata"));
+        assertTrue(cursorClosed.get());
+        assertEquals(3.0, meterRegistry.get("verification.export.records").counter().count());
+
+        Query query = exportQuery();
+        Document filter = query.getQueryObject();
+        assertEquals(true, filter.get("fraudDetected"));
+        assertEquals(new Document("$gte", FROM).append("$lt", TO), filter.get("processedAt"));
+        assertEquals(VerificationResult.VerificationType.FACIAL_BIOMETRY, filter.get("verificationType"));
+        assertEquals(new Document("processedAt", 1).append("id", 1), query.getSortObject());
+        assertEquals(500, query.getMeta().getCursorBatchSize());
+        assertTrue(query.getMeta().getFlags().contains(Meta.CursorOption.NO_TIMEOUT));
+        assertFalse(query.getFieldsObject().containsKey("riskScore"));
+    }
+
+    @Test
+    void gzipOutputDecompressesToTheSameLines() throws Exception {
+        cursor(3);
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        exportService.export(null, null, null, false, plain);
+
+        cursor(3);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        exportService.export(null, null, null, true, compressed);
+
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertEquals(plain.toString(StandardCharsets.UTF_8), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(6.0, meterRegistry.get("verification.export.records").counter().count());
+    }
+
+    @Test
+    void clientThatGoesAwayStopsTheCursorEarlyAndClosesIt() {
+        cursor(100_000);
+        OutputStream disconnected = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                written += len;
+                if (written > 256 * 1024) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+
+        assertThrows(IOException.class, () -> exportService.export(null, null, null, false, disconnected));
+
+        // Only what fits in the output buffer past the failing write was read from the cursor
+        assertTrue(fetched.get() < 100_000, String.valueOf(fetched.get()));
+        assertTrue(cursorClosed.get());
+        assertEquals(1L, meterRegistry.get("verification.export").timer().count());
+    }
+
+    @Test
+    void rejectsFiltersThatCannotMatch() {
+        assertThrows(InvalidRequestException.class, () -> exportService.checkFilter(TO, FROM, null));
+        assertThrows(InvalidRequestException.class, () -> exportService.checkFilter(FROM, FROM, null));
+        assertThrows(InvalidRequestException.class, () -> exportService.checkFilter(null, null, "FINGERPRINT"));
+        assertDoesNotThrow(() -> exportService.checkFilter(FROM, TO, "DOCUMENT_ANALYSIS"));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    /**
+     * A lazily generated cursor of fraud cases, which records how far it was read and when it was closed
+     */
+    private void cursor(int size) {
+        cursorClosed.set(false);
+        fetched.set(0);
+        Stream<VerificationResult> results = IntStream.range(0, size)
+                .mapToObj(i -> VerificationResult.builder()
+                        .id("case-" + i)
+                        .userId("user-" + i)
+                        .verificationType(VerificationResult.VerificationType.FACIAL_BIOMETRY)
+                        .processedAt(FROM.plusDays(1).plusHours(10).plusSeconds(i))
+                        .fraudTypes(List.of("DEEPFAKE"))
+                        .status(VerificationResult.ValidationStatus.REJECTED)
+                        .build())
+                .peek(result -> fetched.incrementAndGet())
+                .onClose(() -> cursorClosed.set(true));
+        when(mongoTemplate.stream(any(Query.class), eq(VerificationResult.class))).thenReturn(results);
+    }
+
+    private Query exportQuery() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(VerificationResult.class));
+        return query.getValue();
+    }
+
+    private List<JsonNode> lines(String ndjson) throws IOException {
+        assertTrue(ndjson.endsWith("\n"));
+        return ndjson.lines().map(line -> {
+            try {
+                return objectMapper.readTree(line);
+            } catch (IOException e) {
+                throw new AssertionError(line, e);
+            }
+        }).toList();
+    }
+}
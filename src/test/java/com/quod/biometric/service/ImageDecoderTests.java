@@ -0,0 +1,127 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageDecoderTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void decodesLargeImagesAtTheDetectorResolution() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(meterRegistry, 224, 32L * 1024 * 1024, Duration.ofMillis(200), 4);
+
+        try (SharedDecode shared = decoder.share(png(2400, 1600))) {
+            DecodedImage pixels = shared.acquire();
+            try {
+                assertEquals(224, pixels.getWidth());
+                assertEquals(149, pixels.getHeight());
+                assertEquals(0xFF0000, pixels.rgb(10, 70));
+                assertEquals(0x0000FF, pixels.rgb(213, 70));
+            } finally {
+                shared.release();
+            }
+        }
+    }
+
+    @Test
+    void sharedDecodeReturnsItsRasterAfterTheLastRelease() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(meterRegistry, 224, 32L * 1024 * 1024, Duration.ofMillis(200), 4);
+        SharedDecode shared = decoder.share(png(640, 480));
+
+        DecodedImage first = shared.acquire();
+        DecodedImage second = shared.acquire();
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("image.decode.raster.pool.allocated").gauge().value());
+
+        shared.release();
+        shared.close();
+        // A check still reading keeps the raster out of the pool
+        assertEquals(0.0, meterRegistry.get("image.decode.raster.pool.available").gauge().value());
+        shared.release();
+        assertEquals(1.0, meterRegistry.get("image.decode.raster.pool.available").gauge().value());
+        assertThrows(IllegalStateException.class, shared::acquire);
+    }
+
+    @Test
+    void onlyPooledRastersGoBackToThePool() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(meterRegistry, 224, 32L * 1024 * 1024, Duration.ofMillis(200), 1);
+
+        try (SharedDecode pooled = decoder.share(png(640, 480));
+             SharedDecode unpooled = decoder.share(png(640, 480))) {
+            pooled.acquire();
+            unpooled.acquire();
+            pooled.release();
+            unpooled.release();
+        }
+
+        assertEquals(1.0, meterRegistry.get("image.decode.raster.pool.misses").counter().count());
+        assertEquals(1.0, meterRegistry.get("image.decode.raster.pool.available").gauge().value());
+    }
+
+    @Test
+    void reusedBuffersStartEachDecodeClean() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(meterRegistry, 224, 32L * 1024 * 1024, Duration.ofMillis(200), 1);
+        try (SharedDecode wide = decoder.share(png(2400, 1600))) {
+            wide.acquire();
+            wide.release();
+        }
+
+        // A narrower image, decoded into the raster, row and sums of the first
+        try (SharedDecode tall = decoder.share(png(300, 900))) {
+            DecodedImage pixels = tall.acquire();
+            try {
+                assertEquals(74, pixels.getWidth());
+                assertEquals(224, pixels.getHeight());
+                assertEquals(0xFF0000, pixels.rgb(5, 100));
+                assertEquals(0x0000FF, pixels.rgb(70, 100));
+            } finally {
+                tall.release();
+            }
+        }
+        assertEquals(1.0, meterRegistry.get("image.decode.raster.pool.allocated").gauge().value());
+        assertEquals(0.0, meterRegistry.get("image.decode.raster.pool.misses").counter().count());
+    }
+
+    @Test
+    void rejectsDecodesBeyondTheMemoryBudget() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(meterRegistry, 224, 64 * 1024, Duration.ofMillis(10), 4);
+
+        // 640x480 is subsampled by 2 into a 320x240 intermediate, 300KB of pixels
+        try (SharedDecode shared = decoder.share(png(640, 480))) {
+            assertThrows(RejectedExecutionException.class, shared::acquire);
+            assertThrows(RejectedExecutionException.class, shared::acquire);
+        }
+        assertEquals(1.0, meterRegistry.get("image.decode.rejected").counter().count());
+        assertEquals(0.0, meterRegistry.get("image.decode.budget.used").gauge().value());
+    }
+
+    /**
+     * A PNG whose left half is red and right half blue
+     */
+    private static IngestedImage png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(width / 2, 0, width - width / 2, height);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        byte[] data = output.toByteArray();
+        return new IngestedImage("image.png", "image/png", data.length, false, "hash",
+                ImageHeader.builder().format(ImageHeader.Format.PNG).width(width).height(height).build(),
+                ByteBuffer.wrap(data), buffer -> { });
+    }
+}
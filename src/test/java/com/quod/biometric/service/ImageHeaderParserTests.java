@@ -0,0 +1,109 @@
+package com.quod.biometric.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageHeaderParserTests {
+
+    @Test
+    void readsJpegDimensions() throws IOException {
+        ImageHeader header = parse(encode("jpg", 800, 600));
+
+        assertEquals(ImageHeader.Format.JPEG, header.getFormat());
+        assertEquals(800, header.getWidth());
+        assertEquals(600, header.getHeight());
+    }
+
+    @Test
+    void readsPngDimensions() throws IOException {
+        ImageHeader header = parse(encode("png", 320, 240));
+
+        assertEquals(ImageHeader.Format.PNG, header.getFormat());
+        assertEquals(320, header.getWidth());
+        assertEquals(240, header.getHeight());
+    }
+
+    @Test
+    void reportsUnknownFormatForNonImages() throws IOException {
+        ImageHeader header = parse("Este é um teste de imagem".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(ImageHeader.Format.UNKNOWN, header.getFormat());
+        assertFalse(header.hasDimensions());
+    }
+
+    @Test
+    void readsExifDeviceDateAndGps() throws IOException {
+        byte[] jpeg = encode("jpg", 640, 480);
+        byte[] exif = exifSegment();
+        byte[] withExif = new byte[jpeg.length + exif.length];
+        System.arraycopy(jpeg, 0, withExif, 0, 2);
+        System.arraycopy(exif, 0, withExif, 2, exif.length);
+        System.arraycopy(jpeg, 2, withExif, 2 + exif.length, jpeg.length - 2);
+
+        ImageHeader header = parse(withExif);
+
+        assertEquals(640, header.getWidth());
+        assertEquals("Acme", header.getDeviceManufacturer());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 10, 30, 0), header.getCaptureDate());
+        assertEquals(-23.5, header.getGpsLatitude(), 1e-9);
+        assertEquals(-46.625, header.getGpsLongitude(), 1e-9);
+    }
+
+    @Test
+    void stopsAtHeaderByteLimit() throws IOException {
+        byte[] jpeg = encode("jpg", 640, 480);
+
+        assertThrows(IOException.class, () -> ImageHeaderParser.parse(new ByteArrayInputStream(jpeg), 8));
+    }
+
+    private static ImageHeader parse(byte[] data) throws IOException {
+        return ImageHeaderParser.parse(new ByteArrayInputStream(data), 64 * 1024);
+    }
+
+    private static byte[] encode(String format, int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Little-endian APP1 segment with Make, DateTime and a GPS IFD (23°30'S, 46°37'30"W)
+     */
+    private static byte[] exifSegment() {
+        ByteBuffer tiff = ByteBuffer.allocate(200).order(ByteOrder.LITTLE_ENDIAN);
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        // IFD0 at 8: 3 entries
+        tiff.putShort((short) 3);
+        tiff.putShort((short) 0x010F).putShort((short) 2).putInt(5).putInt(100);
+        tiff.putShort((short) 0x0132).putShort((short) 2).putInt(20).putInt(110);
+        tiff.putShort((short) 0x8825).putShort((short) 4).putInt(1).putInt(50);
+        tiff.putInt(0);
+        // GPS IFD at 50: 4 entries
+        tiff.putShort((short) 4);
+        tiff.putShort((short) 1).putShort((short) 2).putInt(2).put((byte) 'S').put((byte) 0).putShort((short) 0);
+        tiff.putShort((short) 2).putShort((short) 5).putInt(3).putInt(136);
+        tiff.putShort((short) 3).putShort((short) 2).putInt(2).put((byte) 'W').put((byte) 0).putShort((short) 0);
+        tiff.putShort((short) 4).putShort((short) 5).putInt(3).putInt(160);
+        tiff.position(100).put("Acme\0".getBytes(StandardCharsets.US_ASCII));
+        tiff.position(110).put("2024:05:01 10:30:00\0".getBytes(StandardCharsets.US_ASCII));
+        tiff.position(136).putInt(23).putInt(1).putInt(30).putInt(1).putInt(0).putInt(1);
+        tiff.position(160).putInt(46).putInt(1).putInt(37).putInt(1).putInt(30).putInt(1);
+
+        byte[] exifHeader = {'E', 'x', 'i', 'f', 0, 0};
+        int length = 2 + exifHeader.length + tiff.capacity();
+        ByteBuffer segment = ByteBuffer.allocate(2 + length);
+        segment.put((byte) 0xFF).put((byte) 0xE1).putShort((short) length).put(exifHeader).put(tiff.array());
+        return segment.array();
+    }
+}
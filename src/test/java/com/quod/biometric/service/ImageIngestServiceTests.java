@@ -0,0 +1,110 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageIngestServiceTests {
+
+    private static final int MAX_SIZE = 64 * 1024;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImageIngestService ingestService = new ImageIngestService(
+            new ImageBufferPool(MAX_SIZE, 1, meterRegistry), MAX_SIZE, 4096);
+
+    @Test
+    void readsTheUploadOnceIntoAPooledBufferReturnedOnClose() throws Exception {
+        byte[] png = png(640, 480);
+
+        IngestedImage image = ingestService.ingest(new MockMultipartFile("image", "face.png", "image/png", png));
+
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(png)), image.getContentHash());
+        assertEquals(ImageHeader.Format.PNG, image.getHeader().getFormat());
+        assertEquals(640, image.getHeader().getWidth());
+        assertArrayEquals(png, image.openStream().readAllBytes());
+        assertEquals(0.0, gauge("image.buffer.pool.available"));
+
+        image.close();
+        image.close();
+        assertEquals(1.0, gauge("image.buffer.pool.available"));
+        assertEquals(1.0, gauge("image.buffer.pool.allocated"));
+    }
+
+    @Test
+    void exhaustedPoolHandsOutHeapBuffersThatAreNotPooled() throws Exception {
+        byte[] png = png(640, 480);
+
+        try (IngestedImage pooled = ingestService.ingest(new MockMultipartFile("image", "a.png", "image/png", png));
+             IngestedImage unpooled = ingestService.ingest(new MockMultipartFile("image", "b.png", "image/png", png))) {
+            assertEquals(pooled.getContentHash(), unpooled.getContentHash());
+            assertEquals(1.0, meterRegistry.get("image.buffer.pool.misses").counter().count());
+        }
+        assertEquals(1.0, gauge("image.buffer.pool.available"));
+    }
+
+    @Test
+    void oversizedUploadIsNotRead() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getSize()).thenReturn(MAX_SIZE + 1L);
+
+        IngestedImage image = ingestService.ingest(file);
+
+        assertTrue(image.isOversized());
+        assertEquals(0, image.getData().remaining());
+        verify(file, never()).getInputStream();
+        assertEquals(0.0, gauge("image.buffer.pool.allocated"));
+    }
+
+    @Test
+    void failedReadReturnsTheBuffer() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getSize()).thenReturn(1024L);
+        when(file.getInputStream()).thenThrow(new IOException("connection reset"));
+
+        assertThrows(UncheckedIOException.class, () -> ingestService.ingest(file));
+        assertEquals(1.0, gauge("image.buffer.pool.available"));
+    }
+
+    @Test
+    void failedPartReturnsTheBuffer() throws Exception {
+        FilePart part = mock(FilePart.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.IMAGE_PNG);
+        headers.setContentLength(1024);
+        when(part.headers()).thenReturn(headers);
+        when(part.filename()).thenReturn("face.png");
+        when(part.content()).thenReturn(Flux.concat(
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(new byte[512])),
+                Flux.error(new IOException("connection reset"))));
+
+        assertThrows(Exception.class, () -> ingestService.ingest(part).block());
+        assertEquals(1.0, gauge("image.buffer.pool.available"));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+}
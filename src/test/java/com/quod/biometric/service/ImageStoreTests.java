@@ -0,0 +1,92 @@
+package com.quod.biometric.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsObject;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ImageStoreTests {
+
+    private final GridFsTemplate gridFsTemplate = mock(GridFsTemplate.class);
+
+    @Test
+    void storesCompressibleImagesDeflatedAndReadsThemBack() throws Exception {
+        byte[] data = new byte[64 * 1024];
+        Arrays.fill(data, (byte) 7); // flat PNG-like content
+        IngestedImage image = image(data);
+        ImageStore store = store(1024 * 1024);
+
+        assertEquals(image.getContentHash(), store.store(image));
+        store.shutdown();
+
+        ArgumentCaptor<GridFsObject<?, InputStream>> captor = ArgumentCaptor.forClass(GridFsObject.class);
+        verify(gridFsTemplate).store(captor.capture());
+        GridFsUpload<?> upload = (GridFsUpload<?>) captor.getValue();
+        byte[] stored = upload.getContent().readAllBytes();
+        assertEquals(image.getContentHash(), upload.getFilename());
+        assertEquals("deflate", upload.getOptions().getMetadata().get("compression"));
+        assertTrue(stored.length < data.length / 10);
+
+        GridFSFile file = new GridFSFile(new BsonObjectId(), image.getContentHash(), stored.length, 261120, new Date(),
+                new Document(upload.getOptions().getMetadata()).append("_contentType", "image/png"));
+        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(file);
+        when(gridFsTemplate.getResource(file)).thenReturn(new GridFsResource(file, new ByteArrayInputStream(stored)));
+        ImageStore.StoredImage read = store.open(image.getContentHash()).orElseThrow();
+        assertEquals("image/png", read.contentType());
+        assertEquals(data.length, read.size());
+        assertArrayEquals(data, read.stream().readAllBytes());
+    }
+
+    @Test
+    void doesNotWriteContentThatIsAlreadyStored() throws Exception {
+        IngestedImage image = image(new byte[]{1, 2, 3});
+        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(mock(GridFSFile.class));
+        ImageStore store = store(1024);
+
+        assertEquals(image.getContentHash(), store.store(image));
+        store.shutdown();
+
+        verify(gridFsTemplate, never()).store(any(GridFsObject.class));
+    }
+
+    @Test
+    void dropsImagesBeyondTheWriteBehindBudget() throws Exception {
+        ImageStore store = store(2);
+
+        assertNull(store.store(image(new byte[]{1, 2, 3})));
+        store.shutdown();
+
+        verifyNoInteractions(gridFsTemplate);
+        assertTrue(store.open("not-a-hash").isEmpty());
+    }
+
+    private ImageStore store(long maxBufferedBytes) {
+        return new ImageStore(gridFsTemplate, new PipelineThreads(false), new SimpleMeterRegistry(),
+                true, 1, 10, maxBufferedBytes, 261120, 0.1);
+    }
+
+    private static IngestedImage image(byte[] data) throws Exception {
+        String contentHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        return new IngestedImage("image.png", "image/png", data.length, false, contentHash,
+                ImageHeader.builder().format(ImageHeader.Format.PNG).build(), ByteBuffer.wrap(data), buffer -> { });
+    }
+}
@@ -0,0 +1,68 @@
+package com.quod.biometric.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearDuplicateIndexTests {
+
+    @Test
+    void findsClosestHashWithinDistance() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            index.add(random.nextLong(), "user-" + i, "verification-" + i);
+        }
+        long original = 0x0F0F_F0F0_1234_ABCDL;
+        index.add(original, "owner", "original");
+
+        long edited = original ^ 0b1011L ^ (1L << 40) ^ (1L << 63); // 5 bits flipped
+        NearDuplicateIndex.Match match = index.findNearest(edited, 6);
+
+        assertNotNull(match);
+        assertEquals("original", match.getVerificationId());
+        assertEquals("owner", match.getUserId());
+        assertEquals(5, match.getDistance());
+        assertNull(index.findNearest(edited, 4));
+    }
+
+    @Test
+    void perceptualHashToleratesSmallEdits() {
+        BufferedImage image = gradient(640, 480);
+        BufferedImage edited = gradient(640, 480);
+        Graphics2D graphics = edited.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(10, 10, 20, 20);
+        graphics.dispose();
+
+        long distance = Long.bitCount(PerceptualHasher.hash(image) ^ PerceptualHasher.hash(edited));
+
+        assertTrue(distance <= 6, "distance was " + distance);
+        assertNotEquals(PerceptualHasher.hash(image), PerceptualHasher.hash(flipped(image)));
+    }
+
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.WHITE, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLACK);
+        graphics.fillOval(width / 3, height / 4, width / 3, height / 2);
+        graphics.dispose();
+        return image;
+    }
+
+    private static BufferedImage flipped(BufferedImage image) {
+        BufferedImage flipped = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                flipped.setRGB(image.getWidth() - 1 - x, y, image.getRGB(x, y));
+            }
+        }
+        return flipped;
+    }
+}
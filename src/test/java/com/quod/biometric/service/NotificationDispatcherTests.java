@@ -0,0 +1,77 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.NotificationPayload;
+import com.quod.biometric.support.StubNotificationReceiver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDispatcherTests {
+
+    private StubNotificationReceiver receiver;
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        receiver = new StubNotificationReceiver();
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new NotificationDispatcher(new RestTemplateNotificationTransport(new RestTemplate()), meterRegistry, false,
+                100, 1, 1, Duration.ofMillis(200), 3, Duration.ofMillis(10), Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        receiver.close();
+    }
+
+    @Test
+    void groupsQueuedNotificationsIntoOnePost() throws Exception {
+        NotificationDispatcher.Channel channel = dispatcher.channel(receiver.url("/success-notification"), 10);
+
+        List<CompletableFuture<Void>> deliveries = IntStream.range(0, 5)
+                .mapToObj(i -> channel.submit(NotificationPayload.builder().notificationId("n-" + i).build()))
+                .toList();
+        CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, receiver.getRequestBodies().size());
+        assertTrue(receiver.getRequestBodies().get(0).startsWith("["));
+        assertEquals(5.0, meterRegistry.counter("notification.dispatch.sent", "endpoint", receiver.url("/success-notification")).count());
+    }
+
+    @Test
+    void retriesFailedDeliveryAndDeadLettersWhenAttemptsRunOut() throws Exception {
+        NotificationDispatcher.Channel channel = dispatcher.channel(receiver.url("/fraud-notification"), 1);
+
+        receiver.failNext(2);
+        channel.submit(NotificationPayload.builder().notificationId("retried").build()).get(5, TimeUnit.SECONDS);
+        assertEquals(1, receiver.getRequestBodies().size());
+
+        receiver.failNext(3);
+        CompletableFuture<Void> deadLettered = channel.submit(NotificationPayload.builder().notificationId("lost").build());
+        assertThrows(Exception.class, () -> deadLettered.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.counter("notification.dispatch.dead_letter", "endpoint", receiver.url("/fraud-notification")).count());
+    }
+
+    @Test
+    void senderThreadsAreNamedAfterTheirEndpoint() {
+        dispatcher.channel(receiver.url("/fraud-notification"), 1);
+        dispatcher.channel(receiver.url("/success-notification/"), 1);
+
+        List<String> threads = Thread.getAllStackTraces().keySet().stream().map(Thread::getName).toList();
+        assertTrue(threads.containsAll(List.of("notification-sender-fraud-notification-0",
+                "notification-sender-success-notification-0")), threads.toString());
+        assertEquals("localhost", NotificationDispatcher.endpointName("http://localhost:8090"));
+    }
+}
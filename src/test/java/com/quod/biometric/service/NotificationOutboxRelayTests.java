@@ -0,0 +1,159 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.NotificationOutbox;
+import com.quod.biometric.model.VerificationResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationOutboxRelayTests {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final NotificationOutboxRelay relay = new NotificationOutboxRelay(mongoTemplate, notificationService,
+            10, 2, 3, Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofMinutes(1));
+
+    @Test
+    void claimsDuePendingEntriesAndExpiredLeases() {
+        relay.relayPendingNotifications();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(VerificationResult.class));
+        List<Document> branches = query.getValue().getQueryObject().getList("$or", Document.class);
+        assertEquals(NotificationOutbox.OutboxStatus.PENDING, branches.get(0).get("outbox.status"));
+        assertTrue(branches.get(0).get("outbox.nextAttemptAt", Document.class).containsKey("$not"));
+        assertEquals(NotificationOutbox.OutboxStatus.DISPATCHING, branches.get(1).get("outbox.status"));
+        assertTrue(branches.get(1).get("outbox.leaseUntil", Document.class).containsKey("$lt"));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(NotificationOutbox.OutboxStatus.DISPATCHING, set.get("outbox.status"));
+        assertTrue(set.get("outbox.leaseUntil", LocalDateTime.class).isAfter(LocalDateTime.now().plusSeconds(29)));
+        assertNotNull(set.get("outbox.claimToken"));
+        assertEquals(new Document("outbox.attempts", 1), update.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    void deliveredEntryDropsItsOutbox() {
+        claimable(entry(1));
+        when(notificationService.sendFraudNotification(any())).thenReturn(CompletableFuture.completedFuture("notification-1"));
+
+        relay.relayPendingNotifications();
+
+        Document update = writtenBack();
+        assertEquals("notification-1", update.get("$set", Document.class).get("notificationId"));
+        assertTrue(update.get("$unset", Document.class).containsKey("outbox"));
+    }
+
+    @Test
+    void failedEntryIsRetriedAfterBackoffUntilAttemptsRunOut() {
+        claimable(entry(2));
+        when(notificationService.sendFraudNotification(any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("503")));
+
+        relay.relayPendingNotifications();
+
+        Document set = writtenBack().get("$set", Document.class);
+        assertEquals(NotificationOutbox.OutboxStatus.PENDING, set.get("outbox.status"));
+        assertEquals("503", set.get("outbox.lastError"));
+        // Second attempt: 1s doubled
+        assertTrue(set.get("outbox.nextAttemptAt", LocalDateTime.class).isAfter(LocalDateTime.now().plusSeconds(1)));
+
+        reset(mongoTemplate);
+        claimable(entry(3));
+        relay.relayPendingNotifications();
+
+        assertEquals(NotificationOutbox.OutboxStatus.FAILED, writtenBack().get("$set", Document.class).get("outbox.status"));
+    }
+
+    @Test
+    void fullDispatcherQueueReleasesTheEntryWithoutCountingTheAttempt() {
+        claimable(entry(1));
+        when(notificationService.sendFraudNotification(any()))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("full")));
+
+        relay.relayPendingNotifications();
+
+        Document update = writtenBack();
+        assertEquals(NotificationOutbox.OutboxStatus.PENDING, update.get("$set", Document.class).get("outbox.status"));
+        assertEquals(new Document("outbox.attempts", -1), update.get("$inc"));
+        // No more entries are claimed in this poll
+        verify(mongoTemplate, times(1)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(VerificationResult.class));
+    }
+
+    @Test
+    void renewsLeasesOfEntriesStillWithTheDispatcherAndCapsThem() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(VerificationResult.class)))
+                .thenReturn(entry(1, "verification-1", "claim-1"), entry(1, "verification-2", "claim-2"), entry(1, "verification-3", "claim-3"));
+        when(notificationService.sendFraudNotification(any())).thenReturn(new CompletableFuture<>());
+
+        relay.relayPendingNotifications();
+        // Two entries are outstanding, the cap; nothing more is claimed and their leases are renewed
+        relay.relayPendingNotifications();
+
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(VerificationResult.class));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(VerificationResult.class));
+        assertEquals(List.of("claim-1", "claim-2"), query.getValue().getQueryObject()
+                .get("outbox.claimToken", Document.class).getList("$in", String.class).stream().sorted().toList());
+        assertTrue(update.getValue().getUpdateObject().get("$set", Document.class).containsKey("outbox.leaseUntil"));
+    }
+
+    @Test
+    void outcomeIsOnlyWrittenForTheCurrentClaim() {
+        claimable(entry(1));
+        CompletableFuture<String> delivery = new CompletableFuture<>();
+        when(notificationService.sendFraudNotification(any())).thenReturn(delivery);
+
+        relay.relayPendingNotifications();
+        delivery.complete("notification-1");
+
+        // If the entry was claimed again meanwhile, its token changed and this update matches nothing
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(VerificationResult.class));
+        assertEquals("claim-1", query.getValue().getQueryObject().get("outbox.claimToken"));
+    }
+
+    private void claimable(VerificationResult result) {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(VerificationResult.class)))
+                .thenReturn(result, (VerificationResult) null);
+    }
+
+    private Document writtenBack() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(VerificationResult.class));
+        assertEquals("verification-1", query.getValue().getQueryObject().get("_id"));
+        assertEquals(NotificationOutbox.OutboxStatus.DISPATCHING, query.getValue().getQueryObject().get("outbox.status"));
+        return update.getValue().getUpdateObject();
+    }
+
+    private static VerificationResult entry(int attempts) {
+        return entry(attempts, "verification-1", "claim-1");
+    }
+
+    private static VerificationResult entry(int attempts, String id, String claimToken) {
+        NotificationOutbox outbox = NotificationOutbox.pending(NotificationOutbox.NotificationType.FRAUD);
+        outbox.setStatus(NotificationOutbox.OutboxStatus.DISPATCHING);
+        outbox.setAttempts(attempts);
+        outbox.setClaimToken(claimToken);
+        return VerificationResult.builder()
+                .id(id)
+                .outbox(outbox)
+                .build();
+    }
+}
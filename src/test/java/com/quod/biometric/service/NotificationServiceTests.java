@@ -0,0 +1,78 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.NotificationPayload;
+import com.quod.biometric.model.NotificationOutbox;
+import com.quod.biometric.model.VerificationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationServiceTests {
+
+    private final NotificationDispatcher dispatcher = mock(NotificationDispatcher.class);
+    private final NotificationDispatcher.Channel fraudChannel = mock(NotificationDispatcher.Channel.class);
+    private final NotificationDispatcher.Channel successChannel = mock(NotificationDispatcher.Channel.class);
+    private NotificationService notificationService;
+
+    @BeforeEach
+    void setUp() {
+        when(dispatcher.channel(eq("http://receiver/fraud"), anyInt())).thenReturn(fraudChannel);
+        when(dispatcher.channel(eq("http://receiver/success"), anyInt())).thenReturn(successChannel);
+        when(fraudChannel.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(successChannel.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        notificationService = new NotificationService(dispatcher, new VerificationMetrics(new SimpleMeterRegistry()),
+                "http://receiver/fraud", "http://receiver/success", 1, 1);
+    }
+
+    @Test
+    void everyAttemptSendsTheIdStoredWithTheOutboxEntry() {
+        VerificationResult result = result(NotificationOutbox.pending(NotificationOutbox.NotificationType.FRAUD));
+
+        String first = notificationService.sendFraudNotification(result).join();
+        String retry = notificationService.sendFraudNotification(result).join();
+
+        String stored = result.getOutbox().getNotificationId();
+        assertNotNull(stored);
+        assertEquals(stored, first);
+        assertEquals(stored, retry);
+        assertEquals(List.of(stored, stored), sent(fraudChannel, 2));
+    }
+
+    @Test
+    void entryWithoutAnIdGetsOneDerivedFromTheVerification() {
+        NotificationOutbox swept = NotificationOutbox.pending(NotificationOutbox.NotificationType.SUCCESS);
+        swept.setNotificationId(null);
+
+        String first = notificationService.sendSuccessNotification(result(swept)).join();
+        String retry = notificationService.sendSuccessNotification(result(swept)).join();
+        String fraud = notificationService.sendFraudNotification(result(swept)).join();
+
+        assertEquals(first, retry);
+        assertNotEquals(first, fraud);
+        assertEquals(List.of(first, first), sent(successChannel, 2));
+    }
+
+    private static List<String> sent(NotificationDispatcher.Channel channel, int count) {
+        ArgumentCaptor<NotificationPayload> payloads = ArgumentCaptor.forClass(NotificationPayload.class);
+        verify(channel, times(count)).submit(payloads.capture());
+        return payloads.getAllValues().stream().map(NotificationPayload::getNotificationId).toList();
+    }
+
+    private static VerificationResult result(NotificationOutbox outbox) {
+        return VerificationResult.builder()
+                .id("verification-1")
+                .userId("user-1")
+                .outbox(outbox)
+                .build();
+    }
+}
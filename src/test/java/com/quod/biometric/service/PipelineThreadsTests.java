@@ -0,0 +1,57 @@
+package com.quod.biometric.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PipelineThreadsTests {
+
+    @Test
+    void fallsBackToPlatformThreadsBeforeJava21() {
+        assumeTrue(Runtime.version().feature() < 21, "runtime supports virtual threads");
+
+        assertPlatformThreads(new PipelineThreads(true));
+    }
+
+    @Test
+    void runsOnVirtualThreadsFromJava21() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "runtime has no virtual threads");
+        PipelineThreads pipelineThreads = new PipelineThreads(true);
+
+        assertTrue(pipelineThreads.isVirtual());
+        Thread thread = pipelineThreads.threadFactory("stage-").newThread(() -> { });
+        assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+        assertEquals("stage-1", thread.getName());
+        ExecutorService executor = pipelineThreads.newExecutor("stage-", 2, 4, new ThreadPoolExecutor.AbortPolicy());
+        try {
+            assertFalse(executor instanceof ThreadPoolExecutor, "thread-per-task, not a bounded pool");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void usesPlatformThreadsWhenDisabled() {
+        assertPlatformThreads(new PipelineThreads(false));
+    }
+
+    private static void assertPlatformThreads(PipelineThreads pipelineThreads) {
+        assertFalse(pipelineThreads.isVirtual());
+        Thread thread = pipelineThreads.threadFactory("stage-").newThread(() -> { });
+        assertTrue(thread.isDaemon());
+        assertEquals("stage-1", thread.getName());
+
+        ExecutorService executor = pipelineThreads.newExecutor("stage-", 2, 4, new ThreadPoolExecutor.AbortPolicy());
+        try {
+            ThreadPoolExecutor pool = assertInstanceOf(ThreadPoolExecutor.class, executor);
+            assertEquals(2, pool.getMaximumPoolSize());
+            assertEquals(4, pool.getQueue().remainingCapacity());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
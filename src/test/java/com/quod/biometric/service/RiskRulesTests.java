@@ -0,0 +1,126 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult.ValidationStatus;
+import com.quod.biometric.model.VerificationResult.VerificationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RiskRulesTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultRulesDecideByFlagsScoreAndType() throws Exception {
+        RiskRules.Compiled rules;
+        try (InputStream input = getClass().getResourceAsStream("/risk-rules.yml")) {
+            rules = RiskRules.parse(input).compile();
+        }
+
+        RiskScorecard deepfake = new RiskScorecard(VerificationType.FACIAL_BIOMETRY);
+        deepfake.score(RiskSignal.DEEPFAKE, 0.7);
+        deepfake.score(RiskSignal.MASK, 0.1);
+        rules.evaluate(deepfake);
+        assertEquals(ValidationStatus.REJECTED, deepfake.getStatus());
+        assertEquals(List.of("DEEPFAKE"), deepfake.flaggedTypes());
+        assertEquals(0.75, deepfake.getRiskScore(), 1e-9);
+
+        // Nothing flagged, but several weak signals add up
+        RiskScorecard weak = new RiskScorecard(VerificationType.FACIAL_BIOMETRY);
+        weak.score(RiskSignal.DEEPFAKE, 0.45);
+        weak.score(RiskSignal.MASK, 0.45);
+        weak.score(RiskSignal.PHOTO_OF_PHOTO, 0.45);
+        weak.score(RiskSignal.NEAR_DUPLICATE_FACE, 0.45);
+        rules.evaluate(weak);
+        assertEquals(ValidationStatus.MANUAL_REVIEW, weak.getStatus());
+        assertTrue(weak.flaggedTypes().isEmpty());
+
+        // Same signals, but the score is below the facial review threshold
+        RiskScorecard clean = new RiskScorecard(VerificationType.FACIAL_BIOMETRY);
+        clean.score(RiskSignal.DEEPFAKE, 0.3);
+        clean.score(RiskSignal.MASK, 0.3);
+        rules.evaluate(clean);
+        assertEquals(ValidationStatus.APPROVED, clean.getStatus());
+        assertEquals("2024-06-01", clean.getRulesVersion());
+
+        // Documents go to review at a lower score
+        RiskScorecard document = new RiskScorecard(VerificationType.DOCUMENT_ANALYSIS);
+        document.score(RiskSignal.FAKE_DOCUMENT, 0.45);
+        document.score(RiskSignal.DOCTORED_DOCUMENT, 0.45);
+        document.score(RiskSignal.FACE_DOCUMENT_MISMATCH, 0.2);
+        rules.evaluate(document);
+        assertEquals(ValidationStatus.MANUAL_REVIEW, document.getStatus());
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> compile("""
+                decisions:
+                  - status: REJECTED
+                    any-flagged: [NOT_A_SIGNAL]
+                  - status: APPROVED
+                """));
+        assertThrows(IllegalArgumentException.class, () -> compile("""
+                decisions:
+                  - status: REJECTED
+                    min-score: 1.0
+                """));
+        assertThrows(IllegalArgumentException.class, () -> compile("""
+                weights:
+                  DEEPFAKE: -1
+                decisions:
+                  - status: APPROVED
+                """));
+        assertThrows(IllegalArgumentException.class, () -> compile("""
+                decisions:
+                  - status: PENDING
+                """));
+    }
+
+    @Test
+    void reloadAppliesValidRulesAndKeepsCurrentOnesOtherwise() throws Exception {
+        Path file = directory.resolve("risk-rules.yml");
+        Files.writeString(file, """
+                version: v1
+                decisions:
+                  - status: APPROVED
+                """);
+        RiskEngine engine = new RiskEngine(new DefaultResourceLoader(), new SimpleMeterRegistry(), file.toUri().toString());
+        assertEquals("v1", engine.current().getVersion());
+
+        Files.writeString(file, """
+                version: v2
+                weights:
+                  MASK: 1
+                decisions:
+                  - status: REJECTED
+                    any-flagged: [MASK]
+                  - status: APPROVED
+                """);
+        assertTrue(engine.reload());
+        RiskScorecard scorecard = new RiskScorecard(VerificationType.FACIAL_BIOMETRY);
+        scorecard.score(RiskSignal.MASK, 0.9);
+        engine.evaluate(engine.current(), scorecard);
+        assertEquals(ValidationStatus.REJECTED, scorecard.getStatus());
+        assertEquals("v2", scorecard.getRulesVersion());
+
+        Files.writeString(file, "version: v3\ndecisions: [");
+        assertFalse(engine.reload());
+        assertEquals("v2", engine.current().getVersion());
+    }
+
+    private static RiskRules.Compiled compile(String yaml) {
+        return RiskRules.parse(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8))).compile();
+    }
+}
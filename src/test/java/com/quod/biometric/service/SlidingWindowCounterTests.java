@@ -0,0 +1,60 @@
+package com.quod.biometric.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void countsEventsWithinTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(SlidingWindowCounter.Mode.COUNT, Duration.ofSeconds(60), 1000, now::get);
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, counter.increment("user-1"));
+            now.addAndGet(10_000);
+        }
+        assertEquals(1, counter.increment("user-2"));
+        now.addAndGet(20_000); // the first two events are now older than the window
+        assertEquals(4, counter.increment("user-1"));
+        now.addAndGet(Duration.ofHours(1).toMillis());
+        assertEquals(1, counter.increment("user-1"));
+    }
+
+    @Test
+    void estimatesDistinctMembers() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(SlidingWindowCounter.Mode.DISTINCT, Duration.ofMinutes(10), 1000, now::get);
+
+        long distinct = 0;
+        for (int i = 0; i < 3; i++) {
+            distinct = counter.addDistinct("device-1", "user-a");
+        }
+        assertEquals(1, distinct);
+        for (int user = 0; user < 12; user++) {
+            distinct = counter.addDistinct("device-1", "user-" + user);
+        }
+        assertTrue(distinct >= 9 && distinct <= 16, "estimate was " + distinct);
+    }
+
+    @Test
+    void evictsIdleKeysWhenFull() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(SlidingWindowCounter.Mode.COUNT, Duration.ofSeconds(60), 64 * 12, now::get);
+        for (int i = 0; i < 10_000; i++) {
+            counter.increment("key-" + i);
+        }
+        int capacity = counter.size();
+        assertTrue(capacity < 10_000 && capacity >= 64 * 12, "size was " + capacity);
+
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        for (int i = 0; i < 10_000; i++) {
+            counter.increment("other-" + i);
+        }
+        assertEquals(capacity, counter.size(), "idle keys make room for new ones");
+        assertEquals(2, counter.increment("other-1"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.quod.biometric.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StageGraphTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void independentStagesRunInParallelAndTheFirstDeclaredOutcomeWins() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        StageGraph<List<String>, String> graph = StageGraph.<List<String>, String>builder(executor)
+                .stage("first", context -> record("first"))
+                .stage("left", context -> awaitOther(bothStarted, "left"), "first")
+                .stage("right", context -> awaitOther(bothStarted, "right"), "first")
+                .stage("last", context -> "never", "left", "right")
+                .build();
+
+        StageGraph.Run<String> run = graph.run(ran);
+
+        // Each side waits for the other to start, so they can only finish by running at the same time
+        assertEquals("left", run.outcome());
+        assertEquals(List.of("first", "left", "right"), List.copyOf(run.stageNanos().keySet()));
+        assertFalse(ran.contains("last"));
+    }
+
+    @Test
+    void runsEveryLevelInOrderUntilAnOutcome() {
+        StageGraph<List<String>, String> graph = StageGraph.<List<String>, String>builder(executor)
+                .stage("a", context -> record("a"))
+                .stage("b", context -> record("b"), "a")
+                .stage("c", context -> record("c"), "a")
+                .stage("d", context -> {
+                    record("d");
+                    return "done";
+                }, "b", "c")
+                .build();
+
+        assertEquals("done", graph.run(ran).outcome());
+        assertEquals("a", ran.get(0));
+        assertEquals("d", ran.get(3));
+        assertEquals(4, ran.size());
+    }
+
+    @Test
+    void dependenciesMustBeDeclaredFirst() {
+        StageGraph.Builder<List<String>, String> builder = StageGraph.<List<String>, String>builder(executor)
+                .stage("a", context -> null);
+        assertThrows(IllegalArgumentException.class, () -> builder.stage("b", context -> null, "c"));
+        assertThrows(IllegalArgumentException.class, () -> builder.stage("a", context -> null));
+    }
+
+    private String record(String stage) {
+        ran.add(stage);
+        return null;
+    }
+
+    private String awaitOther(CountDownLatch bothStarted, String stage) {
+        record(stage);
+        bothStarted.countDown();
+        try {
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return stage;
+    }
+}
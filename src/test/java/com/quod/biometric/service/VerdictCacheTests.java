@@ -0,0 +1,86 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.VerificationResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerdictCacheTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void entriesExpireAfterTheirTimeToLive() {
+        VerdictCache cache = cache(100, 1);
+        cache.putIfAbsent("FACIAL_BIOMETRY:a", "user-1", response("first"));
+
+        now.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertEquals("first", cache.get("FACIAL_BIOMETRY:a", "user-1").getResponse().getId());
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertNull(cache.get("FACIAL_BIOMETRY:a", "user-1"));
+        assertEquals(0, cache.size());
+        assertEquals(0.0, meterRegistry.get("verdict.cache.estimated.bytes").gauge().value());
+
+        // Expired content can be cached again, by a new owner
+        cache.putIfAbsent("FACIAL_BIOMETRY:a", "user-2", response("second"));
+        assertTrue(cache.get("FACIAL_BIOMETRY:a", "user-2").isSameUser("user-2"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        VerdictCache cache = cache(2, 1);
+        cache.putIfAbsent("a", "user-1", response("a"));
+        cache.putIfAbsent("b", "user-1", response("b"));
+        cache.get("a", "user-1");
+
+        cache.putIfAbsent("c", "user-1", response("c"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b", "user-1"));
+        assertNotNull(cache.get("a", "user-1"));
+        assertNotNull(cache.get("c", "user-1"));
+    }
+
+    @Test
+    void firstSubmitterOwnsTheVerdictAndOtherUsersAreCountedAsReuse() {
+        VerdictCache cache = cache(100, 1);
+        cache.putIfAbsent("a", "user-1", response("first"));
+        cache.putIfAbsent("a", "user-2", response("second"));
+
+        VerdictCache.CachedVerdict reused = cache.get("a", "user-2");
+        assertNull(cache.get("b", "user-2"));
+        assertNull(cache.get(null, "user-2"));
+
+        assertEquals("first", reused.getResponse().getId());
+        assertFalse(reused.isSameUser("user-2"));
+        assertEquals(1.0, meterRegistry.get("verdict.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("verdict.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(1.0, meterRegistry.get("verdict.cache.cross_user_hits").counter().count());
+    }
+
+    @Test
+    void stripesTogetherStayWithinMaxEntries() {
+        VerdictCache cache = cache(64, 16);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.putIfAbsent("FACIAL_BIOMETRY:" + i, "user-" + i, response(Integer.toString(i)));
+        }
+
+        assertTrue(cache.size() <= 64, String.valueOf(cache.size()));
+        assertNotNull(cache.get("FACIAL_BIOMETRY:999", "user-999"), "the latest entry is kept");
+    }
+
+    private VerdictCache cache(int maxEntries, int stripes) {
+        return new VerdictCache(true, maxEntries, Duration.ofMinutes(10), meterRegistry, stripes, now::get);
+    }
+
+    private static VerificationResponse response(String id) {
+        return VerificationResponse.builder().id(id).build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationMetadata;
+import com.quod.biometric.model.VerificationResult;
+import com.quod.biometric.service.BiometricVerificationService.Evaluation;
+import com.quod.biometric.service.VerificationContext.ImageRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+class VerificationFlowsTests {
+
+    private static final VerificationResult.VerificationType FACIAL = VerificationResult.VerificationType.FACIAL_BIOMETRY;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImageValidationService imageValidationService = mock(ImageValidationService.class);
+    private final FraudDetectionService fraudDetectionService = mock(FraudDetectionService.class);
+    private final VerdictCache verdictCache = new VerdictCache(true, 100, Duration.ofMinutes(10), meterRegistry);
+    private final VerificationFlows flows = new VerificationFlows(imageValidationService, fraudDetectionService, verdictCache,
+            mock(ImageStore.class), new VerificationMetrics(meterRegistry), new PipelineThreads(false), 2, 10);
+    private final IngestedImage face = new IngestedImage("face.jpg", "image/jpeg", 1, false, "hash",
+            ImageHeader.builder().format(ImageHeader.Format.JPEG).build(), ByteBuffer.wrap(new byte[]{1}), buffer -> { });
+    private final VerificationResponse cached = VerificationResponse.builder()
+            .id("verification-1")
+            .status(VerificationResult.ValidationStatus.APPROVED)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(imageValidationService.validateImage(any())).thenReturn(new ImageValidation(List.of(), null));
+        when(fraudDetectionService.detectFacialFraud(any(), any(), anyBoolean())).thenReturn(
+                new FraudAssessment(new RiskScorecard(FACIAL), new FraudCheckExecutor.Report(), null, null, null));
+        verdictCache.putIfAbsent(VerdictCache.key(FACIAL, face), "user-1", cached);
+    }
+
+    @AfterEach
+    void shutdown() {
+        flows.shutdown();
+    }
+
+    @Test
+    void replayIsCountedBeforeItIsAnsweredFromTheCache() {
+        VelocityEngine.Report velocity = new VelocityEngine.Report();
+        when(fraudDetectionService.recordAttempt(any())).thenReturn(velocity);
+
+        Evaluation evaluation = flows.run(context("user-1"));
+
+        assertSame(cached, evaluation.getResponse());
+        verify(fraudDetectionService).recordAttempt(new VerificationAttempt("user-1", "device-1", null));
+        verify(fraudDetectionService, never()).detectFacialFraud(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void replayOverAVelocityLimitIsEvaluatedAgain() {
+        VelocityEngine.Report velocity = new VelocityEngine.Report();
+        velocity.getFraudTypes().add("VELOCITY_USER_ATTEMPTS");
+        when(fraudDetectionService.recordAttempt(any())).thenReturn(velocity);
+
+        Evaluation evaluation = flows.run(context("user-1"));
+
+        assertNull(evaluation.getResponse());
+        assertNotNull(evaluation.getResult());
+        // Counted once, in replay, and handed to detection
+        verify(fraudDetectionService, times(1)).recordAttempt(any());
+        verify(fraudDetectionService).detectFacialFraud(face, velocity, false);
+    }
+
+    @Test
+    void contentCachedForAnotherUserIsEvaluatedAsReused() {
+        Evaluation evaluation = flows.run(context("user-2"));
+
+        assertNotNull(evaluation.getResult());
+        verify(fraudDetectionService).detectFacialFraud(face, null, true);
+    }
+
+    private VerificationContext context(String userId) {
+        return new VerificationContext(FACIAL, new VerificationAttempt(userId, "device-1", null), new VerificationMetadata())
+                .image(ImageRole.FACE, face);
+    }
+}
@@ -0,0 +1,128 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.model.VerificationResult.VerificationType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationLanesTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final Map<String, CountDownLatch> finish = new ConcurrentHashMap<>();
+
+    @Test
+    void freedSlotsGoToTheLaneFurthestBelowItsWeightedShare() throws Exception {
+        VerificationLanes lanes = lanes(3, Duration.ofSeconds(10), Map.of(
+                "FACIAL_BIOMETRY.weight", "2",
+                "DOCUMENT_ANALYSIS.weight", "1"));
+        List<Thread> threads = new ArrayList<>();
+        // One at a time, so the start and queue order is deterministic
+        for (int i = 1; i <= 3; i++) {
+            threads.add(start(lanes, VerificationType.DOCUMENT_ANALYSIS, "doc-" + i));
+            awaitStarted(i);
+        }
+        // The burst of documents holds every slot; both lanes now queue
+        for (int i = 4; i <= 5; i++) {
+            threads.add(start(lanes, VerificationType.DOCUMENT_ANALYSIS, "doc-" + i));
+            awaitQueued(VerificationType.DOCUMENT_ANALYSIS, i - 3);
+        }
+        for (int i = 1; i <= 2; i++) {
+            threads.add(start(lanes, VerificationType.FACIAL_BIOMETRY, "face-" + i));
+            awaitQueued(VerificationType.FACIAL_BIOMETRY, i);
+        }
+
+        finish("doc-1");
+        awaitStarted(4);
+        finish("doc-2");
+        awaitStarted(5);
+        finish("doc-3");
+        awaitStarted(6);
+        assertEquals(List.of("doc-1", "doc-2", "doc-3", "face-1", "face-2", "doc-4"), started);
+
+        finish.values().forEach(CountDownLatch::countDown);
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertEquals(7, started.size());
+        assertEquals(0.0, meterRegistry.get("verification.lane.running").tag("type", "DOCUMENT_ANALYSIS").gauge().value());
+    }
+
+    @Test
+    void rejectsWhenTheLaneQueueIsFullOrTheWaitTimesOut() throws Exception {
+        VerificationLanes lanes = lanes(1, Duration.ofMillis(50), Map.of(
+                "FINGERPRINT_BIOMETRY.queue-capacity", "0"));
+        Thread holder = start(lanes, VerificationType.FACIAL_BIOMETRY, "face-1");
+        awaitStarted(1);
+
+        assertThrows(RejectedExecutionException.class, () -> lanes.run(VerificationType.FINGERPRINT_BIOMETRY, () -> "never"));
+        assertThrows(RejectedExecutionException.class, () -> lanes.run(VerificationType.DOCUMENT_ANALYSIS, () -> "never"));
+        assertEquals(1.0, meterRegistry.get("verification.lane.rejected")
+                .tags("type", "FINGERPRINT_BIOMETRY", "reason", "queue_full").counter().count());
+        assertEquals(1.0, meterRegistry.get("verification.lane.rejected")
+                .tags("type", "DOCUMENT_ANALYSIS", "reason", "timeout").counter().count());
+
+        finish("face-1");
+        holder.join(5000);
+        assertEquals("done", lanes.run(VerificationType.DOCUMENT_ANALYSIS, () -> "done"));
+    }
+
+    private VerificationLanes lanes(int capacity, Duration queueTimeout, Map<String, String> laneSettings) {
+        MockEnvironment environment = new MockEnvironment();
+        laneSettings.forEach((name, value) -> environment.setProperty("verification.lanes." + name, value));
+        return new VerificationLanes(meterRegistry, environment, true, capacity, queueTimeout);
+    }
+
+    private Thread start(VerificationLanes lanes, VerificationType type, String name) {
+        CountDownLatch latch = new CountDownLatch(1);
+        finish.put(name, latch);
+        Thread thread = new Thread(() -> lanes.run(type, () -> {
+            started.add(name);
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        thread.start();
+        return thread;
+    }
+
+    private void finish(String name) {
+        finish.get(name).countDown();
+    }
+
+    private void awaitStarted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, started.size());
+    }
+
+    private void awaitQueued(VerificationType type, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued(type) < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, queued(type));
+    }
+
+    private int queued(VerificationType type) {
+        return (int) meterRegistry.get("verification.lane.queued").tag("type", type.name()).gauge().value();
+    }
+}
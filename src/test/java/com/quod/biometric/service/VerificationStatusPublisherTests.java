@@ -0,0 +1,66 @@
+package com.quod.biometric.service;
+
+import com.quod.biometric.dto.VerificationResponse;
+import com.quod.biometric.model.VerificationResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class VerificationStatusPublisherTests {
+
+    private final VerificationStatusPublisher publisher = new VerificationStatusPublisher(Duration.ofSeconds(5));
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StreamController()).build();
+
+    @Test
+    void streamsTheCurrentStateAndEveryChangeUntilAFinalOne() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/stream/ticket-1")).andExpect(request().asyncStarted()).andReturn();
+
+        publisher.publish(response("ticket-2", VerificationResult.ValidationStatus.APPROVED)); // another verification
+        publisher.publish(response("ticket-1", VerificationResult.ValidationStatus.PROCESSING));
+        publisher.publish(response("ticket-1", VerificationResult.ValidationStatus.REJECTED));
+        publisher.publish(response("ticket-1", VerificationResult.ValidationStatus.APPROVED)); // after completion
+
+        String events = stream.getResponse().getContentAsString();
+        assertEquals(3, events.split("event:status").length - 1, events);
+        assertTrue(events.indexOf("id:PENDING") < events.indexOf("id:PROCESSING"));
+        assertTrue(events.indexOf("id:PROCESSING") < events.indexOf("id:REJECTED"));
+        assertFalse(events.contains("id:APPROVED"));
+    }
+
+    @Test
+    void finalCurrentStateCompletesTheStreamRightAway() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/stream/done")).andExpect(request().asyncStarted()).andReturn();
+
+        publisher.publish(response("done", VerificationResult.ValidationStatus.PROCESSING));
+
+        String events = stream.getResponse().getContentAsString();
+        assertTrue(events.contains("id:MANUAL_REVIEW"), events);
+        assertFalse(events.contains("id:PROCESSING"));
+    }
+
+    private static VerificationResponse response(String id, VerificationResult.ValidationStatus status) {
+        return VerificationResponse.builder().id(id).status(status).build();
+    }
+
+    @RestController
+    class StreamController {
+
+        @GetMapping("/stream/{id}")
+        SseEmitter stream(@PathVariable String id) {
+            return publisher.subscribe(id, () -> response(id, id.equals("done")
+                    ? VerificationResult.ValidationStatus.MANUAL_REVIEW
+                    : VerificationResult.ValidationStatus.PENDING));
+        }
+    }
+}
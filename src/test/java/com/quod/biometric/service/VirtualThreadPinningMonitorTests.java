@@ -0,0 +1,51 @@
+package com.quod.biometric.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VirtualThreadPinningMonitorTests {
+
+    private final PipelineThreads virtualThreads = mock(PipelineThreads.class);
+
+    @Test
+    void startsWhenEnabledAndThePipelineRunsOnVirtualThreads() {
+        when(virtualThreads.isVirtual()).thenReturn(true);
+        VirtualThreadPinningMonitor monitor = monitor(virtualThreads, true);
+
+        monitor.start();
+        try {
+            assertTrue(monitor.isRunning());
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    @Test
+    void staysOffWhenDisabled() {
+        when(virtualThreads.isVirtual()).thenReturn(true);
+        VirtualThreadPinningMonitor monitor = monitor(virtualThreads, false);
+
+        monitor.start();
+
+        assertFalse(monitor.isRunning());
+        monitor.stop();
+    }
+
+    @Test
+    void staysOffOnPlatformThreads() {
+        VirtualThreadPinningMonitor monitor = monitor(new PipelineThreads(false), true);
+
+        monitor.start();
+
+        assertFalse(monitor.isRunning());
+    }
+
+    private static VirtualThreadPinningMonitor monitor(PipelineThreads pipelineThreads, boolean enabled) {
+        return new VirtualThreadPinningMonitor(pipelineThreads, new SimpleMeterRegistry(), enabled, Duration.ofMillis(20));
+    }
+}
@@ -0,0 +1,56 @@
+package com.quod.biometric.support;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP receiver standing in for the external notification system.
+ * Records every POST body and can be told to fail the next requests.
+ */
+public class StubNotificationReceiver implements AutoCloseable {
+
+    private final HttpServer server;
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresRemaining = new AtomicInteger();
+
+    public StubNotificationReceiver() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                String payload = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                int status = failuresRemaining.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0 ? 503 : 204;
+                if (status == 204) {
+                    requestBodies.add(payload);
+                }
+                exchange.sendResponseHeaders(status, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    public String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    public void failNext(int requests) {
+        failuresRemaining.set(requests);
+    }
+
+    public List<String> getRequestBodies() {
+        return requestBodies;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}